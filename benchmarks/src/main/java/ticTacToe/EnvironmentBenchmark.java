@@ -0,0 +1,124 @@
+package ticTacToe;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The reinforcement learning environments, with random X moves against random replies: an episode through
+ * {@link TTTEnvironment#executeMove} in a fresh environment, the way Q-learning used to train, and through
+ * {@link TTTEnvironment#tryStep} in a reused one; one step of every board of a {@link BatchEnvironment} of 64, 1,024 and 8,192 boards;
+ * and evaluating the value iteration policy as X, game by game and in a batch of 1,024 boards (per game).
+ *
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentBenchmark {
+
+	static final int GAMES = 1024;
+
+	TTTEnvironment env;
+	StepResult out = new StepResult();
+	SplittableRandom random = new SplittableRandom(42);
+
+	Agent vi;
+	BatchEnvironment evaluation;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		env = new TTTEnvironment();
+		env.setStateIndex(StateIndex.forPlayer('X'));
+		vi = new ValueIterationAgent();
+		evaluation = new BatchEnvironment(GAMES);
+	}
+
+	@State(Scope.Thread)
+	public static class Batch {
+		@Param({ "64", "1024", "8192" })
+		public int size;
+
+		BatchEnvironment batch;
+		int[] actions;
+		SplittableRandom random = new SplittableRandom(42);
+
+		@Setup(Level.Trial)
+		public void setup() {
+			batch = new BatchEnvironment(size, StateIndex.forPlayer('X'));
+			actions = new int[size];
+		}
+	}
+
+	static int pick(int mask, SplittableRandom r) {
+		for (int skip = r.nextInt(Integer.bitCount(mask)); skip > 0; skip--)
+			mask &= mask - 1;
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	@Benchmark
+	public int executeMoveEpisode() throws IllegalMoveException {
+		TTTEnvironment fresh = new TTTEnvironment();
+		int state = 0;
+		while (!fresh.isTerminal()) {
+			List<Move> moves = fresh.getPossibleMoves();
+			state = fresh.executeMove(moves.get(random.nextInt(moves.size()))).sPrime.getState();
+		}
+		return state;
+	}
+
+	@Benchmark
+	public int stepEpisode() {
+		env.reset();
+		do
+			env.tryStep(pick(env.game.emptyCells(), random), out);
+		while (!out.isTerminal());
+		return out.id;
+	}
+
+	@Benchmark
+	public int batchStep(Batch batch) {
+		for (int b = 0; b < batch.size; b++)
+			batch.actions[b] = pick(batch.batch.legalMask(b), batch.random);
+		return batch.batch.tryStep(batch.actions);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(GAMES)
+	public int playGames() throws IllegalMoveException {
+		int won = 0;
+		for (int i = 0; i < GAMES; i++) {
+			Game g = new Game(vi, new RandomAgent());
+			while (!g.isTerminal())
+				g.executeMove(g.whoseTurn.getMove(g));
+			if (g.getState() == Game.X_WON)
+				won++;
+		}
+		return won;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(GAMES)
+	public int[] playBatch() {
+		return evaluation.play(vi.getPolicy(), GAMES);
+	}
+
+}
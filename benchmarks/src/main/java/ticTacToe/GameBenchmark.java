@@ -0,0 +1,406 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The per-position operations of {@link Game}, each run over all valid games in turn so that no single position is measured; a
+ * lookup in a {@code HashMap<Game, Double>}, the way the solvers used to read their value functions, and in the array numbered by
+ * a {@link StateIndex} that replaced it; and whole random playouts. {@link Game#simulateMove} is also run on the {@link GameState}
+ * it wraps, and it and the playouts on {@link CharBoard}, the char[][] board and line scan that {@link Game} used before it was
+ * backed by bitboards, and {@link Game#hashCode()} and {@link Game#inverseHash(int)} on the base-3 strings they used to build, so
+ * that both numbers come from the same run. {@link Game#generateAllValidGames(char)}, which copies the enumeration of
+ * {@link ReachableStates}, is run next to the scan over every hash code that it replaced. Probing a cell that may be taken, as a
+ * search that tries cells blindly would, is run with the throwing {@link Game#play(int)} and {@link Game#simulateMove} and with
+ * {@link Game#tryPlay(int)} and {@link Game#trySimulateMove(int)}.
+ * 
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+	Game[] games;
+	int[] hashes;
+
+	/**
+	 * The non-terminal games, and one legal move in each
+	 */
+	Game[] playable;
+	Move[] moves;
+
+	/**
+	 * The positions of {@link #playable}, and on the old board
+	 */
+	GameState[] playablePositions;
+	CharBoard[] charBoards;
+
+	Map<Game, Double> values;
+
+	/**
+	 * The same values, numbered by a {@link StateIndex}
+	 */
+	StateIndex states;
+	double[] denseValues;
+
+	Game playout;
+	CharBoard emptyCharBoard = new CharBoard();
+	int[] emptyCells = new int[9];
+	SplittableRandom random = new SplittableRandom(42);
+
+	/**
+	 * The positions of {@link #games} and a cell in each, taken in more than half of them
+	 */
+	GameState[] positions;
+	int[] probes;
+	Game probe;
+
+	int next;
+	int nextPlayable;
+
+	@Setup
+	public void setup() {
+		List<Game> all = Game.generateAllValidGames('X');
+		games = all.toArray(new Game[0]);
+		hashes = new int[games.length];
+		List<Game> open = new ArrayList<Game>();
+		List<Move> legal = new ArrayList<Move>();
+		for (int i = 0; i < games.length; i++) {
+			hashes[i] = games[i].hashCode();
+			if (!games[i].isTerminal()) {
+				List<Move> ms = games[i].getPossibleMoves();
+				open.add(games[i]);
+				legal.add(ms.get(i % ms.size()));
+			}
+		}
+		playable = open.toArray(new Game[0]);
+		moves = legal.toArray(new Move[0]);
+		playablePositions = new GameState[playable.length];
+		charBoards = new CharBoard[playable.length];
+		for (int i = 0; i < playable.length; i++) {
+			playablePositions[i] = playable[i].getPosition();
+			charBoards[i] = new CharBoard(playable[i].getBoard());
+		}
+		playout = new Game(new Agent(), new Agent());
+		values = new HashMap<Game, Double>();
+		positions = new GameState[games.length];
+		probes = new int[games.length];
+		for (int i = 0; i < games.length; i++) {
+			values.put(games[i], 0.0);
+			positions[i] = games[i].getPosition();
+			probes[i] = i % 9;
+		}
+		probe = new Game(new Agent(), new Agent());
+		states = StateIndex.forPlayer('X');
+		denseValues = new double[states.size()];
+	}
+
+	int next() {
+		if (++next == games.length)
+			next = 0;
+		return next;
+	}
+
+	int nextPlayable() {
+		if (++nextPlayable == playable.length)
+			nextPlayable = 0;
+		return nextPlayable;
+	}
+
+	@Benchmark
+	public int evaluateGameState() {
+		Game g = games[next()];
+		g.evaluateGameState();
+		return g.getState();
+	}
+
+	@Benchmark
+	public int hashCodeOfGame() {
+		return games[next()].hashCode();
+	}
+
+	@Benchmark
+	public int stringHashCode() {
+		return stringHash(games[next()]);
+	}
+
+	@Benchmark
+	public Double hashMapLookup() {
+		return values.get(games[next()]);
+	}
+
+	@Benchmark
+	public double stateIndexLookup() {
+		return denseValues[states.id(games[next()])];
+	}
+
+	@Benchmark
+	public Game inverseHash() {
+		return Game.inverseHash(hashes[next()]);
+	}
+
+	@Benchmark
+	public Game stringInverseHash() {
+		return stringInverseHash(hashes[next()]);
+	}
+
+	/**
+	 * The hash {@link Game#hashCode()} used to compute: a base-3 string built one character at a time and parsed back.
+	 */
+	static int stringHash(Game g) {
+		char[][] board = g.getBoard();
+		String s = "";
+		for (int i = 0; i < 3; i++)
+			for (int j = 0; j < 3; j++) {
+				switch (board[i][j]) {
+				case 'X':
+					s += "1";
+					break;
+				case 'O':
+					s += "2";
+					break;
+				case ' ':
+					s += "0";
+					break;
+				}
+			}
+		s += (g.whoseTurn == g.x) ? "1" : "2";
+
+		return Integer.parseInt(s, 3);
+	}
+
+	/**
+	 * The way {@link Game#inverseHash(int)} used to decode a hash: printed in base 3, padded with leading zeros and read back one
+	 * character at a time.
+	 */
+	static Game stringInverseHash(int hash) {
+		String s1 = Integer.toString(hash, 3);
+		if (s1.charAt(s1.length() - 1) == '0')
+			return null;
+		String s = new String(s1);
+		for (int i = 0; i < 10 - s1.length(); i++)
+			s = "0" + s;
+
+		int xBits = 0, oBits = 0;
+		for (int l = s.length() - 2; l >= 0; l--) {
+			switch (s.charAt(l)) {
+			case '0':
+				break;
+			case '1':
+				xBits |= 1 << l;
+				break;
+			case '2':
+				oBits |= 1 << l;
+				break;
+			default:
+				throw new IllegalStateException("this shouldn't happen!");
+			}
+		}
+		return new Game(GameState.of(xBits, oBits, s.charAt(s.length() - 1) == '1' ? 'X' : 'O'));
+	}
+
+	@Benchmark
+	public Game simulateMove() throws IllegalMoveException {
+		int i = nextPlayable();
+		return playable[i].simulateMove(moves[i]);
+	}
+
+	@Benchmark
+	public GameState gameStatePlay() {
+		int i = nextPlayable();
+		return playablePositions[i].tryPlay(moves[i].cell());
+	}
+
+	@Benchmark
+	public CharBoard charBoardSimulateMove() {
+		int i = nextPlayable();
+		return charBoards[i].simulateMove(moves[i].who.getName(), moves[i].x, moves[i].y);
+	}
+
+	@Benchmark
+	public int randomPlayout() {
+		playout.reset(playout.x);
+		int empty;
+		while ((empty = playout.legalMoveMask()) != 0)
+			playout.tryPlay(pick(empty, random));
+		return playout.getState();
+	}
+
+	@Benchmark
+	public int charBoardPlayout() {
+		CharBoard b = emptyCharBoard;
+		char who = 'X';
+		while (b.state == Game.ONGOING) {
+			int n = 0;
+			for (int cell = 0; cell < 9; cell++)
+				if (b.board[cell / 3][cell % 3] == ' ')
+					emptyCells[n++] = cell;
+			int cell = emptyCells[random.nextInt(n)];
+			b = b.simulateMove(who, cell / 3, cell % 3);
+			who = who == 'X' ? 'O' : 'X';
+		}
+		return b.state;
+	}
+
+	@Benchmark
+	public int playIllegalProbe() {
+		int i = next();
+		probe.setPosition(positions[i]);
+		try {
+			probe.play(probes[i]);
+			return probe.getState();
+		} catch (IllegalMoveException e) {
+			return Game.ILLEGAL;
+		}
+	}
+
+	@Benchmark
+	public int tryPlayIllegalProbe() {
+		int i = next();
+		probe.setPosition(positions[i]);
+		return probe.tryPlay(probes[i]);
+	}
+
+	@Benchmark
+	public Game simulateMoveIllegalProbe() {
+		int i = next();
+		try {
+			return games[i].simulateMove(games[i].whoseTurn.getName(), probes[i] / 3, probes[i] % 3);
+		} catch (IllegalMoveException e) {
+			return null;
+		}
+	}
+
+	@Benchmark
+	public Game trySimulateMoveIllegalProbe() {
+		int i = next();
+		return games[i].trySimulateMove(probes[i]);
+	}
+
+	static int pick(int mask, SplittableRandom r) {
+		for (int skip = r.nextInt(Integer.bitCount(mask)); skip > 0; skip--)
+			mask &= mask - 1;
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	@Benchmark
+	public List<Move> getPossibleMoves() {
+		return playable[nextPlayable()].getPossibleMoves();
+	}
+
+	@Benchmark
+	public List<Game> getAllSuccessorGames() {
+		return playable[nextPlayable()].getAllSuccessorGames();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<Game> generateAllValidGames() {
+		return Game.generateAllValidGames('X');
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<Game> scanValidGames() {
+		return scanValidGames('X');
+	}
+
+	/**
+	 * The way {@link Game#generateAllValidGames(char)} used to find the valid games: builds the game of every hash code with
+	 * {@link Game#inverseHash(int)} and keeps the ones that pass {@link Game#isValid()}.
+	 */
+	static List<Game> scanValidGames(char xo) {
+		List<Game> result = new ArrayList<Game>();
+		for (int i = 0; i < 59048; i++) {
+			Game g = Game.inverseHash(i);
+			if (g == null)
+				continue;
+			if (g.isValid()) {
+				g.evaluateGameState();
+				if (g.whoseTurn.getName() == xo || g.isTerminal())
+					result.add(g);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The board representation {@link Game} used before bitboards: a copy of the char[][] per simulated move, and eight line checks
+	 * plus a scan for empty cells to evaluate it. Only kept here as the baseline of {@link GameBenchmark#charBoardSimulateMove()} and
+	 * {@link GameBenchmark#charBoardPlayout()}.
+	 */
+	static class CharBoard {
+		char[][] board = new char[3][3];
+		int state;
+
+		CharBoard() {
+			for (char[] row : board)
+				Arrays.fill(row, ' ');
+		}
+
+		CharBoard(char[][] from) {
+			for (int i = 0; i < 3; i++)
+				board[i] = from[i].clone();
+			evaluate();
+		}
+
+		CharBoard simulateMove(char who, int x, int y) {
+			if (board[x][y] != ' ')
+				throw new IllegalArgumentException("Invalid move");
+			CharBoard copy = new CharBoard();
+			for (int i = 0; i < 3; i++)
+				for (int j = 0; j < 3; j++)
+					copy.board[i][j] = board[i][j];
+			copy.board[x][y] = who;
+			copy.evaluate();
+			return copy;
+		}
+
+		void evaluate() {
+			char[][] b = board;
+			for (int i = 0; i < 3; i++) {
+				if (b[i][0] != ' ' && b[i][0] == b[i][1] && b[i][1] == b[i][2]) {
+					state = b[i][0] == 'X' ? Game.X_WON : Game.O_WON;
+					return;
+				}
+				if (b[0][i] != ' ' && b[0][i] == b[1][i] && b[1][i] == b[2][i]) {
+					state = b[0][i] == 'X' ? Game.X_WON : Game.O_WON;
+					return;
+				}
+			}
+			if (b[1][1] != ' ' && ((b[0][0] == b[1][1] && b[1][1] == b[2][2]) || (b[2][0] == b[1][1] && b[1][1] == b[0][2]))) {
+				state = b[1][1] == 'X' ? Game.X_WON : Game.O_WON;
+				return;
+			}
+			for (int i = 0; i < 3; i++)
+				for (int j = 0; j < 3; j++)
+					if (b[i][j] == ' ') {
+						state = Game.ONGOING;
+						return;
+					}
+			state = Game.DRAW;
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package ticTacToe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One {@link MCTSAgent} move of 10,000 playouts on an empty board, on 1, 2 and 4 threads with tree and root parallelism. Every
+ * move counts its playouts and the tree nodes it used, which JMH reports as rates next to the move rate: playouts per second,
+ * which stay flat with more threads than cores, and nodes per second. The GC profiler's {@code gc.alloc.rate.norm} divided by
+ * 10,000 is the allocation per playout.
+ *
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MCTSBenchmark {
+
+	@Param({ "3,3,3", "7,7,5" })
+	public String size;
+
+	@Param({ "1", "2", "4" })
+	public int threads;
+
+	@Param({ "TREE", "ROOT" })
+	public MCTSAgent.Parallelism parallelism;
+
+	MNKBoard empty;
+	MCTSAgent agent;
+
+	@Setup
+	public void setup() {
+		String[] mnk = size.split(",");
+		empty = new MNKBoard(Integer.parseInt(mnk[0]), Integer.parseInt(mnk[1]), Integer.parseInt(mnk[2]));
+		agent = new MCTSAgent(0, 10000, threads, parallelism, MNKPlayer.aggressive());
+	}
+
+	/**
+	 * The work of the searches
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Work {
+		public long playouts;
+		public long nodes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			playouts = 0;
+			nodes = 0;
+		}
+	}
+
+	@Benchmark
+	public int search(Work work) {
+		int cell = agent.getCell(empty);
+		work.playouts += agent.getLastIterations();
+		work.nodes += agent.getLastNodes();
+		return cell;
+	}
+
+}
@@ -0,0 +1,83 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link TTTMDP#generateTransitions} over every (game, move) pair of the X player's MDP, the Bellman backup of the
+ * {@link CompiledMDP} that replaces it in the solvers' inner loops, and compiling the MDP.
+ * 
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MDPBenchmark {
+
+	TTTMDP mdp;
+	StateIndex states;
+	CompiledMDP compiled;
+	double[] values;
+
+	Game[] games;
+	Move[] moves;
+
+	int next;
+	int nextState;
+
+	@Setup
+	public void setup() {
+		mdp = new TTTMDP();
+		List<Game> gs = new ArrayList<Game>();
+		List<Move> ms = new ArrayList<Move>();
+		for (Game g : Game.generateAllValidGames('X'))
+			if (!g.isTerminal())
+				for (Move m : g.getPossibleMoves()) {
+					gs.add(g);
+					ms.add(m);
+				}
+		games = gs.toArray(new Game[0]);
+		moves = ms.toArray(new Move[0]);
+
+		states = StateIndex.forPlayer('X');
+		compiled = mdp.compile(states);
+		values = new double[compiled.stateCount()];
+	}
+
+	@Benchmark
+	public List<TransitionProb> generateTransitions() {
+		if (++next == games.length)
+			next = 0;
+		return mdp.generateTransitions(games[next], moves[next]);
+	}
+
+	@Benchmark
+	public double compiledBackup() {
+		if (++nextState == values.length)
+			nextState = 0;
+		return compiled.backup(nextState, values, 0.9);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public CompiledMDP compile() {
+		return new CompiledMDP(mdp, states);
+	}
+
+}
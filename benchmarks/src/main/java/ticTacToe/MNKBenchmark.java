@@ -0,0 +1,92 @@
+package ticTacToe;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MNKBoard} on boards from 3x3 to 15x15: a whole random playout from the empty board, one move played and undone as a
+ * search does it, from a position halfway through a game, and a random episode of {@link MNKEnvironment#tryStep}.
+ * 
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MNKBenchmark {
+
+	/**
+	 * m,n,k
+	 */
+	@Param({ "3,3,3", "4,4,4", "7,7,5", "9,9,5", "15,15,5" })
+	String size;
+
+	MNKBoard board;
+	MNKBoard middle;
+	int[] moves;
+	int count;
+	int next;
+	MNKEnvironment env;
+	StepResult out = new StepResult();
+	SplittableRandom random = new SplittableRandom(42);
+
+	@Setup
+	public void setup() {
+		String[] mnk = size.split(",");
+		board = new MNKBoard(Integer.parseInt(mnk[0]), Integer.parseInt(mnk[1]), Integer.parseInt(mnk[2]));
+
+		// a position with half the board filled where the game is not over
+		middle = new MNKBoard(board.getRules());
+		while (middle.moveCount() < middle.getRules().cells() / 2) {
+			int cell = middle.legalMove(random.nextInt(middle.legalMoveCount()));
+			if (middle.tryPlay(cell) != Game.ONGOING)
+				middle.undo();
+		}
+		moves = new int[middle.getRules().cells()];
+		count = middle.legalMoves(moves);
+		env = new MNKEnvironment(board.getRules());
+	}
+
+	@Benchmark
+	public long playout() {
+		board.reset('X');
+		while (board.tryPlay(board.legalMove(random.nextInt(board.legalMoveCount()))) == Game.ONGOING)
+			;
+		return board.key();
+	}
+
+	@Benchmark
+	public long playUndo() {
+		if (++next == count)
+			next = 0;
+		middle.tryPlay(moves[next]);
+		long key = middle.key();
+		middle.undo();
+		return key;
+	}
+
+	@Benchmark
+	public long envEpisode() {
+		env.reset();
+		do
+			env.tryStep(env.getBoard().legalMove(random.nextInt(env.getBoard().legalMoveCount())), out);
+		while (!out.isTerminal());
+		return out.key;
+	}
+
+}
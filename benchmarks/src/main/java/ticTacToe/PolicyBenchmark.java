@@ -0,0 +1,119 @@
+package ticTacToe;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Policy#getMove} of a trained value iteration policy, in memory, loaded from a policy file and as the HashMap policy the
+ * agents used to extract, and of the random, aggressive and defensive policies, over all games where X is to move; and loading the
+ * policy file.
+ * 
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyBenchmark {
+
+	Policy trained;
+	Policy loaded;
+	Policy hashMap;
+	Policy random;
+	Policy aggressive;
+	Policy defensive;
+	File file;
+	Game[] games;
+	int next;
+
+	@Setup
+	public void setup() throws IOException {
+		ValueIterationAgent agent = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		agent.initValues();
+		agent.train();
+		trained = agent.getPolicy();
+		random = new RandomPolicy();
+		aggressive = new AggressivePolicy();
+		defensive = new DefensivePolicy();
+
+		file = File.createTempFile("value-iteration", ".policy");
+		trained.save(file.getPath());
+		loaded = new Policy(file.getPath());
+
+		List<Game> open = new ArrayList<Game>();
+		HashMap<Game, Move> map = new HashMap<Game, Move>();
+		for (Game g : Game.generateAllValidGames('X'))
+			if (!g.isTerminal()) {
+				open.add(g);
+				map.put(g, trained.getMove(g));
+			}
+		games = open.toArray(new Game[0]);
+		hashMap = new Policy(map);
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	Game next() {
+		if (++next == games.length)
+			next = 0;
+		return games[next];
+	}
+
+	@Benchmark
+	public Move trainedGetMove() {
+		return trained.getMove(next());
+	}
+
+	@Benchmark
+	public Move loadedGetMove() {
+		return loaded.getMove(next());
+	}
+
+	@Benchmark
+	public Move hashMapGetMove() {
+		return hashMap.getMove(next());
+	}
+
+	@Benchmark
+	public Move randomGetMove() {
+		return random.getMove(next());
+	}
+
+	@Benchmark
+	public Move aggressiveGetMove() {
+		return aggressive.getMove(next());
+	}
+
+	@Benchmark
+	public Move defensiveGetMove() {
+		return defensive.getMove(next());
+	}
+
+	@Benchmark
+	public Policy loadPolicyFile() throws IOException {
+		return new Policy(file.getPath());
+	}
+
+}
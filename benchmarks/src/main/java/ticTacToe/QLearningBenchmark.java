@@ -0,0 +1,192 @@
+package ticTacToe;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Q-learning: one update, Q(s,a) <- (1-alpha)Q(s,a) + alpha(r + discount*max Q(s',.)), from a stream of random (state, move, next
+ * state) triples, on the flat {@link QTable} and on a {@code HashMap<Game, HashMap<Move, Double>>}, which is how the Q-table was
+ * stored before; and training 10,000 episodes against a {@link RandomAgent} on 1, 2 and 4 threads, in batches of 0 (one
+ * {@link TTTEnvironment}), 16 and 256 boards, and with a plain and with a canonical Q-table. The agents' progress lines are not
+ * printed.
+ *
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QLearningBenchmark {
+
+	static final int EPISODES = 10000;
+
+	QTable table;
+	Map<Game, HashMap<Move, Double>> boxed;
+	int[] from, cell, to;
+	Game[] fromGame, toGame;
+	Move[] moves;
+	int next;
+	PrintStream out;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		StateIndex states = StateIndex.forPlayer('X');
+		StateIndex.forPlayer('X', true);
+		table = new QTable(states);
+		table.initLegalMoves();
+		boxed = new HashMap<Game, HashMap<Move, Double>>();
+		for (int id = 0; id < states.size(); id++) {
+			Game g = states.game(id);
+			HashMap<Move, Double> row = new HashMap<Move, Double>();
+			if (!g.isTerminal())
+				for (Move m : g.getPossibleMoves())
+					row.put(m, 0.0);
+			boxed.put(g, row);
+		}
+
+		// X moves, then a random O reply if the game is not over
+		SplittableRandom r = new SplittableRandom(42);
+		int updates = 1 << 16;
+		from = new int[updates];
+		cell = new int[updates];
+		to = new int[updates];
+		fromGame = new Game[updates];
+		toGame = new Game[updates];
+		moves = new Move[updates];
+		Game g = new Game(new Agent(), new Agent());
+		for (int u = 0; u < updates; u++) {
+			int s;
+			do
+				s = r.nextInt(states.size());
+			while (states.position(s).isTerminal());
+			g.setPosition(states.position(s));
+			int c = pick(g.emptyCells(), r);
+			g.tryPlay(c);
+			if (!g.isTerminal())
+				g.tryPlay(pick(g.emptyCells(), r));
+			from[u] = s;
+			cell[u] = c;
+			to[u] = states.id(g.getPosition());
+			fromGame[u] = states.game(s);
+			toGame[u] = states.game(to[u]);
+			moves[u] = Move.of('X', c);
+		}
+
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(out);
+	}
+
+	static int pick(int mask, SplittableRandom r) {
+		for (int skip = r.nextInt(Integer.bitCount(mask)); skip > 0; skip--)
+			mask &= mask - 1;
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	@State(Scope.Thread)
+	public static class Threads {
+		@Param({ "1", "2", "4" })
+		public int threads;
+	}
+
+	@State(Scope.Thread)
+	public static class Batch {
+		@Param({ "0", "16", "256" })
+		public int size;
+	}
+
+	@State(Scope.Thread)
+	public static class Symmetric {
+		@Param({ "false", "true" })
+		public boolean symmetric;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public double update() {
+		if (++next == from.length)
+			next = 0;
+		double sample = -1 + 0.9 * table.max(to[next]);
+		table.update(from[next], cell[next], 0.2, sample);
+		return sample;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public double hashMapUpdate() {
+		if (++next == from.length)
+			next = 0;
+		double max = 0;
+		HashMap<Move, Double> nextRow = boxed.get(toGame[next]);
+		if (!nextRow.isEmpty()) {
+			max = Double.NEGATIVE_INFINITY;
+			for (Map.Entry<Move, Double> e : nextRow.entrySet())
+				max = Math.max(max, e.getValue());
+		}
+		HashMap<Move, Double> row = boxed.get(fromGame[next]);
+		double sample = -1 + 0.9 * max;
+		row.replace(moves[next], 0.8 * row.get(moves[next]) + 0.2 * sample);
+		return sample;
+	}
+
+	static QLearningAgent agent() {
+		QLearningAgent agent = new QLearningAgent(new RandomAgent(), 0.2, 0, 0.9);
+		agent.numEpisodes = EPISODES;
+		return agent;
+	}
+
+	@Benchmark
+	public Policy train(Threads threads) {
+		QLearningAgent agent = agent();
+		agent.setThreads(threads.threads);
+		agent.train();
+		return agent.getPolicy();
+	}
+
+	@Benchmark
+	public Policy trainBatched(Batch batch) {
+		QLearningAgent agent = agent();
+		agent.setBatchSize(batch.size);
+		agent.train();
+		return agent.getPolicy();
+	}
+
+	@Benchmark
+	public Policy trainTable(Symmetric symmetric) {
+		QLearningAgent agent = agent();
+		agent.qTable = symmetric.symmetric ? new QTable(StateIndex.forPlayer('X', true)) : new QTable();
+		agent.initQTable();
+		agent.train();
+		return agent.getPolicy();
+	}
+
+}
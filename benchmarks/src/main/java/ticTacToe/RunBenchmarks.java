@@ -0,0 +1,37 @@
+package ticTacToe;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the usual JMH command line options, but unless they say otherwise, with the GC profiler (allocation
+ * per operation, gc.alloc.rate.norm) and with the results written as JSON to jmh-result.json, so that two runs can be diffed:
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar                 # everything
+ * java -jar target/benchmarks.jar GameBenchmark   # only the benchmarks matching a regex
+ * java -jar target/benchmarks.jar -rff before.json
+ * </pre>
+ * 
+ * @author ae187
+ *
+ */
+public class RunBenchmarks {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cli = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+		if (cli.getProfilers().isEmpty())
+			options.addProfiler(GCProfiler.class);
+		if (!cli.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+		if (!cli.getResult().hasValue())
+			options.result("jmh-result.json");
+		new Runner(options.build()).run();
+	}
+
+}
@@ -0,0 +1,102 @@
+package ticTacToe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving a {@link Snapshot} of each trained learning agent, and loading it into a fresh agent; compare with
+ * {@link TrainBenchmark}, which trains them.
+ *
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+	@Param({ "vi", "pi", "ql" })
+	public String agent;
+
+	Snapshot.Trainable trained;
+	Snapshot.Trainable fresh;
+	File file;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+		switch (agent) {
+		case "vi":
+			ValueIterationAgent vi = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+			vi.initValues();
+			vi.train();
+			trained = vi;
+			ValueIterationAgent freshVi = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+			freshVi.initValues();
+			fresh = freshVi;
+			break;
+		case "pi":
+			PolicyIterationAgent pi = new PolicyIterationAgent((Policy) null);
+			pi.mdp = new TTTMDP();
+			pi.initValues();
+			pi.initRandomPolicy();
+			pi.train();
+			trained = pi;
+			PolicyIterationAgent freshPi = new PolicyIterationAgent((Policy) null);
+			freshPi.mdp = new TTTMDP();
+			freshPi.initValues();
+			fresh = freshPi;
+			break;
+		default:
+			trained = new QLearningAgent(new RandomAgent(), 0.2, 30000, 0.9);
+			QLearningAgent freshQl = new QLearningAgent(new RandomAgent(), 0.2, 0, 0.9);
+			freshQl.numEpisodes = 30000;
+			fresh = freshQl;
+		}
+		System.setOut(out);
+		file = File.createTempFile("snapshot", ".snapshot");
+		trained.saveSnapshot(file.getPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public File save() throws IOException {
+		trained.saveSnapshot(file.getPath());
+		return file;
+	}
+
+	@Benchmark
+	public boolean load() throws IOException {
+		return fresh.loadSnapshot(file.getPath());
+	}
+
+}
@@ -0,0 +1,184 @@
+package ticTacToe;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The model-based solvers over the X player's compiled MDP: 100 synchronous value iteration sweeps on 1, 2 and 4 threads, solving it
+ * to convergence with each {@link SweepStrategy}, the whole of {@link ValueIterationAgent#train()} with each, policy iteration with
+ * exact and with iterative policy evaluation from the same random policy, and training value and policy iteration on the plain and
+ * on the canonical (symmetry reduced) states. The solves also count their work: sweeps and
+ * backups, policy iterations and evaluation sweeps, which JMH reports as rates next to the solve rate (throughput mode only), so
+ * that the exact and the iterative policy iteration show their times and iteration counts side by side. The agents' progress lines
+ * are not printed.
+ *
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+	TTTMDP mdp;
+	CompiledMDP model;
+	PrintStream out;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		mdp = new TTTMDP();
+		model = mdp.compile(StateIndex.forPlayer('X'));
+		model.predecessors();
+		model.topologicalOrder();
+		StateIndex.forPlayer('X', true);
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(out);
+	}
+
+	@State(Scope.Thread)
+	public static class Strategy {
+		@Param({ "SYNCHRONOUS", "GAUSS_SEIDEL", "PRIORITIZED", "BACKWARD_INDUCTION" })
+		public SweepStrategy strategy;
+	}
+
+	@State(Scope.Thread)
+	public static class Evaluation {
+		@Param({ "true", "false" })
+		public boolean exact;
+
+		byte[] initial;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			PolicyIterationAgent agent = new PolicyIterationAgent((Policy) null);
+			agent.mdp = new TTTMDP();
+			agent.initValues();
+			agent.initRandomPolicy();
+			initial = agent.curPolicy.clone();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Symmetric {
+		@Param({ "false", "true" })
+		public boolean symmetric;
+	}
+
+	/**
+	 * The work of the value iteration solves
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Work {
+		public long sweeps;
+		public long backups;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			sweeps = 0;
+			backups = 0;
+		}
+	}
+
+	/**
+	 * The work of the policy iteration solves
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Iterations {
+		public long iterations;
+		public long evaluationSweeps;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			iterations = 0;
+			evaluationSweeps = 0;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Threads {
+		@Param({ "1", "2", "4" })
+		public int threads;
+	}
+
+	@Benchmark
+	public double sweeps(Threads threads) {
+		double[] values = new double[model.stateCount()];
+		return new ValueIterationEngine(model, 0.9, threads.threads).run(values, 100);
+	}
+
+	@Benchmark
+	public double solve(Strategy strategy, Work work) {
+		double[] values = new double[model.stateCount()];
+		ValueIterationEngine engine = new ValueIterationEngine(model, 0.9, 1);
+		double residual = engine.solve(values, strategy.strategy, 1e-9, 1000);
+		work.sweeps += engine.getSweeps();
+		work.backups += engine.getBackups();
+		return residual;
+	}
+
+	@Benchmark
+	public Policy trainValueIteration(Strategy strategy, Symmetric symmetric) {
+		ValueIterationAgent agent = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		agent.setStrategy(strategy.strategy);
+		agent.symmetric = symmetric.symmetric;
+		agent.initValues();
+		agent.train();
+		return agent.getPolicy();
+	}
+
+	@Benchmark
+	public byte[] policyIteration(Evaluation evaluation, Iterations work) {
+		PolicyIterationAgent agent = new PolicyIterationAgent((Policy) null);
+		// the compiled model is shared, so only the solving is measured
+		agent.mdp = mdp;
+		agent.exactEvaluation = evaluation.exact;
+		agent.initValues();
+		agent.curPolicy = evaluation.initial.clone();
+		agent.train();
+		work.iterations += agent.iterations;
+		work.evaluationSweeps += agent.evaluationSweeps;
+		return agent.curPolicy;
+	}
+
+	@Benchmark
+	public Policy trainPolicyIteration(Symmetric symmetric) {
+		PolicyIterationAgent agent = new PolicyIterationAgent((Policy) null);
+		agent.mdp = new TTTMDP();
+		agent.symmetric = symmetric.symmetric;
+		agent.initValues();
+		agent.initRandomPolicy();
+		agent.train();
+		return agent.getPolicy();
+	}
+
+}
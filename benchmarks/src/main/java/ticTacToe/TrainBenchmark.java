@@ -0,0 +1,102 @@
+package ticTacToe;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Trains each of the three learning agents from scratch with their default parameters. The shared state indexes are built once per
+ * fork, as they are once per JVM in the game; the compiled MDP is not shared, so the solver benchmarks include compiling it. The
+ * agents' progress lines are not printed.
+ * 
+ * Also trains all three with their default constructors, one after the other and as three {@link Training} runs on a pool of three
+ * threads.
+ * 
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainBenchmark {
+
+	PrintStream out;
+	ExecutorService pool;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		pool = Executors.newFixedThreadPool(3);
+		StateIndex.forPlayer('X');
+		StateIndex.forPlayer('X', true);
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+		System.setOut(out);
+	}
+
+	@Benchmark
+	public Policy valueIteration() {
+		ValueIterationAgent agent = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		agent.initValues();
+		agent.train();
+		return agent.getPolicy();
+	}
+
+	@Benchmark
+	public Policy policyIteration() {
+		PolicyIterationAgent agent = new PolicyIterationAgent((Policy) null);
+		agent.mdp = new TTTMDP();
+		agent.initValues();
+		agent.initRandomPolicy();
+		agent.train();
+		return agent.getPolicy();
+	}
+
+	@Benchmark
+	public Policy qLearning() {
+		return new QLearningAgent(new RandomAgent(), 0.2, 30000, 0.9).getPolicy();
+	}
+
+	@Benchmark
+	public Policy[] allInTurn() {
+		return new Policy[] { new ValueIterationAgent().getPolicy(), new PolicyIterationAgent().getPolicy(),
+				new QLearningAgent().getPolicy() };
+	}
+
+	@Benchmark
+	public Policy[] allInTheBackground() {
+		Training<ValueIterationAgent> vi = Training.start(ValueIterationAgent::new, pool);
+		Training<PolicyIterationAgent> pi = Training.start(PolicyIterationAgent::new, pool);
+		Training<QLearningAgent> ql = Training.start(QLearningAgent::new, pool);
+		CompletableFuture.allOf(vi.future(), pi.future(), ql.future()).join();
+		return new Policy[] { vi.getPolicy(), pi.getPolicy(), ql.getPolicy() };
+	}
+
+}
@@ -1,5 +1,7 @@
 package ticTacToe;
 
+import java.io.IOException;
+
 
 public class Agent {
 	
@@ -36,6 +38,17 @@ public class Agent {
 		return policy.getMove(g);
 	}
 	
+	/**
+	 * Like {@link #getMove(Game)}, but returns the move as a cell index (3*x+y), which the agent's policy may be able to do
+	 * without allocating anything.
+	 * @param g the game
+	 * @return the cell to play according to the agent's policy, or -1 if it has no move
+	 */
+	public int getCell(Game g)
+	{
+		return policy.getCell(g);
+	}
+	
 	public char getName()
 	{
 		return name;
@@ -58,9 +71,16 @@ public class Agent {
 	}
 	
 	
-	public Policy loadPolicyFromFile()
+	/**
+	 * Loads a policy written by {@link Policy#save(String)}, and plays according to it from now on.
+	 * @param file
+	 * @return the loaded policy
+	 * @throws IOException if the file can't be read or is not a policy file
+	 */
+	public Policy loadPolicyFromFile(String file) throws IOException
 	{
-		return null;
+		this.policy=new Policy(file);
+		return policy;
 	}
 	
 	
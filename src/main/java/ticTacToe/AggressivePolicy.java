@@ -1,8 +1,7 @@
 package ticTacToe;
 
 
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 /**
  * An agrgessive policy: if there is a winning move given a game state (Game object) then this policy finds it. Otherwise returns a
  * random available move.
@@ -15,28 +14,32 @@ public class AggressivePolicy extends Policy {
 	
 	public Move getMove(Game g) {
 		
+		return Move.of(g.whoseTurn.getName(), getCell(g));
 		
-		List<Move> moves=g.getPossibleMoves();
+	}
+	
+	/**
+	 * The lowest empty cell that completes a line of the player whose turn it is, found on the bitboards; otherwise a random empty
+	 * cell. Allocates nothing.
+	 */
+	@Override
+	public int getCell(Game g) {
+		
+		int mine=g.whoseTurn==g.x?g.position.xBits:g.position.oBits;
+		int empty=g.legalMoveMask();
 		
-		for(Move m:moves)
+		for(int moves=empty;moves!=0;moves&=moves-1)
 		{
-			
-			Game resulting=null;
-			try{
-				resulting=g.simulateMove(m);
-			}
-			catch(IllegalMoveException e)
-			{
-				System.out.println(e.getMessage());
-				e.printStackTrace();
-			}
-			if (resulting.getState()==Game.X_WON||resulting.getState()==Game.O_WON)
-				return m;
+			int move=moves&-moves;
+			if (Game.WINS[mine|move])
+				return Integer.numberOfTrailingZeros(move);
 		}
 		
-		Random r=new Random();
+		//drop a random number of the lowest empty cells, then take the lowest one left
+		for(int skip=ThreadLocalRandom.current().nextInt(Integer.bitCount(empty));skip>0;skip--)
+			empty&=empty-1;
 		
-		return moves.get(r.nextInt(moves.size()));
+		return Integer.numberOfTrailingZeros(empty);
 		
 	}
 
@@ -0,0 +1,114 @@
+package ticTacToe;
+
+/**
+ * A minimax agent: searches the game tree from the current position with {@link AlphaBetaSearch} on every move, instead of
+ * following a policy learned offline. Unlike the value and policy iteration agents, which assume a random opponent, it assumes
+ * the opponent plays as well as it can, and on a 3x3 board it searches to the end of the game, so it plays perfectly and never
+ * loses. It can play X or O.
+ *
+ * It also plays on larger boards, as an {@link MNKPlayer}; there a depth or time limit keeps each move affordable. All moves of
+ * the agent, on any number of threads, share one {@link TranspositionTable} per board size.
+ *
+ * @author ae187
+ *
+ */
+public class AlphaBetaAgent extends Agent implements MNKPlayer {
+
+	/**
+	 * The transposition table size of the default constructor: 2^20 entries, 16 MB
+	 */
+	public static final int TABLE_BITS = 20;
+
+	final int tableBits;
+
+	/**
+	 * The deepest iteration, 0 for no limit
+	 */
+	final int maxDepth;
+
+	/**
+	 * The time limit per move in nanoseconds, 0 for no limit
+	 */
+	final long timeLimitNanos;
+
+	/**
+	 * The tables, created on first use: one for 3x3 boards, and one for the board size the agent last played on otherwise
+	 */
+	private TranspositionTable ticTacToeTable;
+	private TranspositionTable table;
+	private MNKRules tableRules;
+
+	/**
+	 * An agent that searches every position to the end. Use it on small boards.
+	 */
+	public AlphaBetaAgent() {
+		this(0, 0, TABLE_BITS);
+	}
+
+	/**
+	 * @param maxDepth
+	 *            how many moves ahead to search at most, 0 for no limit
+	 * @param timeLimitMillis
+	 *            the time to search per move, 0 for no limit
+	 * @param tableBits
+	 *            the transposition table has 2^tableBits entries
+	 */
+	public AlphaBetaAgent(int maxDepth, long timeLimitMillis, int tableBits) {
+		super(null);
+		if (maxDepth < 0 || timeLimitMillis < 0)
+			throw new IllegalArgumentException("Limits can't be negative");
+		this.maxDepth = maxDepth;
+		this.timeLimitNanos = timeLimitMillis * 1000000;
+		this.tableBits = tableBits;
+	}
+
+	@Override
+	public Move getMove(Game g) {
+		return Move.of(g.whoseTurn.getName(), getCell(g));
+	}
+
+	@Override
+	public int getCell(Game g) {
+		if (g.isTerminal())
+			return -1;
+		return getCell(MNKBoard.of(g.getPosition()));
+	}
+
+	@Override
+	public int getCell(MNKBoard board) {
+		if (board.isTerminal())
+			return -1;
+		return search(board).getBestMove();
+	}
+
+	/**
+	 * Searches {@code board} as {@link #getCell(MNKBoard)} does.
+	 *
+	 * @param board
+	 * @return the finished search, with the best move, its value and the number of nodes searched
+	 */
+	public AlphaBetaSearch search(MNKBoard board) {
+		AlphaBetaSearch search = new AlphaBetaSearch(board.getRules(), table(board.getRules()));
+		search.search(new MNKBoard(board), maxDepth, timeLimitNanos);
+		return search;
+	}
+
+	/**
+	 * @return the shared table for boards with {@code rules}
+	 */
+	synchronized TranspositionTable table(MNKRules rules) {
+		if (rules == MNKRules.TIC_TAC_TOE) {
+			if (ticTacToeTable == null)
+				// the 3x3 game only has 10,956 positions to store
+				ticTacToeTable = new TranspositionTable(Math.min(tableBits, 14));
+			return ticTacToeTable;
+		}
+		// keys differ between board sizes, so entries of another size would only be misses
+		if (tableRules != rules) {
+			table = new TranspositionTable(tableBits);
+			tableRules = rules;
+		}
+		return table;
+	}
+
+}
@@ -0,0 +1,305 @@
+package ticTacToe;
+
+/**
+ * Alpha-beta negamax search on an {@link MNKBoard}, with iterative deepening and a {@link TranspositionTable}.
+ *
+ * Values are from the point of view of the player to move: {@link #WIN} minus the number of moves to the win for a won position,
+ * so that quicker wins are preferred, the negation for a lost one, 0 for a draw. Where the search has to stop before the end of the
+ * game, on boards too large to search to the end, the position is scored by {@link #evaluate(MNKBoard)}, which counts the lines
+ * each side can still complete.
+ *
+ * Each iteration searches one move deeper than the last, until a depth limit, a time limit, or until the value is exact: every
+ * line has been searched to the end, or a win has been proven. Moves are tried best first: the best move stored in the
+ * transposition table, then the moves that caused cutoffs most often so far (the history heuristic), then the ones nearest the
+ * centre. On a 3x3 board the search always runs to the end, so its value and move are those of perfect play.
+ *
+ * A search object is not thread safe, but any number of them can share one transposition table.
+ *
+ * @author ae187
+ *
+ */
+public class AlphaBetaSearch {
+
+	/**
+	 * The value of winning at once
+	 */
+	public static final int WIN = 30000;
+
+	/**
+	 * Values beyond +-MATE are proven wins and losses; {@link #evaluate} stays well inside.
+	 */
+	static final int MATE = WIN - 10000;
+
+	static final int INFINITY = WIN + 1;
+
+	/**
+	 * How many nodes are searched between two looks at the clock
+	 */
+	static final int CLOCK_EVERY = 4096;
+
+	final MNKRules rules;
+
+	/**
+	 * Null if the search should not use one
+	 */
+	final TranspositionTable table;
+
+	/**
+	 * moves[ply] and scores[ply] are the moves at that distance from the root and their ordering scores
+	 */
+	final int[][] moves;
+	final int[][] scores;
+
+	/**
+	 * history[c] grows whenever a move to cell c causes a cutoff
+	 */
+	final int[] history;
+
+	/**
+	 * centre[c] is higher the nearer cell c is to the centre
+	 */
+	final int[] centre;
+
+	long nodes;
+	long deadline;
+	boolean stopped;
+	int rootMove;
+
+	int bestMove = -1;
+	int value;
+	int depth;
+	boolean exact;
+
+	/**
+	 * @param rules
+	 *            the boards to search
+	 * @param table
+	 *            the transposition table, possibly shared with other searches; or null to search without one
+	 */
+	public AlphaBetaSearch(MNKRules rules, TranspositionTable table) {
+		if (rules.cells() > 10000)
+			throw new IllegalArgumentException("Board too large to search: " + rules);
+		this.rules = rules;
+		this.table = table;
+		int cells = rules.cells();
+		moves = new int[cells][cells];
+		scores = new int[cells][cells];
+		history = new int[cells];
+		centre = new int[cells];
+		for (int c = 0; c < cells; c++) {
+			// twice the distance, so that it is an integer for boards with an even side too
+			int dRow = Math.abs(2 * (c / rules.n) - (rules.m - 1));
+			int dCol = Math.abs(2 * (c % rules.n) - (rules.n - 1));
+			centre[c] = -Math.max(dRow, dCol);
+		}
+	}
+
+	/**
+	 * Searches {@code board} by iterative deepening. The board is left as it was.
+	 *
+	 * @param board
+	 *            a board with the rules of this search, where the game is not over
+	 * @param maxDepth
+	 *            the deepest iteration, in moves; 0 for no limit
+	 * @param timeLimitNanos
+	 *            the time the search may take, 0 for no limit. The iteration running out of time is abandoned, and the result is
+	 *            the one of the last iteration that finished, or if none did, the best move found so far.
+	 * @return the best move found, see also {@link #getValue()}, {@link #getDepth()} and {@link #isExact()}
+	 */
+	public int search(MNKBoard board, int maxDepth, long timeLimitNanos) {
+		if (board.getRules() != rules)
+			throw new IllegalArgumentException("Expected a " + rules + " board, got " + board.getRules());
+		if (board.isTerminal())
+			throw new IllegalArgumentException("The game is over:" + board);
+
+		nodes = 0;
+		stopped = false;
+		deadline = timeLimitNanos > 0 ? System.nanoTime() + timeLimitNanos : Long.MAX_VALUE;
+		bestMove = -1;
+		value = 0;
+		depth = 0;
+		exact = false;
+
+		int empty = board.legalMoveCount();
+		int limit = Math.min(maxDepth > 0 ? maxDepth : empty, Math.min(empty, 255));
+		for (int d = 1; d <= limit; d++) {
+			rootMove = -1;
+			int v = negamax(board, d, -INFINITY, INFINITY, 0);
+			if (stopped) {
+				if (bestMove < 0)
+					bestMove = rootMove;
+				break;
+			}
+			bestMove = rootMove;
+			value = v;
+			depth = d;
+			if (d == empty || Math.abs(v) > MATE) {
+				exact = true;
+				break;
+			}
+		}
+		if (bestMove < 0)
+			bestMove = board.legalMove(0);
+		return bestMove;
+	}
+
+	int negamax(MNKBoard board, int depth, int alpha, int beta, int ply) {
+		nodes++;
+		if ((nodes & (CLOCK_EVERY - 1)) == 0 && System.nanoTime() > deadline)
+			stopped = true;
+		if (stopped)
+			return 0;
+
+		// the player who just moved won or drew
+		if (board.getState() == Game.DRAW)
+			return 0;
+		if (board.isTerminal())
+			return -(WIN - ply);
+		if (depth == 0)
+			return evaluate(board);
+
+		int alphaBefore = alpha;
+		int ttMove = -1;
+		long key = board.key();
+		if (table != null) {
+			long entry = table.probe(key);
+			if (entry != TranspositionTable.MISS) {
+				ttMove = TranspositionTable.move(entry);
+				if (TranspositionTable.depth(entry) >= depth && ply > 0) {
+					int v = fromTable(TranspositionTable.value(entry), ply);
+					int flag = TranspositionTable.flag(entry);
+					if (flag == TranspositionTable.EXACT)
+						return v;
+					if (flag == TranspositionTable.LOWER)
+						alpha = Math.max(alpha, v);
+					else
+						beta = Math.min(beta, v);
+					if (alpha >= beta)
+						return v;
+				}
+			}
+		}
+
+		int[] ms = moves[ply];
+		int[] ss = scores[ply];
+		int count = board.legalMoves(ms);
+		for (int i = 0; i < count; i++)
+			ss[i] = ms[i] == ttMove ? Integer.MAX_VALUE : history[ms[i]] * 16 + centre[ms[i]];
+
+		int best = -INFINITY;
+		int bestCell = -1;
+		for (int i = 0; i < count; i++) {
+			// selection sort as we go: a cutoff usually comes after a few moves
+			int pick = i;
+			for (int j = i + 1; j < count; j++)
+				if (ss[j] > ss[pick])
+					pick = j;
+			int cell = ms[pick];
+			ms[pick] = ms[i];
+			ss[pick] = ss[i];
+			ms[i] = cell;
+
+			board.tryPlay(cell);
+			int v = -negamax(board, depth - 1, -beta, -alpha, ply + 1);
+			board.undo();
+			if (stopped)
+				return 0;
+
+			if (v > best) {
+				best = v;
+				bestCell = cell;
+				if (ply == 0)
+					rootMove = cell;
+			}
+			if (v > alpha)
+				alpha = v;
+			if (alpha >= beta) {
+				history[cell] += depth * depth;
+				break;
+			}
+		}
+
+		if (table != null) {
+			int flag = best <= alphaBefore ? TranspositionTable.UPPER
+					: best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			table.store(key, depth, flag, toTable(best, ply), bestCell);
+		}
+		return best;
+	}
+
+	/**
+	 * Wins and losses are stored as distances from the position rather than from the root, so that they stay right when the
+	 * position is found again at another ply
+	 */
+	static int toTable(int v, int ply) {
+		return v > MATE ? v + ply : v < -MATE ? v - ply : v;
+	}
+
+	static int fromTable(int v, int ply) {
+		return v > MATE ? v - ply : v < -MATE ? v + ply : v;
+	}
+
+	/**
+	 * The static value of a position for the player to move: for every line that only one player has pieces in, the square of
+	 * the number of pieces, counted for that player and against the other.
+	 *
+	 * @param board
+	 * @return a value between -{@link #MATE}/2 and {@link #MATE}/2
+	 */
+	int evaluate(MNKBoard board) {
+		long[] mine = board.xToMove ? board.xBits : board.oBits;
+		long[] theirs = board.xToMove ? board.oBits : board.xBits;
+		int words = rules.words;
+		long[] lines = rules.lines;
+		int score = 0;
+		for (int l = 0; l < rules.lineCount; l++) {
+			int me = 0, them = 0;
+			for (int w = 0; w < words; w++) {
+				long line = lines[l * words + w];
+				me += Long.bitCount(mine[w] & line);
+				them += Long.bitCount(theirs[w] & line);
+			}
+			if (them == 0)
+				score += me * me;
+			else if (me == 0)
+				score -= them * them;
+		}
+		return Math.max(-MATE / 2, Math.min(MATE / 2, score));
+	}
+
+	/**
+	 * @return the best move of the last {@link #search}
+	 */
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * @return the value of the last search's last finished iteration, for the player to move
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the depth of the last search's last finished iteration
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return true if the value of the last search is exact: the game was searched to the end, or a win or loss proven
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	/**
+	 * @return the number of positions the last search visited
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+}
@@ -0,0 +1,72 @@
+package ticTacToe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link QTable} that many threads can read and update at once without locks, for Hogwild-style parallel Q-learning (see
+ * {@link QLearningAgent#setThreads}). Each Q-value is stored as the bits of a double ({@link Double#doubleToRawLongBits}) in an
+ * {@link AtomicLongArray}, at the same position {@code [9*id+cell]} as in a plain QTable.
+ * 
+ * {@link #update} is a compare-and-set loop, so no concurrent update is ever lost. Nothing else is synchronized: a thread that reads
+ * a whole row for {@link #argmax} may see some values before and some after another thread's update, which Hogwild training
+ * tolerates. The legal moves are only written by {@link #initLegalMoves()} and {@link #addQValue}, which must not run concurrently
+ * with training.
+ * 
+ * @author ae187
+ *
+ */
+public class AtomicQTable extends QTable {
+
+	final AtomicLongArray bits;
+
+	/**
+	 * A table with one row per state in {@code states}, with all Q-values 0 and no legal moves yet.
+	 * @param states
+	 */
+	public AtomicQTable(StateIndex states)
+	{
+		super(states, null);
+		//the bits of 0.0 are 0, so a fresh array holds all zeros
+		this.bits=new AtomicLongArray(9*states.size());
+	}
+
+	/**
+	 * A copy of {@code table}, with the same index, Q-values and legal moves.
+	 * @param table
+	 */
+	public AtomicQTable(QTable table)
+	{
+		this(table.states);
+		System.arraycopy(table.legal, 0, legal, 0, legal.length);
+		for (int id=0;id<size();id++)
+			for (int cell=0;cell<9;cell++)
+				set(id, cell, table.get(id, cell));
+	}
+
+	@Override
+	public double get(int id, int cell)
+	{
+		return Double.longBitsToDouble(bits.get(9*id+cell));
+	}
+
+	@Override
+	public void set(int id, int cell, double v)
+	{
+		bits.set(9*id+cell, Double.doubleToRawLongBits(v));
+	}
+
+	/**
+	 * Atomically moves the Q-value towards {@code sample}, retrying if another thread changed it in the meantime.
+	 */
+	@Override
+	public void update(int id, int cell, double alpha, double sample)
+	{
+		int i=9*id+cell;
+		long old, updated;
+		do {
+			old=bits.get(i);
+			updated=Double.doubleToRawLongBits((1-alpha)*Double.longBitsToDouble(old)+alpha*sample);
+		} while (!bits.compareAndSet(i, old, updated));
+	}
+
+}
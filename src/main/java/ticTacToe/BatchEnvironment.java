@@ -0,0 +1,384 @@
+package ticTacToe;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A {@link TTTEnvironment} for many games at once: K boards that are all stepped by one call to {@link #step(int[])}, for training
+ * and evaluation runs where driving one {@link Game} object at a time is mostly object overhead. As in TTTEnvironment, the agent
+ * plays X and moves first, and every X move is followed by the opponent's reply, which here is always a random empty cell (like a
+ * {@link RandomAgent}'s). A board whose game ends is reset by the same step, so between steps every board has X to move.
+ * 
+ * The boards are stored as arrays rather than objects: a 9-bit mask of X's cells and one of O's cells per board, plus the incremental
+ * {@link Game#hashCode() hash}. The same pieces are also stored bit-sliced, as 9 bit planes per player with one bit per board, so
+ * that the win and draw checks after each half-move look at 64 boards per long: three ANDs per line, for 64 boards at once.
+ * 
+ * After a step, {@link #reward}, {@link #outcome}, {@link #nextHash} and {@link #nextId} hold, per board, what the step led to (like
+ * an {@link Outcome}, but before the reset of finished boards), while {@link #hash(int)} and {@link #id(int)} give the state the
+ * next step starts from.
+ * 
+ * @author ae187
+ *
+ */
+public class BatchEnvironment {
+
+	double winReward = 10.0;
+	double loseReward = -50.0;
+	double livingReward = -1.00;
+	double drawReward = 0.0;
+
+	/**
+	 * The index {@link #id(int)} and {@link #nextId} are in. Null if ids are not wanted.
+	 */
+	final StateIndex states;
+
+	final int size;
+
+	/**
+	 * The number of 64-board blocks of the bit planes
+	 */
+	final int blocks;
+
+	/**
+	 * The cells of X and O on each board, 3*x+y, one bit per cell, like {@link GameState#getXBits()} and {@link GameState#getOBits()}.
+	 */
+	final short[] xs, os;
+
+	/**
+	 * The bit planes: bit b%64 of {@code xPlane[cell*blocks + b/64]} is set if X is on {@code cell} of board b. Same for O.
+	 */
+	final long[] xPlane, oPlane;
+
+	/**
+	 * The board part of the hash of each board, i.e. without the whose-turn digit.
+	 */
+	final int[] boardHash;
+
+	/**
+	 * The reward each board got in the last step
+	 */
+	public final double[] reward;
+
+	/**
+	 * The {@link Game#getState() state} each board was in after the last step: {@link Game#ONGOING}, {@link Game#X_WON},
+	 * {@link Game#O_WON} or {@link Game#DRAW}.
+	 */
+	public final byte[] outcome;
+
+	/**
+	 * The hash and id of the state each board was in after the last step, including terminal states. nextId is -1 if the state is
+	 * not in the index, or if there is no index.
+	 */
+	public final int[] nextHash, nextId;
+
+	SplittableRandom random;
+
+	/**
+	 * NTH_CELL[9*mask+n] is the n-th lowest cell set in mask, for picking a random empty cell with one lookup.
+	 */
+	static final byte[] NTH_CELL = new byte[9 * 512];
+
+	static {
+		for (int mask = 0; mask < 512; mask++) {
+			int n = 0;
+			for (int cell = 0; cell < 9; cell++)
+				if ((mask & (1 << cell)) != 0)
+					NTH_CELL[9 * mask + n++] = (byte) cell;
+		}
+	}
+
+	long episodes;
+
+	/**
+	 * {@code size} boards with empty boards, without state ids.
+	 * 
+	 * @param size
+	 */
+	public BatchEnvironment(int size) {
+		this(size, null);
+	}
+
+	/**
+	 * {@code size} empty boards, reporting state ids in {@code states}.
+	 * 
+	 * @param size
+	 * @param states
+	 *            e.g. {@link StateIndex#forPlayer(char) StateIndex.forPlayer('X')}, or null if ids are not wanted
+	 */
+	public BatchEnvironment(int size, StateIndex states) {
+		if (size < 1)
+			throw new IllegalArgumentException("Need at least one board, got " + size);
+		this.size = size;
+		this.states = states;
+		this.blocks = (size + 63) >>> 6;
+		xs = new short[size];
+		os = new short[size];
+		xPlane = new long[9 * blocks];
+		oPlane = new long[9 * blocks];
+		boardHash = new int[size];
+		reward = new double[size];
+		outcome = new byte[size];
+		nextHash = new int[size];
+		nextId = new int[size];
+		random = new SplittableRandom();
+	}
+
+	/**
+	 * Uses the rewards of {@code env}.
+	 * 
+	 * @param env
+	 */
+	public void setRewards(TTTEnvironment env) {
+		this.winReward = env.winReward;
+		this.loseReward = env.loseReward;
+		this.livingReward = env.livingReward;
+		this.drawReward = env.drawReward;
+	}
+
+	/**
+	 * Empties all boards and zeroes the episode count.
+	 */
+	public void reset() {
+		Arrays.fill(xs, (short) 0);
+		Arrays.fill(os, (short) 0);
+		Arrays.fill(xPlane, 0);
+		Arrays.fill(oPlane, 0);
+		Arrays.fill(boardHash, 0);
+		episodes = 0;
+	}
+
+	/**
+	 * @return the number of boards
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of games that have ended since the last {@link #reset()}
+	 */
+	public long getEpisodes() {
+		return episodes;
+	}
+
+	/**
+	 * @param b
+	 * @return the empty cells of board b, i.e. X's legal moves
+	 */
+	public int legalMask(int b) {
+		return ~(xs[b] | os[b]) & Game.FULL;
+	}
+
+	/**
+	 * @param b
+	 * @return the {@link Game#hashCode() hash} of the state board b is in, with X to move
+	 */
+	public int hash(int b) {
+		return boardHash[b] + 1;
+	}
+
+	/**
+	 * @param b
+	 * @return the id of the state board b is in, or -1 if it is not in the index or there is no index
+	 */
+	public int id(int b) {
+		return states == null ? -1 : states.idOfHash(boardHash[b] + 1);
+	}
+
+	/**
+	 * @param b
+	 * @return true if board b's game ended in the last step. The board itself has already been reset.
+	 */
+	public boolean isTerminal(int b) {
+		return outcome[b] != Game.ONGOING;
+	}
+
+	/**
+	 * Plays X's move {@code actions[b]} on every board b, then a random reply by O on every board whose game is not over, and
+	 * records the rewards and outcomes. Boards whose game ended are reset.
+	 * 
+	 * @param actions
+	 *            one cell (3*x+y) per board
+	 * @throws IllegalMoveException
+	 *             if some action is not an empty cell of its board; then no board is changed
+	 */
+	public void step(int[] actions) throws IllegalMoveException {
+		int illegal = tryStep(actions);
+		if (illegal >= 0)
+			throw new IllegalMoveException("Illegal move on board " + illegal + ": cell " + actions[illegal]);
+	}
+
+	/**
+	 * Like {@link #step(int[])}, but signals an illegal action by returning its board instead of throwing.
+	 * 
+	 * @param actions
+	 *            one cell (3*x+y) per board
+	 * @return -1 if every board was stepped, otherwise the first board whose action is not an empty cell; then no board is changed
+	 */
+	public int tryStep(int[] actions) {
+		if (actions.length < size)
+			throw new IllegalArgumentException("Expected one action per board: " + size + ", got " + actions.length);
+		for (int b = 0; b < size; b++) {
+			int cell = actions[b];
+			if (cell < 0 || cell > 8 || (legalMask(b) & (1 << cell)) == 0)
+				return b;
+		}
+
+		for (int w = 0; w < blocks; w++) {
+			int first = w << 6;
+			int last = Math.min(size, first + 64);
+
+			for (int b = first; b < last; b++) {
+				int cell = actions[b];
+				xs[b] |= 1 << cell;
+				xPlane[cell * blocks + w] |= 1L << (b - first);
+				boardHash[b] += Game.CELL_WEIGHTS[cell];
+			}
+
+			// X can only win or fill the board with its own move
+			long xWon = wins(xPlane, w);
+			long draw = full(w) & ~xWon;
+			long over = xWon | draw;
+
+			for (int b = first; b < last; b++) {
+				if ((over & (1L << (b - first))) != 0)
+					continue;
+				int empty = legalMask(b);
+				int cell = NTH_CELL[9 * empty + random.nextInt(Integer.bitCount(empty))];
+				os[b] |= 1 << cell;
+				oPlane[cell * blocks + w] |= 1L << (b - first);
+				boardHash[b] += 2 * Game.CELL_WEIGHTS[cell];
+			}
+
+			long oWon = wins(oPlane, w) & ~over;
+			draw |= full(w) & ~over & ~oWon;
+			over |= oWon | draw;
+
+			for (int b = first; b < last; b++) {
+				long bit = 1L << (b - first);
+				int state;
+				double r;
+				int turn;
+				if ((xWon & bit) != 0) {
+					state = Game.X_WON;
+					r = winReward;
+					turn = 2;
+				} else if ((oWon & bit) != 0) {
+					state = Game.O_WON;
+					r = loseReward;
+					turn = 1;
+				} else if ((draw & bit) != 0) {
+					state = Game.DRAW;
+					r = drawReward;
+					// a draw by X's move leaves O to move; a board is filled by X's move if X has 5 pieces
+					turn = Integer.bitCount(xs[b]) == 5 ? 2 : 1;
+				} else {
+					state = Game.ONGOING;
+					r = livingReward;
+					turn = 1;
+				}
+				outcome[b] = (byte) state;
+				reward[b] = r;
+				int h = boardHash[b] + turn;
+				nextHash[b] = h;
+				nextId[b] = states == null ? -1 : states.idOfHash(h);
+			}
+
+			if (over != 0)
+				resetBlock(w, over);
+		}
+		return -1;
+	}
+
+	/**
+	 * Empties the boards of block {@code w} that have a bit set in {@code boards}.
+	 */
+	void resetBlock(int w, long boards) {
+		for (int cell = 0; cell < 9; cell++) {
+			xPlane[cell * blocks + w] &= ~boards;
+			oPlane[cell * blocks + w] &= ~boards;
+		}
+		for (long m = boards; m != 0; m &= m - 1) {
+			int b = (w << 6) + Long.numberOfTrailingZeros(m);
+			xs[b] = 0;
+			os[b] = 0;
+			boardHash[b] = 0;
+			episodes++;
+		}
+	}
+
+	/**
+	 * @return one bit per board of block {@code w}, set if the player with these bit planes has three in a line
+	 */
+	long wins(long[] plane, int w) {
+		int n = blocks;
+		long c0 = plane[w], c1 = plane[n + w], c2 = plane[2 * n + w];
+		long c3 = plane[3 * n + w], c4 = plane[4 * n + w], c5 = plane[5 * n + w];
+		long c6 = plane[6 * n + w], c7 = plane[7 * n + w], c8 = plane[8 * n + w];
+		// the 8 lines of Game.WIN_MASKS
+		return (c0 & c1 & c2) | (c3 & c4 & c5) | (c6 & c7 & c8) | (c0 & c3 & c6) | (c1 & c4 & c7) | (c2 & c5 & c8)
+				| (c0 & c4 & c8) | (c2 & c4 & c6);
+	}
+
+	/**
+	 * @return one bit per board of block {@code w}, set if the board has no empty cell
+	 */
+	long full(int w) {
+		long full = -1L;
+		for (int cell = 0; cell < 9; cell++)
+			full &= xPlane[cell * blocks + w] | oPlane[cell * blocks + w];
+		return full;
+	}
+
+	/**
+	 * Plays {@code games} games of {@code policy} as X against random replies, on all boards at once, and counts how they ended.
+	 * Resets the boards first.
+	 * 
+	 * Every board plays its own share of the games, {@code games/size} or one more, and counts them from its first game on. A board
+	 * that has played its share goes on stepping, uncounted, until every board has played its share. Counting the first
+	 * {@code games} games to end on any board instead would count the short games of the first steps more often than the long ones,
+	 * and so over-represent, e.g., quick wins.
+	 * 
+	 * @param policy
+	 *            a policy backed by a {@link StateIndex}, such as the ones the value iteration, policy iteration and Q-learning agents
+	 *            extract
+	 * @param games
+	 * @return the number of games that ended in each state, indexed by {@link Game#X_WON}, {@link Game#O_WON} and {@link Game#DRAW}
+	 */
+	public int[] play(Policy policy, int games) {
+		if (!policy.isIndexed())
+			throw new IllegalArgumentException("Batch play needs a policy backed by a StateIndex");
+		if (games < 0)
+			throw new IllegalArgumentException("Cannot play " + games + " games");
+
+		reset();
+		int[] result = new int[4];
+		int[] actions = new int[size];
+		int[] left = new int[size];
+		int playing = 0;
+		for (int b = 0; b < size; b++) {
+			left[b] = games / size + (b < games % size ? 1 : 0);
+			if (left[b] > 0)
+				playing++;
+		}
+		while (playing > 0) {
+			for (int b = 0; b < size; b++) {
+				int cell = policy.cellOfHash(hash(b));
+				if (cell < 0)
+					throw new IllegalStateException("Policy has no move for:" + Game.inverseHash(hash(b)));
+				actions[b] = cell;
+			}
+			int illegal = tryStep(actions);
+			if (illegal >= 0)
+				throw new IllegalStateException("Policy plays an illegal move in:" + Game.inverseHash(hash(illegal)));
+			for (int b = 0; b < size; b++)
+				if (outcome[b] != Game.ONGOING && left[b] > 0) {
+					result[outcome[b]]++;
+					if (--left[b] == 0)
+						playing--;
+				}
+		}
+		return result;
+	}
+
+}
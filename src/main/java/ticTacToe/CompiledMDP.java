@@ -0,0 +1,321 @@
+package ticTacToe;
+
+import java.util.Arrays;
+
+/**
+ * A {@link TTTMDP} compiled once into flat primitive arrays over the ids of a {@link StateIndex}, so that Bellman backups never
+ * have to generate {@link TransitionProb}s, clone games or look anything up in a map.
+ *
+ * The layout is compressed sparse rows, two levels deep:
+ * <ul>
+ * <li>the actions of state s are {@code actionStart[s]} to {@code actionStart[s+1]-1}; action a plays cell {@code actionCell[a]}
+ * (3*x+y). Terminal states have no actions.</li>
+ * <li>the transitions of action a are {@code transStart[a]} to {@code transStart[a+1]-1}; transition t leads to state
+ * {@code target[t]} with probability {@code prob[t]} and reward {@code reward[t]}.</li>
+ * </ul>
+ * Actions are stored in the order of {@link Game#getPossibleMoves()}, and transitions in the order of
+ * {@link TTTMDP#generateTransitions}. The model is built straight from the {@link GameState}s of the index, without building any
+ * games or transition objects.
+ *
+ * @author ae187
+ *
+ */
+public class CompiledMDP {
+
+	public final StateIndex states;
+
+	/**
+	 * The rewards of the {@link TTTMDP} this was compiled from.
+	 */
+	public final double winReward, loseReward, livingReward, drawReward;
+
+	public final int[] actionStart;
+	public final byte[] actionCell;
+
+	public final int[] transStart;
+	public final int[] target;
+	public final double[] prob;
+	public final double[] reward;
+
+	/**
+	 * Compiles {@code mdp} over {@code states}. Every state reachable by a transition has to be in {@code states}. The rewards are
+	 * copied, so later changes to the reward fields of {@code mdp} are not reflected here.
+	 *
+	 * @param mdp
+	 * @param states
+	 */
+	public CompiledMDP(TTTMDP mdp, StateIndex states) {
+		this.states = states;
+		this.winReward = mdp.winReward;
+		this.loseReward = mdp.loseReward;
+		this.livingReward = mdp.livingReward;
+		this.drawReward = mdp.drawReward;
+		int n = states.size();
+
+		actionStart = new int[n + 1];
+		// at most 9 actions per state, and at most 8 opponent replies per action
+		byte[] cells = new byte[n * 9];
+		int[] tStart = new int[n * 9 + 1];
+		int[] targets = new int[n * 9 * 8];
+		double[] probs = new double[targets.length];
+		double[] rewards = new double[targets.length];
+
+		int a = 0;
+		int t = 0;
+		for (int s = 0; s < n; s++) {
+			actionStart[s] = a;
+			GameState g = states.position(s);
+			if (g.isTerminal())
+				continue;
+			if (!g.isXToMove())
+				throw new IllegalStateException("The agent has to play X, but it is O's turn in:" + g);
+
+			for (int moves = g.legalMoveMask(); moves != 0; moves &= moves - 1) {
+				int cell = Integer.numberOfTrailingZeros(moves);
+				cells[a] = (byte) cell;
+				tStart[a] = t;
+				// as in TTTMDP.generateTransitions: X's move, then if the game goes on, each reply of O with equal probability
+				GameState intermediate = g.move(cell);
+				int replies = intermediate.legalMoveMask();
+				if (replies == 0) {
+					t = addTransition(states, intermediate, 1.0, mdp.reward(intermediate), targets, probs, rewards, t);
+				} else {
+					double p = 1.0 / Integer.bitCount(replies);
+					for (; replies != 0; replies &= replies - 1) {
+						GameState next = intermediate.move(Integer.numberOfTrailingZeros(replies));
+						t = addTransition(states, next, p, mdp.reward(next), targets, probs, rewards, t);
+					}
+				}
+				a++;
+			}
+		}
+		actionStart[n] = a;
+		tStart[a] = t;
+
+		actionCell = Arrays.copyOf(cells, a);
+		transStart = Arrays.copyOf(tStart, a + 1);
+		target = Arrays.copyOf(targets, t);
+		prob = Arrays.copyOf(probs, t);
+		reward = Arrays.copyOf(rewards, t);
+	}
+
+	/**
+	 * Stores transition {@code t} to {@code next}.
+	 *
+	 * @return t+1
+	 */
+	private static int addTransition(StateIndex states, GameState next, double p, double r, int[] targets, double[] probs,
+			double[] rewards, int t) {
+		int id = states.id(next);
+		if (id < 0)
+			throw new IllegalStateException("Successor state is not in the state index:" + next);
+		targets[t] = id;
+		probs[t] = p;
+		rewards[t] = r;
+		return t + 1;
+	}
+
+	/**
+	 * @return the number of states
+	 */
+	public int stateCount() {
+		return states.size();
+	}
+
+	/**
+	 * @return the total number of (state, action) pairs
+	 */
+	public int actionCount() {
+		return actionCell.length;
+	}
+
+	/**
+	 * @return the total number of transitions
+	 */
+	public int transitionCount() {
+		return target.length;
+	}
+
+	/**
+	 * @param s
+	 * @return true if state {@code s} has no actions, i.e. it is terminal.
+	 */
+	public boolean isTerminal(int s) {
+		return actionStart[s] == actionStart[s + 1];
+	}
+
+	/**
+	 * @param s
+	 * @param cell
+	 * @return the action of state {@code s} that plays {@code cell}, or -1 if there is none.
+	 */
+	public int action(int s, int cell) {
+		for (int a = actionStart[s]; a < actionStart[s + 1]; a++)
+			if (actionCell[a] == cell)
+				return a;
+		return -1;
+	}
+
+	/**
+	 * The expected discounted return of taking action {@code a} and then following {@code values}: the sum over its transitions
+	 * of prob*(reward + discount*values[target]).
+	 *
+	 * @param a
+	 * @param values
+	 * @param discount
+	 * @return Q(s,a) with respect to {@code values}
+	 */
+	public double qValue(int a, double[] values, double discount) {
+		double q = 0;
+		for (int t = transStart[a]; t < transStart[a + 1]; t++)
+			q += prob[t] * (reward[t] + discount * values[target[t]]);
+		return q;
+	}
+
+	/**
+	 * A Bellman backup of state {@code s}: the max over its actions of {@link #qValue}. Terminal states have value 0.
+	 *
+	 * @param s
+	 * @param values
+	 * @param discount
+	 * @return the backed up value of {@code s}
+	 */
+	public double backup(int s, double[] values, double discount) {
+		int end = actionStart[s + 1];
+		if (actionStart[s] == end)
+			return 0.0;
+
+		double max = Double.NEGATIVE_INFINITY;
+		for (int a = actionStart[s]; a < end; a++) {
+			double q = qValue(a, values, discount);
+			if (q > max)
+				max = q;
+		}
+		return max;
+	}
+
+	/**
+	 * @param s
+	 * @param values
+	 * @param discount
+	 * @return the first action of {@code s} with the highest {@link #qValue}, or -1 if {@code s} is terminal.
+	 */
+	public int bestAction(int s, double[] values, double discount) {
+		double max = Double.NEGATIVE_INFINITY;
+		int best = -1;
+		for (int a = actionStart[s]; a < actionStart[s + 1]; a++) {
+			double q = qValue(a, values, discount);
+			if (q > max) {
+				max = q;
+				best = a;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * See {@link #topologicalOrder()}
+	 */
+	private int[] order;
+
+	/**
+	 * The states ordered by decreasing number of pieces on the board, built the first time it is asked for. Pieces are never
+	 * removed, so every transition goes to a state with more pieces, and the transition graph is acyclic: backing states up in this
+	 * order means the values of all successors of a state are final by the time it is backed up.
+	 *
+	 * @return the state ids, successors before predecessors
+	 * @throws IllegalStateException
+	 *             if some transition does not add pieces, i.e. the order would not be topological
+	 */
+	public synchronized int[] topologicalOrder() {
+		if (order != null)
+			return order;
+
+		int n = stateCount();
+		int[] pieces = new int[n];
+		int[] count = new int[11];
+		for (int s = 0; s < n; s++) {
+			GameState g = states.position(s);
+			pieces[s] = Integer.bitCount(g.xBits | g.oBits);
+			count[9 - pieces[s] + 1]++;
+		}
+		for (int s = 0; s < n; s++)
+			for (int t = transStart[actionStart[s]]; t < transStart[actionStart[s + 1]]; t++)
+				if (pieces[target[t]] <= pieces[s])
+					throw new IllegalStateException("Transition from " + states.position(s) + " does not add pieces");
+
+		// counting sort by 9-pieces
+		for (int i = 0; i < 10; i++)
+			count[i + 1] += count[i];
+		int[] o = new int[n];
+		for (int s = 0; s < n; s++)
+			o[count[9 - pieces[s]]++] = s;
+
+		order = o;
+		return order;
+	}
+
+	/**
+	 * The reverse of the transition graph, built by {@link #predecessors()}: the states with an action that can lead to state s are
+	 * {@code pred[predStart[s]]} to {@code pred[predStart[s+1]-1]}.
+	 */
+	private int[] predStart, pred;
+
+	/**
+	 * @return the offsets into {@link #predecessors()}: the predecessors of s start at index {@code [s]} and end before
+	 *         {@code [s+1]}.
+	 */
+	public int[] predecessorStarts() {
+		predecessors();
+		return predStart;
+	}
+
+	/**
+	 * Builds the reverse transition graph the first time it is asked for. Each predecessor is listed once per state, however many of
+	 * its transitions lead there.
+	 *
+	 * @return the predecessors of all states, grouped by state, see {@link #predecessorStarts()}
+	 */
+	public synchronized int[] predecessors() {
+		if (pred != null)
+			return pred;
+
+		int n = stateCount();
+		int[] count = new int[n + 1];
+		int[] last = new int[n];
+		Arrays.fill(last, -1);
+		// count distinct (predecessor, state) pairs; the transitions of a state are contiguous, so remembering the last
+		// predecessor seen per target is enough to skip duplicates
+		for (int s = 0; s < n; s++)
+			for (int t = transStart[actionStart[s]]; t < transStart[actionStart[s + 1]]; t++)
+				if (last[target[t]] != s) {
+					last[target[t]] = s;
+					count[target[t] + 1]++;
+				}
+		for (int s = 0; s < n; s++)
+			count[s + 1] += count[s];
+
+		int[] p = new int[count[n]];
+		int[] next = Arrays.copyOf(count, n);
+		Arrays.fill(last, -1);
+		for (int s = 0; s < n; s++)
+			for (int t = transStart[actionStart[s]]; t < transStart[actionStart[s + 1]]; t++)
+				if (last[target[t]] != s) {
+					last[target[t]] = s;
+					p[next[target[t]]++] = s;
+				}
+
+		predStart = count;
+		pred = p;
+		return pred;
+	}
+
+	/**
+	 * @return the approximate size of the compiled arrays in bytes, excluding the state index.
+	 */
+	public long memoryBytes() {
+		return 4L * actionStart.length + actionCell.length + 4L * transStart.length + 4L * target.length + 8L * prob.length
+				+ 8L * reward.length;
+	}
+
+}
@@ -1,8 +1,7 @@
 package ticTacToe;
 
 
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 /**
  * A defensive policy: if there is a move to block the opponent's X's or O's in a row, this policy finds it and returns it. Otherwise
  * returns random move.
@@ -13,28 +12,32 @@ public class DefensivePolicy extends Policy {
 	
 public Move getMove(Game g) {
 		
+		return Move.of(g.whoseTurn.getName(), getCell(g));
 		
-		List<Move> moves=g.getPossibleMovesByOpponent();
+	}
+
+	/**
+	 * The lowest empty cell where the opponent would complete a line, found on the bitboards; otherwise a random empty cell.
+	 * Allocates nothing.
+	 */
+	@Override
+	public int getCell(Game g) {
+		
+		int theirs=g.whoseTurn==g.x?g.position.oBits:g.position.xBits;
+		int empty=g.legalMoveMask();
 		
-		for(Move m: moves)
+		for(int moves=empty;moves!=0;moves&=moves-1)
 		{
-			Game resulting=g.clone();
-			resulting.getBoard()[m.x][m.y]=m.who.getName();
-			resulting.evaluateGameState();
-			if (resulting.getState()==Game.X_WON||resulting.getState()==Game.O_WON)
-			{
-				Move newMove=new Move(m.who.getName()=='X'?'O':'X', m.x,m.y);
-				System.out.println("Playing defensive move");
-				return newMove;
-			}
+			int move=moves&-moves;
+			if (Game.WINS[theirs|move])
+				return Integer.numberOfTrailingZeros(move);
 		}
 		
-		Random r=new Random();
-		System.out.println("Playing random move");
-		Move randomMove=moves.get(r.nextInt(moves.size()));
-		Move myMove=new Move(randomMove.who.getName()=='X'?'O':'X', randomMove.x,randomMove.y);
+		//drop a random number of the lowest empty cells, then take the lowest one left
+		for(int skip=ThreadLocalRandom.current().nextInt(Integer.bitCount(empty));skip>0;skip--)
+			empty&=empty-1;
 		
-		return myMove;
+		return Integer.numberOfTrailingZeros(empty);
 		
 	}
 
@@ -11,6 +11,10 @@ import java.util.List;
  * functionality for playing out a game between two agents, various other useful
  * methods.
  * 
+ * The position itself is an immutable {@link GameState}; a Game is the mutable
+ * driver around it that knows the two agents and whose turn it is, and that
+ * replaces its state with the next one on every move.
+ * 
  * 
  * 
  * 
@@ -30,13 +34,49 @@ public class Game {
 	public static final int ONGOING = 0;
 
 	/**
-	 * this integer represents the state of the game, and is set by
-	 * {@link #evaluateGameState()} after every move DO NOT CONFUSE THIS with an MDP
-	 * state.
+	 * Returned by {@link #tryPlay(int)} instead of a game state when the move is
+	 * illegal
+	 */
+	public static final int ILLEGAL = -1;
+
+	/**
+	 * The current position: the bitboards, whose turn it is, the hash and the
+	 * state of the game (ONGOING, X_WON, O_WON or DRAW; DO NOT CONFUSE THIS with
+	 * an MDP state). Replaced on every move; the side to move always matches
+	 * {@link #whoseTurn}.
+	 */
+	GameState position;
+
+	/**
+	 * CELL_WEIGHTS[c] = 3^(9-c), the place value of cell c in {@link #hashCode()}.
+	 * The last (units) digit of the hash is whose turn it is.
+	 */
+	static final int[] CELL_WEIGHTS = { 19683, 6561, 2187, 729, 243, 81, 27, 9, 3 };
+
+	/**
+	 * All nine cells.
 	 */
-	int state = 0;
+	static final int FULL = 0x1FF;
 
-	char[][] board = new char[3][3];
+	/**
+	 * The 8 winning lines as cell masks: 3 rows, 3 columns and the 2 diagonals.
+	 */
+	public static final int[] WIN_MASKS = { 0x007, 0x038, 0x1C0, 0x049, 0x092, 0x124, 0x111, 0x054 };
+
+	/**
+	 * WINS[m] is true if the cell mask m contains one of the {@link #WIN_MASKS}.
+	 * Precomputed for all 512 masks so that win detection is a single lookup.
+	 */
+	static final boolean[] WINS = new boolean[512];
+
+	static {
+		for (int m = 0; m < 512; m++)
+			for (int w : WIN_MASKS)
+				if ((m & w) == w) {
+					WINS[m] = true;
+					break;
+				}
+	}
 
 	/**
 	 * the X agent
@@ -82,6 +122,7 @@ public class Game {
 			this.whoseTurn = x;
 		else
 			this.whoseTurn = o;
+		this.position = GameState.empty(whoseTurn);
 
 	}
 
@@ -93,6 +134,8 @@ public class Game {
 	 * @param whoseTurn
 	 */
 	public Game(Agent x, Agent o, Agent whoseTurn) {
+		if (x instanceof Move.Player || o instanceof Move.Player)
+			throw new IllegalArgumentException("The player of a shared move can't join a game");
 		this.x = x;
 		x.setName('X');
 
@@ -108,7 +151,18 @@ public class Game {
 	}
 
 	/**
-	 * To deep copy
+	 * A game between new X and O agents with null policies, in {@code position}.
+	 * 
+	 * @param position
+	 */
+	public Game(GameState position) {
+		this(new Agent(), new Agent());
+		setPosition(position);
+	}
+
+	/**
+	 * To deep copy. The position is immutable, so only the reference to it is
+	 * copied.
 	 * 
 	 */
 	public Game(Game g) {
@@ -117,18 +171,30 @@ public class Game {
 		this.whoseTurn = g.whoseTurn;
 		// WARNING: Currently Agents are not deep copied
 
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
-				this.board[i][j] = g.board[i][j];
+		this.position = g.position;
 
 	}
 
 	public void initBoard() {
-		// fill the board with e's (empty cells)
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
-				board[i][j] = ' ';
+		setPosition(GameState.empty(whoseTurn == x ? 'X' : 'O'));
+	}
 
+	/**
+	 * @return the current position
+	 */
+	public GameState getPosition() {
+		return position;
+	}
+
+	/**
+	 * Moves this game to {@code position}, with the agent whose turn it is there
+	 * to move.
+	 * 
+	 * @param position
+	 */
+	public void setPosition(GameState position) {
+		this.position = position;
+		this.whoseTurn = position.isXToMove() ? x : o;
 	}
 
 	public boolean isLegal(Move m) {
@@ -139,7 +205,7 @@ public class Game {
 			return false;
 		}
 
-		if (board[m.x][m.y] != ' ')
+		if ((emptyCells() & (1 << (3 * m.x + m.y))) == 0)
 			return false;
 
 		return true;
@@ -153,20 +219,8 @@ public class Game {
 	 */
 	public List<Game> getAllSuccessorGames() {
 		List<Game> result = new ArrayList<Game>();
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (board[i][j] == ' ') {
-					Game newGame = null;
-					try {
-						newGame = this.simulateMove(whoseTurn.getName(), i, j);
-					} catch (IllegalMoveException e) {
-						System.out.println(e.getMessage());
-						e.printStackTrace();
-					}
-					// System.out.println("Adding:\n"+newGame);
-					result.add(newGame);
-				}
-			}
+		for (int empty = emptyCells(); empty != 0; empty &= empty - 1)
+			result.add(successor(Integer.numberOfTrailingZeros(empty)));
 
 		return result;
 
@@ -177,216 +231,113 @@ public class Game {
 	 * or O's turn as specified by {@code xo} argument. NOTE: this method will
 	 * include ALL terminal states in the game.
 	 * 
+	 * Only positions that can come up in a game are included, see
+	 * {@link ReachableStates}; they are enumerated once per JVM, and each call
+	 * returns a new list of new games around them, in increasing order of their
+	 * hashes.
+	 * 
 	 * @param xo
 	 *            specifies whose turn it should be in the resulting games.
 	 * @return
 	 */
 	public static List<Game> generateAllValidGames(char xo) {
 		List<Game> result = new ArrayList<Game>();
-		// this is the number of possible game hashes (2222222222 in base 3): 59048 -
-		// not all are valid. Here we only return the valid ones.
-		for (int i = 0; i < 59048; i++) {
-			Game g = inverseHash(i);
-			if (g == null)
-				continue;
-
-			if (g.isValid()) {
-				// System.out.println("for:"+i);
-				// System.out.println("got:\n"+g);
-				// System.out.println("turn:"+g.whoseTurn.getName());
-				// System.out.println("--------");
-				g.evaluateGameState();
-				if (g.whoseTurn.getName() == xo || g.isTerminal())
-					result.add(g);
-			}
-
-		}
+		for (GameState position : ReachableStates.forPlayer(xo))
+			result.add(new Game(position));
 
 		return result;
 	}
 
 	/**
-	 * returns a list of all available moves by the agent whose turn it is.
+	 * returns a list of all available moves by the agent whose turn it is. The
+	 * list and its moves are shared, see {@link Move#listOf(char, int)}, so
+	 * this allocates nothing; the list can't be modified.
 	 * 
 	 * @return
 	 */
 	public List<Move> getPossibleMoves() {
-		List<Move> possibleMoves = new ArrayList<Move>();
-		// if it's not our turn then no moves possible.
-		if (getState() != ONGOING)
-			return possibleMoves;
-
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (getBoard()[i][j] == ' ')
-					possibleMoves.add(new Move(whoseTurn, i, j));
-			}
-
-		return possibleMoves;
+		return Move.listOf(whoseTurn.getName(), legalMoveMask());
 
 	}
 
 	/**
 	 * returns a list of all available moves by the agent whose turn it is NOT. Used
-	 * by the defensive agent.
+	 * by the defensive agent. Shared and unmodifiable, like
+	 * {@link #getPossibleMoves()}.
 	 * 
 	 * @return
 	 */
 	public List<Move> getPossibleMovesByOpponent() {
-		List<Move> possibleMoves = new ArrayList<Move>();
-		// if it's not our turn then no moves possible.
-		if (getState() != ONGOING)
-			return possibleMoves;
-
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (getBoard()[i][j] == ' ')
-					possibleMoves.add(new Move((whoseTurn.getName() == 'X') ? 'O' : 'X', i, j));
-			}
+		char opponent = (whoseTurn.getName() == 'X') ? 'O' : 'X';
+		return Move.listOf(opponent, legalMoveMask());
 
-		return possibleMoves;
+	}
 
+	/**
+	 * The moves of {@link #getPossibleMoves()} as a bitmask: bit {@code 3*x+y}
+	 * is set if the player whose turn it is can play there. 0 once the game is
+	 * over. Play one of them with {@link #play(int)} or {@link #tryPlay(int)}.
+	 * 
+	 * @return the legal cells
+	 */
+	public int legalMoveMask() {
+		// if the game is over then no moves possible.
+		return position.legalMoveMask();
 	}
 
+	/**
+	 * The board as characters. This is a new copy of the position on every
+	 * call: writing to it does not change the game, use
+	 * {@link #setPosition(GameState)} for that.
+	 * 
+	 * @return the board, board[x][y] is 'X', 'O' or ' '
+	 */
 	public char[][] getBoard() {
+		char[][] board = new char[3][3];
+		for (int i = 0; i < 3; i++)
+			for (int j = 0; j < 3; j++)
+				board[i][j] = position.get(3 * i + j);
 		return board;
 	}
 
 	public String toString() {
-		String result = "\n";
-		for (int i = 0; i < 3; i++) {
-			result += "|";
-			for (int j = 0; j < 3; j++) {
-				result += board[i][j] + "|";
-
-			}
-			result += "\n";
-
-		}
 		// result+=this.whoseTurn+"'s turn";
-
-		return result;
+		return position.toString();
 	}
 
 	/**
-	 * Evaluates the game, and sets its state to one of DRAW, ONGOING, X_WIN or
-	 * O_WIN
+	 * Evaluates the game, and returns its state: one of DRAW, ONGOING, X_WIN or
+	 * O_WIN. The position keeps its state up to date, so this is a field read.
 	 * 
 	 * @return an integer representing the game state
 	 */
 	public int evaluateGameState() {
+		return position.getState();
+	}
 
-		// checking columns
-		if (board[0][0] != ' ' && board[0][0] == board[0][1] && board[0][1] == board[0][2]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[1][0] != ' ' && board[1][0] == board[1][1] && board[1][1] == board[1][2]) {
-			if (board[1][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[2][0] != ' ' && board[2][0] == board[2][1] && board[2][1] == board[2][2]) {
-			if (board[2][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		// checking rows
-
-		if (board[0][0] != ' ' && board[0][0] == board[1][0] && board[1][0] == board[2][0]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[0][1] != ' ' && board[0][1] == board[1][1] && board[1][1] == board[2][1]) {
-			if (board[0][1] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[0][2] != ' ' && board[0][2] == board[1][2] && board[1][2] == board[2][2]) {
-			if (board[0][2] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		// checking diagnols
-
-		if (board[0][0] != ' ' && board[0][0] == board[1][1] && board[1][1] == board[2][2]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		if (board[2][0] != ' ' && board[2][0] == board[1][1] && board[1][1] == board[0][2]) {
-			if (board[2][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		boolean spacesLeft = false;
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (board[i][j] == ' ') {
-					spacesLeft = true;
-					break;
-
-				}
-			}
-
-		if (spacesLeft)
-			this.state = ONGOING;
-		else
-			this.state = DRAW;
-
-		return this.state;
+	/**
+	 * Puts {@code who} on cell {@code 3*x+y}. Does not check anything, and
+	 * leaves the turn as it is.
+	 */
+	void place(char who, int x, int y) {
+		position = position.place(who, 3 * x + y);
+	}
 
+	/**
+	 * @return a mask with bit {@code 3*i+j} set for every empty cell (i,j)
+	 */
+	public int emptyCells() {
+		return position.emptyCells();
 	}
 
 	private int count(char xo) {
-		int count = 0;
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
-				if (board[i][j] == xo)
-					count++;
-		return count;
+		return Integer.bitCount(xo == 'X' ? position.xBits : position.oBits);
 	}
 
 	/**
-	 * Tells us if this game is a valid game.
+	 * Tells us if this game is a valid game: the numbers of pieces and whose turn
+	 * it is fit together. Some valid games can't come up in play, e.g. when both
+	 * sides have three in a row; see {@link ReachableStates#isReachable(int)}.
 	 * 
 	 * @return
 	 */
@@ -418,7 +369,7 @@ public class Game {
 	 * @return
 	 */
 	public Game simulateMove(char who, int x, int y) throws IllegalMoveException {
-		Move m = new Move(who, x, y);
+		Move m = Move.of(who, x, y);
 		return simulateMove(m);
 
 	}
@@ -437,22 +388,37 @@ public class Game {
 		if (whoseTurn == o && m.who.getName() != 'O')
 			throw new IllegalMoveException("it is not o's turn");
 
-		if (board[m.x][m.y] != ' ')
+		if ((emptyCells() & (1 << (3 * m.x + m.y))) == 0)
 			throw new IllegalMoveException("Invalid move. The square is " + m);
 
-		Game copy = clone();
-		copy.board[m.x][m.y] = m.who.getName();
-		if (m.who.getName() == 'X')
-			copy.whoseTurn = copy.o;
-		else if (m.who.getName() == 'O')
-			copy.whoseTurn = copy.x;
-		else
-			throw new IllegalArgumentException();
+		return successor(3 * m.x + m.y);
 
-		copy.evaluateGameState();
+	}
 
-		return copy;
+	/**
+	 * Like {@link #simulateMove(Move)} for the player whose turn it is, but
+	 * signals an illegal move by returning null instead of throwing.
+	 * 
+	 * @param cell
+	 *            the cell to play, between 0 and 8 inclusive
+	 * @return the Game after the move, or null if the game is over or the cell is
+	 *         not empty
+	 */
+	public Game trySimulateMove(int cell) {
+		return position.isLegal(cell) ? successor(cell) : null;
+	}
 
+	/**
+	 * @return a copy of this game with {@code cell}, which has to be empty, played
+	 *         by the player whose turn it is
+	 */
+	private Game successor(int cell) {
+		// the new position is the only new object besides the game itself
+		Game copy = clone();
+		copy.position = position.move(cell);
+		copy.whoseTurn = whoseTurn == x ? o : x;
+
+		return copy;
 	}
 
 	/**
@@ -467,19 +433,66 @@ public class Game {
 		if (whoseTurn == o && m.who.getName() != 'O')
 			throw new IllegalMoveException("it is not X's turn");
 
-		if (board[m.x][m.y] != ' ')
+		if ((emptyCells() & (1 << (3 * m.x + m.y))) == 0)
 			throw new IllegalMoveException("Invalid move. The location (" + m.x + "," + m.y + ") is not empty");
 
-		board[m.x][m.y] = m.who.getName();
-		if (whoseTurn.getName() == 'X')
-			whoseTurn = o;
-		else if (m.who.getName() == 'O')
-			whoseTurn = x;
-		else
-			throw new IllegalArgumentException();
+		moveTo(position.move(3 * m.x + m.y));
+
+	}
+
+	/**
+	 * Plays cell {@code 3*x+y} for whoever's turn it is. This will change the
+	 * game. Like {@link #executeMove(Move)}, but without a {@link Move} object,
+	 * so it allocates nothing unless the move is illegal.
+	 * 
+	 * @param cell
+	 *            the cell to play, between 0 and 8 inclusive
+	 */
+	public void play(int cell) throws IllegalMoveException {
+		moveTo(position.play(cell));
+	}
+
+	/**
+	 * Like {@link #play(int)}, but signals an illegal move with a status code
+	 * instead of an exception, so that engines playing many moves need no
+	 * try/catch. The game is left unchanged if the move is illegal.
+	 * 
+	 * @param cell
+	 *            the cell to play, between 0 and 8 inclusive
+	 * @return the state of the game after the move ({@link #ONGOING},
+	 *         {@link #X_WON}, {@link #O_WON} or {@link #DRAW}), or
+	 *         {@link #ILLEGAL} if the game is over or the cell is not empty
+	 */
+	public int tryPlay(int cell) {
+		GameState next = position.tryPlay(cell);
+		if (next == null)
+			return ILLEGAL;
+		moveTo(next);
+		return next.state;
+	}
+
+	/**
+	 * Moves on to {@code next}, the position after the player to move played,
+	 * and hands the turn to the other agent.
+	 */
+	private void moveTo(GameState next) {
+		position = next;
+		whoseTurn = whoseTurn == this.x ? o : this.x;
+	}
 
-		this.evaluateGameState();
+	/**
+	 * Clears the board so that the same game object can be played again, with
+	 * {@code whoseTurn} to move first.
+	 * 
+	 * @param whoseTurn
+	 *            either the x or the o agent of this game
+	 */
+	public void reset(Agent whoseTurn) {
+		if (whoseTurn != x && whoseTurn != o)
+			throw new IllegalArgumentException("Agent with current turn is not one of the game agents");
 
+		this.whoseTurn = whoseTurn;
+		initBoard();
 	}
 
 	/**
@@ -494,7 +507,7 @@ public class Game {
 	 *            the y coordinate of the move (between 0 and 2 inclusive)
 	 */
 	public void executeMove(char who, int x, int y) throws IllegalMoveException {
-		Move m = new Move(who, x, y);
+		Move m = Move.of(who, x, y);
 		executeMove(m);
 
 	}
@@ -509,7 +522,7 @@ public class Game {
 	 */
 	public void playOut() throws IllegalMoveException {
 
-		while (this.state == ONGOING) {
+		while (position.getState() == ONGOING) {
 
 			Move m = this.whoseTurn.getMove(this);
 			// if (!(this.whoseTurn instanceof ValueIterationAgent))
@@ -530,9 +543,9 @@ public class Game {
 			System.out.println(this);
 
 		}
-		if (this.state == X_WON) {
+		if (position.getState() == X_WON) {
 			System.out.println("X won!");
-		} else if (this.state == O_WON) {
+		} else if (position.getState() == O_WON) {
 			System.out.println("O won!");
 		} else
 			System.out.println("It's a draw.");
@@ -564,27 +577,9 @@ public class Game {
 		// ' ' ->0
 		// 'X' ->1
 		// 'O' ->2
-		String s = "";
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				switch (board[i][j]) {
-				case 'X':
-					s += "1";
-					break;
-				case 'O':
-					s += "2";
-					break;
-				case ' ':
-					s += "0";
-					break;
-				}
-
-			}
-		// also encode whose turn it is. Either 1 or 2 (x or o)
-
-		s += (whoseTurn == x) ? "1" : "2";
-
-		return Integer.parseInt(s, 3);
+		// the last digit encodes whose turn it is. Either 1 or 2 (x or o). The
+		// position computes all of it once, when it is created
+		return position.hashCode();
 
 	}
 
@@ -596,49 +591,48 @@ public class Game {
 	 * You can use this method to read your policy or value functions from file.
 	 * 
 	 * @param hash
-	 * @return the Game corresponding to the hash
+	 * @return the Game corresponding to the hash, or null if the hash does not
+	 *         encode whose turn it is
 	 */
 	public static Game inverseHash(int hash) {
 
-		Game g = new Game();
-
-		String s1 = Integer.toString(hash, 3);
-
-		if (s1.charAt(s1.length() - 1) == '0')
+		int turn = hash % 3;
+		if (turn == 0)
 			return null;
 
-		// add leading 0's
-		String s = new String(s1);
+		return new Game(GameState.fromHash(hash));
+	}
 
-		for (int i = 0; i < 10 - s1.length(); i++) {
-			s = "0" + s;
-		}
-		// System.out.println("Intermediate string:"+s);
-		// set whose turn
-		if (s.charAt(s.length() - 1) == '1')
-			g.whoseTurn = g.x;
-		else if (s.charAt(s.length() - 1) == '2')
-			g.whoseTurn = g.o;
-
-		for (int l = s.length() - 2; l >= 0; l--) {
-			int i = (int) l / 3;
-			int j = (int) l % 3;
-			switch (s.charAt(l)) {
-			case '0':
-				g.board[i][j] = ' ';
-				break;
-			case '1':
-				g.board[i][j] = 'X';
-				break;
-			case '2':
-				g.board[i][j] = 'O';
-				break;
-			default:
-				throw new IllegalStateException("this shouldn't happen!");
+	/**
+	 * @return the {@link Symmetry} transform that takes this game to its
+	 *         canonical representative, see {@link #canonical()}
+	 */
+	public int canonicalTransform() {
+		return Symmetry.canonicalTransform(hashCode());
+	}
 
-			}
-		}
+	/**
+	 * Of the (up to) 8 games equivalent to this one under rotations and
+	 * reflections of the board, returns the one with the smallest hash. Moves in
+	 * the returned game map back to this one with
+	 * {@link Symmetry#invert(int, Move)} and {@link #canonicalTransform()}.
+	 * 
+	 * @return a new game with the same agents and turn as this one, and the board
+	 *         transformed to its canonical form
+	 */
+	public Game canonical() {
+		return transform(canonicalTransform());
+	}
 
+	/**
+	 * @param t
+	 *            a {@link Symmetry} transform
+	 * @return a new game with the same agents and turn as this one, and every
+	 *         piece moved by transform {@code t}
+	 */
+	public Game transform(int t) {
+		Game g = new Game(this);
+		g.position = position.transform(t);
 		return g;
 	}
 
@@ -648,20 +642,21 @@ public class Game {
 		else if (!(other instanceof Game))
 			return false;
 
-		return this.hashCode() == other.hashCode();
+		Game g = (Game) other;
+		return this.position.equals(g.position);
 	}
 
 	public int getState() {
-		return this.state;
+		return position.getState();
 	}
 
 	public boolean isTerminal() {
 
-		return this.state != ONGOING;
+		return position.isTerminal();
 	}
 
-	public static final String help = " -h this menu" + "\n -x the X agent: -x <pi, vi, random, agg, def, human>"
-			+ "\n -o the O agent: -o <random, agg, def, human>"
+	public static final String help = " -h this menu" + "\n -x the X agent: -x <pi, vi, ab, mcts, random, agg, def, human>"
+			+ "\n -o the O agent: -o <ab, mcts, random, agg, def, human>"
 			+ "\n -s the agent that starts the game (x or o): -s <x or o>";
 
 	// public static void main(String args[]) throws IllegalMoveException
@@ -693,6 +688,14 @@ public class Game {
 	// System.out.println("there were:"+games.size());
 	// }
 
+	/**
+	 * @return the MCTS agent of {@link #main}: one second per move on all cores, with {@link AggressivePolicy} rollouts
+	 */
+	static MCTSAgent mctsAgent() {
+		return new MCTSAgent(1000, 0, Runtime.getRuntime().availableProcessors(), MCTSAgent.Parallelism.TREE,
+				MNKPlayer.of(new AggressivePolicy()));
+	}
+
 	/**
 	 * 
 	 * @param a
@@ -718,7 +721,7 @@ public class Game {
 			case "-x":
 				next = iter.next();
 				if (next == null || next.startsWith("-")) {
-					System.out.println("-x should be followed by the agent name, vi, pi, random, agg, def, or human");
+					System.out.println("-x should be followed by the agent name: vi, pi, ab, mcts, random, agg, def or human");
 					return;
 				}
 				if (next.equals("vi")) {
@@ -727,6 +730,12 @@ public class Game {
 				} else if (next.equals("pi")) {
 					System.out.println("X is pi agent.");
 					x = new PolicyIterationAgent();
+				} else if (next.equals("ab")) {
+					System.out.println("X is alpha-beta agent.");
+					x = new AlphaBetaAgent();
+				} else if (next.equals("mcts")) {
+					System.out.println("X is MCTS agent.");
+					x = mctsAgent();
 				} else if (next.equals("random")) {
 					System.out.println("X is random agent.");
 					x = new RandomAgent();
@@ -741,7 +750,7 @@ public class Game {
 					System.out.println("X is defensive agent.");
 					x = new DefensiveAgent();
 				} else {
-					System.out.println("-x should be followed by the agent type: vi, pi, random or human");
+					System.out.println("Error: -x should be followed by the agent name: vi, pi, ab, mcts, random, agg, def or human");
 					return;
 
 				}
@@ -750,7 +759,7 @@ public class Game {
 				next = iter.next();
 
 				if (next == null || next.startsWith("-")) {
-					System.out.println("-o should be followed by the agent name e.g. random or human");
+					System.out.println("-o should be followed by the agent name: ab, mcts, random, agg, def or human");
 					return;
 				}
 				if (next.equals("vi")) {
@@ -761,6 +770,12 @@ public class Game {
 				else if (next.equals("pi")) {
 					System.out.println("Error: the policy iteration agent should be the X agent");
 					return;
+				} else if (next.equals("ab")) {
+					System.out.println("O is alpha-beta agent.");
+					o = new AlphaBetaAgent();
+				} else if (next.equals("mcts")) {
+					System.out.println("O is MCTS agent.");
+					o = mctsAgent();
 				} else if (next.equals("random"))
 					o = new RandomAgent();
 				else if (next.equals("human")) {
@@ -774,7 +789,7 @@ public class Game {
 					System.out.println("O is defensive agent.");
 					o = new DefensiveAgent();
 				} else {
-					System.out.println("Error: -x should be followed by the agent type: vi, pi, random or human");
+					System.out.println("Error: -o should be followed by the agent name: ab, mcts, random, agg, def or human");
 					return;
 
 				}
@@ -0,0 +1,310 @@
+package ticTacToe;
+
+/**
+ * An immutable Tic Tac Toe position: the two bitboards, whose turn it is, whether the game is over and the {@link Game#hashCode()
+ * hash}, all fixed when the state is created. It knows nothing about {@link Agent}s, so states can be shared freely between games,
+ * tables and threads, and compared and hashed as values.
+ *
+ * There is at most one object per state: every state is created once, the first time it comes up, and then interned in a table
+ * over all {@link StateIndex#HASH_CODES hashes}. So {@link #play(int)} only allocates the first time a position is reached, and
+ * playing games allocates nothing once their positions have been seen. {@link Game} is a mutable driver around one of these that
+ * adds the two agents.
+ *
+ * @author ae187
+ *
+ */
+public final class GameState {
+
+	/**
+	 * INTERNED[h] is the state with hash h, or null if it hasn't been created yet. States are immutable and all their fields are
+	 * final, so threads that race to create the same state only waste an allocation.
+	 */
+	private static final GameState[] INTERNED = new GameState[StateIndex.HASH_CODES];
+
+	/**
+	 * The empty boards with X and with O to move
+	 */
+	public static final GameState X_FIRST = intern(0, 0, 1);
+	public static final GameState O_FIRST = intern(0, 0, 2);
+
+	/**
+	 * Bit {@code 3*x+y} is set when that side occupies cell (x, y)
+	 */
+	final int xBits, oBits;
+
+	/**
+	 * The hash of {@link Game#hashCode()}: the board as 9 base-3 digits, then 1 if X is to move and 2 if O is
+	 */
+	final int hash;
+
+	/**
+	 * One of {@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON} and {@link Game#DRAW}
+	 */
+	final int state;
+
+	/**
+	 * The cells the player to move can play: the empty cells, or none once the game is over
+	 */
+	final int legal;
+
+	/**
+	 * @return the interned state with these pieces and hash
+	 */
+	private static GameState intern(int xBits, int oBits, int hash) {
+		GameState s = INTERNED[hash];
+		if (s == null)
+			INTERNED[hash] = s = new GameState(xBits, oBits, hash);
+		return s;
+	}
+
+	private static GameState intern(int xBits, int oBits, boolean xToMove) {
+		return intern(xBits, oBits, hashOf(xBits, oBits, xToMove));
+	}
+
+	private static int hashOf(int xBits, int oBits, boolean xToMove) {
+		int h = xToMove ? 1 : 2;
+		for (int bits = xBits; bits != 0; bits &= bits - 1)
+			h += Game.CELL_WEIGHTS[Integer.numberOfTrailingZeros(bits)];
+		for (int bits = oBits; bits != 0; bits &= bits - 1)
+			h += 2 * Game.CELL_WEIGHTS[Integer.numberOfTrailingZeros(bits)];
+		return h;
+	}
+
+	private GameState(int xBits, int oBits, int hash) {
+		this.xBits = xBits;
+		this.oBits = oBits;
+		this.hash = hash;
+		if (Game.WINS[xBits])
+			this.state = Game.X_WON;
+		else if (Game.WINS[oBits])
+			this.state = Game.O_WON;
+		else if ((xBits | oBits) == Game.FULL)
+			this.state = Game.DRAW;
+		else
+			this.state = Game.ONGOING;
+		this.legal = state == Game.ONGOING ? ~(xBits | oBits) & Game.FULL : 0;
+	}
+
+	/**
+	 * @param xBits
+	 *            the cells of X, bit {@code 3*x+y} for cell (x, y)
+	 * @param oBits
+	 *            the cells of O
+	 * @param whoseTurn
+	 *            'X' or 'O'
+	 * @return the state with these pieces and {@code whoseTurn} to move
+	 */
+	public static GameState of(int xBits, int oBits, char whoseTurn) {
+		if (whoseTurn != 'X' && whoseTurn != 'O')
+			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+		if ((xBits & ~Game.FULL) != 0 || (oBits & ~Game.FULL) != 0 || (xBits & oBits) != 0)
+			throw new IllegalArgumentException("Invalid bitboards " + xBits + " and " + oBits);
+		return intern(xBits, oBits, whoseTurn == 'X');
+	}
+
+	/**
+	 * @param whoseTurn
+	 *            'X' or 'O'
+	 * @return the empty board with {@code whoseTurn} to move
+	 */
+	public static GameState empty(char whoseTurn) {
+		if (whoseTurn != 'X' && whoseTurn != 'O')
+			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+		return whoseTurn == 'X' ? X_FIRST : O_FIRST;
+	}
+
+	/**
+	 * The inverse of {@link #hashCode()}
+	 *
+	 * @param hash
+	 * @return the state with that hash
+	 * @throws IllegalArgumentException
+	 *             if {@code hash} is not the hash of a state, i.e. it is out of range or its last digit is 0
+	 */
+	public static GameState fromHash(int hash) {
+		if (hash < 0 || hash >= StateIndex.HASH_CODES || hash % 3 == 0)
+			throw new IllegalArgumentException("Not a game hash: " + hash);
+		if (INTERNED[hash] != null)
+			return INTERNED[hash];
+		int xBits = 0;
+		int oBits = 0;
+		int rest = hash / 3;
+		for (int cell = 8; cell >= 0; cell--) {
+			int digit = rest % 3;
+			rest /= 3;
+			if (digit == 1)
+				xBits |= 1 << cell;
+			else if (digit == 2)
+				oBits |= 1 << cell;
+		}
+		return intern(xBits, oBits, hash % 3 == 1);
+	}
+
+	public int getXBits() {
+		return xBits;
+	}
+
+	public int getOBits() {
+		return oBits;
+	}
+
+	/**
+	 * @return 'X' or 'O'
+	 */
+	public char whoseTurn() {
+		return hash % 3 == 1 ? 'X' : 'O';
+	}
+
+	public boolean isXToMove() {
+		return hash % 3 == 1;
+	}
+
+	/**
+	 * @return one of {@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON} and {@link Game#DRAW}
+	 */
+	public int getState() {
+		return state;
+	}
+
+	public boolean isTerminal() {
+		return state != Game.ONGOING;
+	}
+
+	/**
+	 * @return a mask with bit {@code 3*x+y} set for every empty cell (x, y)
+	 */
+	public int emptyCells() {
+		return ~(xBits | oBits) & Game.FULL;
+	}
+
+	/**
+	 * @return the cells the player to move can play, or 0 if the game is over
+	 */
+	public int legalMoveMask() {
+		return legal;
+	}
+
+	/**
+	 * @param cell
+	 *            3*x+y
+	 * @return true if the player to move can play {@code cell}
+	 */
+	public boolean isLegal(int cell) {
+		return cell >= 0 && cell <= 8 && (legal & (1 << cell)) != 0;
+	}
+
+	/**
+	 * @param cell
+	 *            3*x+y
+	 * @return the state after the player to move plays {@code cell}
+	 * @throws IllegalMoveException
+	 *             if the game is over or the cell is not empty
+	 */
+	public GameState play(int cell) throws IllegalMoveException {
+		GameState next = tryPlay(cell);
+		if (next != null)
+			return next;
+		if (state != Game.ONGOING)
+			throw new IllegalMoveException("The game is over:" + this);
+		throw new IllegalMoveException("Invalid move. Cell " + cell + " is not empty");
+	}
+
+	/**
+	 * Like {@link #play(int)}, but signals an illegal move by returning null instead of throwing, for loops that play many moves.
+	 *
+	 * @param cell
+	 *            3*x+y
+	 * @return the state after the player to move plays {@code cell}, or null if the game is over or the cell is not empty
+	 */
+	public GameState tryPlay(int cell) {
+		return isLegal(cell) ? move(cell) : null;
+	}
+
+	/**
+	 * Like {@link #play(int)} without any checks: the cell has to be empty, but the game may be over.
+	 */
+	GameState move(int cell) {
+		// the hash changes by the new piece's digit, and the last digit flips between 1 and 2
+		if (isXToMove())
+			return intern(xBits | 1 << cell, oBits, hash + Game.CELL_WEIGHTS[cell] + 1);
+		return intern(xBits, oBits | 1 << cell, hash + 2 * Game.CELL_WEIGHTS[cell] - 1);
+	}
+
+	/**
+	 * @param who
+	 *            'X' or 'O'
+	 * @param cell
+	 *            an empty cell
+	 * @return this state with a piece of {@code who} added on {@code cell}, and the same player to move
+	 */
+	GameState place(char who, int cell) {
+		return who == 'X' ? intern(xBits | 1 << cell, oBits, hash + Game.CELL_WEIGHTS[cell])
+				: intern(xBits, oBits | 1 << cell, hash + 2 * Game.CELL_WEIGHTS[cell]);
+	}
+
+	/**
+	 * @param whoseTurn
+	 *            'X' or 'O'
+	 * @return this board with {@code whoseTurn} to move
+	 */
+	public GameState withTurn(char whoseTurn) {
+		if (whoseTurn != 'X' && whoseTurn != 'O')
+			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+		return whoseTurn == whoseTurn() ? this : intern(xBits, oBits, whoseTurn == 'X');
+	}
+
+	/**
+	 * @param t
+	 *            a {@link Symmetry} transform
+	 * @return this state with every piece moved by {@code t}, and the same player to move
+	 */
+	public GameState transform(int t) {
+		if (t == Symmetry.IDENTITY)
+			return this;
+		return intern(Symmetry.applyToBits(t, xBits), Symmetry.applyToBits(t, oBits), isXToMove());
+	}
+
+	/**
+	 * @return the {@link Symmetry} transform that takes this state to its canonical representative
+	 */
+	public int canonicalTransform() {
+		return Symmetry.canonicalTransform(hash);
+	}
+
+	/**
+	 * @return the character on cell {@code 3*x+y}: 'X', 'O' or ' '
+	 */
+	public char get(int cell) {
+		return (xBits >> cell & 1) != 0 ? 'X' : (oBits >> cell & 1) != 0 ? 'O' : ' ';
+	}
+
+	/**
+	 * The hash of {@link Game#hashCode()}, computed once when the state is created. Two states are equal exactly when their hashes
+	 * are, which for interned states means when they are the same object.
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof GameState && ((GameState) other).hash == hash;
+	}
+
+	/**
+	 * The board in the format of {@link Game#toString()}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("\n");
+		for (int i = 0; i < 3; i++) {
+			result.append('|');
+			for (int j = 0; j < 3; j++)
+				result.append(get(3 * i + j)).append('|');
+			result.append('\n');
+		}
+		return result.toString();
+	}
+
+}
@@ -48,7 +48,7 @@ public class HumanAgent extends Agent {
 			return getMove(g);
 		}
 		
-		Move m=new Move(name, x, y);
+		Move m=Move.of(name, x, y);
 		if (!g.isLegal(m))
 		{
 			System.out.println("Illegal move. Choose again.");
@@ -58,5 +58,11 @@ public class HumanAgent extends Agent {
 		
 		
 	}
+	
+	public int getCell(Game g)
+	{
+		Move m=getMove(g);
+		return 3*m.x+m.y;
+	}
 
 }
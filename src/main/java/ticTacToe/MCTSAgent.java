@@ -0,0 +1,244 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Monte Carlo Tree Search agent (UCT): on every move it grows a search tree from the current position by playing games out
+ * with a rollout policy, picking the branches to explore by the UCB1 rule, and then plays the move that was explored most. It
+ * needs no model of the opponent and no table over the state space, so it plays X or O, on 3x3 boards or, as an
+ * {@link MNKPlayer}, on boards of any size; and it is anytime: the longer it may think, the better it plays.
+ *
+ * Each move searches until a time budget or an iteration budget (or both) runs out, on one or several threads:
+ * <ul>
+ * <li>{@link Parallelism#TREE}: all threads grow one shared tree, without locks, spreading out by virtual loss (see
+ * {@link MCTSTree});</li>
+ * <li>{@link Parallelism#ROOT}: every thread grows a tree of its own, and the visits of the root's moves are added up.</li>
+ * </ul>
+ * The trees are pools of nodes allocated once and reused on every move. The rollouts are played by a pluggable
+ * {@link MNKPlayer}, e.g. the {@link RandomPolicy} or the {@link AggressivePolicy} through {@link MNKPlayer#of(Policy)} on 3x3
+ * boards, or {@link MNKPlayer#random()} and {@link MNKPlayer#aggressive()} on any board.
+ *
+ * One agent searches one position at a time: moves asked for by several threads at once wait for each other.
+ *
+ * @author ae187
+ *
+ */
+public class MCTSAgent extends Agent implements MNKPlayer {
+
+	/**
+	 * How the threads of a search share the work
+	 */
+	public enum Parallelism {
+		TREE, ROOT
+	}
+
+	/**
+	 * The exploration constant of UCB1, for results between 0 and 1
+	 */
+	public static final double EXPLORATION = Math.sqrt(2);
+
+	/**
+	 * The default number of nodes per tree: 2^18, about 6 MB
+	 */
+	public static final int CAPACITY = 1 << 18;
+
+	/**
+	 * How many times a node is visited before it gets children
+	 */
+	static final int EXPAND_AFTER = 2;
+
+	/**
+	 * How many iterations a thread runs between two looks at the clock
+	 */
+	static final int CLOCK_EVERY = 64;
+
+	final long timeLimitNanos;
+	final long iterations;
+	final int threads;
+	final Parallelism parallelism;
+	final MNKPlayer rollout;
+	final int capacity;
+
+	/**
+	 * The node pools: one shared tree, or one per thread. Created on first use.
+	 */
+	private MCTSTree[] trees;
+
+	/**
+	 * Runs the workers of a search on several threads. Created on first use; its threads are daemons and end when idle.
+	 */
+	private ForkJoinPool pool;
+
+	private long lastIterations;
+	private long lastNanos;
+	private int lastNodes;
+
+	/**
+	 * A single-threaded agent that thinks for 100 ms per move, with {@link MNKPlayer#aggressive()} rollouts.
+	 */
+	public MCTSAgent() {
+		this(100, 0, 1, Parallelism.TREE, MNKPlayer.aggressive());
+	}
+
+	/**
+	 * An agent with the default tree size.
+	 *
+	 * @param timeLimitMillis
+	 *            the time to search per move, 0 for no limit
+	 * @param iterations
+	 *            the number of playouts per move, over all threads, 0 for no limit
+	 * @param threads
+	 * @param parallelism
+	 * @param rollout
+	 *            the policy of both players in the playouts
+	 */
+	public MCTSAgent(long timeLimitMillis, long iterations, int threads, Parallelism parallelism, MNKPlayer rollout) {
+		this(timeLimitMillis, iterations, threads, parallelism, rollout, CAPACITY);
+	}
+
+	/**
+	 * @param timeLimitMillis
+	 *            the time to search per move, 0 for no limit
+	 * @param iterations
+	 *            the number of playouts per move, over all threads, 0 for no limit
+	 * @param threads
+	 * @param parallelism
+	 * @param rollout
+	 *            the policy of both players in the playouts
+	 * @param capacity
+	 *            the number of nodes per tree. Once a tree is full, the search goes on without adding nodes.
+	 */
+	public MCTSAgent(long timeLimitMillis, long iterations, int threads, Parallelism parallelism, MNKPlayer rollout,
+			int capacity) {
+		super(null);
+		if (timeLimitMillis < 0 || iterations < 0)
+			throw new IllegalArgumentException("Budgets can't be negative");
+		if (timeLimitMillis == 0 && iterations == 0)
+			throw new IllegalArgumentException("Need a time or an iteration budget");
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread, got " + threads);
+		if (capacity < 2)
+			throw new IllegalArgumentException("Need room for at least two nodes, got " + capacity);
+		this.timeLimitNanos = timeLimitMillis * 1000000;
+		this.iterations = iterations;
+		this.threads = threads;
+		this.parallelism = parallelism;
+		this.rollout = rollout;
+		this.capacity = capacity;
+	}
+
+	@Override
+	public Move getMove(Game g) {
+		return Move.of(g.whoseTurn.getName(), getCell(g));
+	}
+
+	@Override
+	public int getCell(Game g) {
+		if (g.isTerminal())
+			return -1;
+		return getCell(MNKBoard.of(g.getPosition()));
+	}
+
+	/**
+	 * Searches {@code board} within the budget and returns the move explored most.
+	 */
+	@Override
+	public synchronized int getCell(MNKBoard board) {
+		if (board.isTerminal())
+			return -1;
+		if (trees == null) {
+			trees = new MCTSTree[parallelism == Parallelism.TREE ? 1 : threads];
+			for (int t = 0; t < trees.length; t++)
+				trees[t] = new MCTSTree(capacity);
+		}
+		for (MCTSTree tree : trees)
+			tree.reset();
+
+		long start = System.nanoTime();
+		long deadline = timeLimitNanos > 0 ? start + timeLimitNanos : Long.MAX_VALUE;
+		AtomicLong done = new AtomicLong();
+		if (threads == 1)
+			work(trees[0], new MNKBoard(board), deadline, done);
+		else {
+			if (pool == null)
+				pool = new ForkJoinPool(threads);
+			List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+			for (int w = 0; w < threads; w++) {
+				MCTSTree tree = trees[parallelism == Parallelism.TREE ? 0 : w];
+				MNKBoard copy = new MNKBoard(board);
+				workers.add(() -> {
+					work(tree, copy, deadline, done);
+					return null;
+				});
+			}
+			try {
+				for (Future<Void> f : pool.invokeAll(workers))
+					f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while searching", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IllegalStateException)
+					throw (IllegalStateException) e.getCause();
+				throw new IllegalStateException("Search worker failed", e.getCause());
+			}
+		}
+		lastNanos = System.nanoTime() - start;
+		lastIterations = iterations > 0 ? Math.min(done.get(), iterations) : done.get();
+
+		long[] visitsByCell = new long[board.getRules().cells()];
+		lastNodes = 0;
+		for (MCTSTree tree : trees) {
+			tree.addRootVisits(visitsByCell);
+			lastNodes += tree.nodes();
+		}
+		int best = -1;
+		for (int cell = 0; cell < visitsByCell.length; cell++)
+			if (board.isLegal(cell) && (best < 0 || visitsByCell[cell] > visitsByCell[best]))
+				best = cell;
+		return best;
+	}
+
+	/**
+	 * Runs iterations on {@code tree} until the budget is used up
+	 */
+	private void work(MCTSTree tree, MNKBoard board, long deadline, AtomicLong done) {
+		int[] path = new int[board.legalMoveCount() + 1];
+		int[] moves = new int[board.getRules().cells()];
+		for (int i = 0;; i++) {
+			if (i % CLOCK_EVERY == 0 && System.nanoTime() > deadline)
+				return;
+			if (done.getAndIncrement() >= iterations && iterations > 0)
+				return;
+			tree.iterate(board, rollout, EXPLORATION, EXPAND_AFTER, path, moves);
+		}
+	}
+
+	/**
+	 * @return the number of playouts of the last search
+	 */
+	public long getLastIterations() {
+		return lastIterations;
+	}
+
+	/**
+	 * @return the time the last search took, in nanoseconds
+	 */
+	public long getLastNanos() {
+		return lastNanos;
+	}
+
+	/**
+	 * @return the number of tree nodes the last search used, over all trees
+	 */
+	public int getLastNodes() {
+		return lastNodes;
+	}
+
+}
@@ -0,0 +1,199 @@
+package ticTacToe;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The search tree of {@link MCTSAgent}, stored in a pool of nodes that is allocated once and reused for every search, so that
+ * searching creates no garbage however many nodes it adds. A node is an index into parallel arrays: the move that leads to it,
+ * its children (a contiguous range of indexes, handed out by bumping {@link #size}), its visit count and its score.
+ *
+ * Any number of threads can run {@link #iterate} on one tree at once, without locks: visits and scores are updated atomically,
+ * and a node's children are published by one compare-and-set. A thread that passes through a node adds its visit at once but
+ * its result only once its playout has finished; until then the visit counts as a loss (a virtual loss), which steers the other
+ * threads to other branches.
+ *
+ * @author ae187
+ *
+ */
+class MCTSTree {
+
+	/**
+	 * The expansion states of a node: no children yet, being expanded by some thread, children published, and never to be
+	 * expanded because the pool is full
+	 */
+	static final int FRESH = 0, EXPANDING = 1, EXPANDED = 2, LEAF = 3;
+
+	final int capacity;
+
+	/**
+	 * The cell played to get to each node, -1 for the root
+	 */
+	final int[] move;
+
+	/**
+	 * The first child and the number of children of each node, valid once it is {@link #EXPANDED}
+	 */
+	final int[] first;
+	final int[] count;
+
+	final AtomicIntegerArray visits;
+
+	/**
+	 * Twice the wins plus the draws of the player who moved to each node, over the playouts through it
+	 */
+	final AtomicIntegerArray score;
+
+	final AtomicIntegerArray expanded;
+
+	/**
+	 * The number of nodes handed out
+	 */
+	final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * @param capacity
+	 *            the number of nodes in the pool
+	 */
+	MCTSTree(int capacity) {
+		this.capacity = capacity;
+		move = new int[capacity];
+		first = new int[capacity];
+		count = new int[capacity];
+		visits = new AtomicIntegerArray(capacity);
+		score = new AtomicIntegerArray(capacity);
+		expanded = new AtomicIntegerArray(capacity);
+	}
+
+	/**
+	 * Empties the tree, leaving only the root
+	 */
+	void reset() {
+		size.set(1);
+		init(0, -1);
+	}
+
+	private void init(int node, int cell) {
+		move[node] = cell;
+		count[node] = 0;
+		visits.set(node, 0);
+		score.set(node, 0);
+		expanded.set(node, FRESH);
+	}
+
+	/**
+	 * Adds the children of {@code node}, whose position is {@code board}, unless another thread is doing so or the pool is full.
+	 *
+	 * @param moves
+	 *            a buffer for the legal moves
+	 * @return true if the node has children now
+	 */
+	boolean expand(int node, MNKBoard board, int[] moves) {
+		if (!expanded.compareAndSet(node, FRESH, EXPANDING))
+			return expanded.get(node) == EXPANDED;
+		int n = board.legalMoves(moves);
+		// checked before taking the nodes too, so that a full pool isn't bumped further by every node that can't expand
+		int from = size.get() + n > capacity ? capacity : size.getAndAdd(n);
+		if (from + n > capacity) {
+			expanded.set(node, LEAF);
+			return false;
+		}
+		for (int i = 0; i < n; i++)
+			init(from + i, moves[i]);
+		first[node] = from;
+		count[node] = n;
+		// the volatile write publishes the children to threads that read EXPANDED
+		expanded.set(node, EXPANDED);
+		return true;
+	}
+
+	/**
+	 * @return the UCT choice among the children of {@code node}: an unvisited child if there is one, otherwise the child with the
+	 *         highest average score plus {@code exploration} times the usual confidence term
+	 */
+	int select(int node, double exploration) {
+		int from = first[node];
+		int to = from + count[node];
+		double logParent = Math.log(Math.max(1, visits.get(node)));
+		int best = from;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int c = from; c < to; c++) {
+			int v = visits.get(c);
+			if (v == 0)
+				return c;
+			double value = score.get(c) / (2.0 * v) + exploration * Math.sqrt(logParent / v);
+			if (value > bestValue) {
+				bestValue = value;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * One iteration of the search: selects a path down the tree from the root, whose position is {@code board}, expands the node
+	 * it ends in if that has been visited {@code expandAfter} times, plays the game out with {@code rollout} and adds the result
+	 * to every node on the path. The board is left as it was.
+	 *
+	 * @param path
+	 *            a buffer of at least one more than the number of empty cells
+	 * @param moves
+	 *            a buffer for the legal moves
+	 * @return the result of the playout: {@link Game#X_WON}, {@link Game#O_WON} or {@link Game#DRAW}
+	 */
+	int iterate(MNKBoard board, MNKPlayer rollout, double exploration, int expandAfter, int[] path, int[] moves) {
+		boolean rootXToMove = board.isXToMove();
+		int node = 0;
+		int depth = 0;
+		path[0] = 0;
+		visits.incrementAndGet(0);
+		while (!board.isTerminal()) {
+			if (expanded.get(node) != EXPANDED
+					&& (node != 0 && visits.get(node) < expandAfter || !expand(node, board, moves)))
+				break;
+			node = select(node, exploration);
+			// the virtual loss: a visit without a score until the playout is done
+			visits.incrementAndGet(node);
+			board.tryPlay(move[node]);
+			path[++depth] = node;
+		}
+
+		int played = 0;
+		while (!board.isTerminal()) {
+			int cell = rollout.getCell(board);
+			if (board.tryPlay(cell) == Game.ILLEGAL)
+				throw new IllegalStateException("Rollout plays illegal cell " + cell + " in:" + board);
+			played++;
+		}
+		int result = board.getState();
+		for (; played > 0; played--)
+			board.undo();
+
+		for (int d = depth; d > 0; d--) {
+			// the player to move at the root moved to the nodes at odd depths
+			boolean moverIsX = (d & 1) == 1 ? rootXToMove : !rootXToMove;
+			int reward = result == Game.DRAW ? 1 : (result == Game.X_WON) == moverIsX ? 2 : 0;
+			score.addAndGet(path[d], reward);
+			board.undo();
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the visits of each child of the root to {@code visitsByCell}, indexed by the cell of the child's move.
+	 */
+	void addRootVisits(long[] visitsByCell) {
+		if (expanded.get(0) != EXPANDED)
+			return;
+		for (int c = first[0]; c < first[0] + count[0]; c++)
+			visitsByCell[move[c]] += visits.get(c);
+	}
+
+	/**
+	 * @return the number of nodes in use
+	 */
+	int nodes() {
+		return Math.min(size.get(), capacity);
+	}
+
+}
@@ -0,0 +1,397 @@
+package ticTacToe;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A position of an m,n,k-game, Tic Tac Toe on a board of any size (see {@link MNKRules}): the bitboards of both players, whose
+ * turn it is, the state of the game and its 64-bit Zobrist {@link #key()}.
+ *
+ * Unlike {@link Game}, whose hash numbers every 3x3 position and indexes flat tables, this scales to boards where the positions
+ * can't be enumerated: the bitboards are {@code long}s, one per 64 cells; a move only checks the lines through the cell played;
+ * and the key is updated with two xors per move. The board is mutable and keeps the moves played, so that searches can
+ * {@link #play(int)} a move and {@link #undo()} it again without allocating anything.
+ *
+ * On 3x3 boards cells are numbered as in {@link Game}, and {@link #of(GameState)} and {@link #toGameState()} convert between the
+ * two, so that the agents of {@link Game} can play here through {@link MNKPlayer#of(Agent)}.
+ *
+ * @author ae187
+ *
+ */
+public class MNKBoard {
+
+	final MNKRules rules;
+
+	final long[] xBits, oBits;
+
+	/**
+	 * The cells played so far, in order; the first {@link #moves} are used
+	 */
+	final int[] history;
+
+	int moves;
+
+	/**
+	 * The number of pieces the board started with; only the moves after those can be undone
+	 */
+	int first;
+
+	boolean xToMove;
+
+	/**
+	 * One of {@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON} and {@link Game#DRAW}
+	 */
+	int state;
+
+	long key;
+
+	/**
+	 * An empty board with X to move
+	 *
+	 * @param rules
+	 */
+	public MNKBoard(MNKRules rules) {
+		this.rules = rules;
+		this.xBits = new long[rules.words];
+		this.oBits = new long[rules.words];
+		this.history = new int[rules.cells];
+		reset('X');
+	}
+
+	/**
+	 * An empty m,n,k board with X to move
+	 */
+	public MNKBoard(int m, int n, int k) {
+		this(MNKRules.of(m, n, k));
+	}
+
+	/**
+	 * A copy of {@code other}, including the moves that can be undone
+	 *
+	 * @param other
+	 */
+	public MNKBoard(MNKBoard other) {
+		this.rules = other.rules;
+		this.xBits = other.xBits.clone();
+		this.oBits = other.oBits.clone();
+		this.history = other.history.clone();
+		this.moves = other.moves;
+		this.first = other.first;
+		this.xToMove = other.xToMove;
+		this.state = other.state;
+		this.key = other.key;
+	}
+
+	/**
+	 * @param position
+	 * @return a 3x3 board with the pieces of {@code position} and the same player to move. No moves can be undone.
+	 */
+	public static MNKBoard of(GameState position) {
+		MNKBoard board = new MNKBoard(MNKRules.TIC_TAC_TOE);
+		board.xBits[0] = position.getXBits();
+		board.oBits[0] = position.getOBits();
+		board.xToMove = position.isXToMove();
+		board.state = position.getState();
+		board.key = board.computeKey();
+		board.moves = board.first = Integer.bitCount(position.getXBits() | position.getOBits());
+		return board;
+	}
+
+	/**
+	 * @return the 3x3 position of this board
+	 * @throws IllegalStateException
+	 *             if this is not a Tic Tac Toe board
+	 */
+	public GameState toGameState() {
+		if (rules != MNKRules.TIC_TAC_TOE)
+			throw new IllegalStateException("Not a Tic Tac Toe board: " + rules);
+		return GameState.of((int) xBits[0], (int) oBits[0], whoseTurn());
+	}
+
+	/**
+	 * Clears the board, with {@code whoseTurn} to move first.
+	 *
+	 * @param whoseTurn
+	 *            'X' or 'O'
+	 */
+	public void reset(char whoseTurn) {
+		if (whoseTurn != 'X' && whoseTurn != 'O')
+			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+		Arrays.fill(xBits, 0);
+		Arrays.fill(oBits, 0);
+		moves = first = 0;
+		xToMove = whoseTurn == 'X';
+		state = Game.ONGOING;
+		key = xToMove ? 0 : rules.oToMove;
+	}
+
+	public MNKRules getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return 'X' or 'O'
+	 */
+	public char whoseTurn() {
+		return xToMove ? 'X' : 'O';
+	}
+
+	public boolean isXToMove() {
+		return xToMove;
+	}
+
+	/**
+	 * @return one of {@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON} and {@link Game#DRAW}
+	 */
+	public int getState() {
+		return state;
+	}
+
+	public boolean isTerminal() {
+		return state != Game.ONGOING;
+	}
+
+	/**
+	 * The 64-bit Zobrist key of the position: the xor of the {@link MNKRules#zobrist(char, int) keys} of all pieces, and of a
+	 * constant if O is to move. Equal positions have equal keys; different positions collide with probability about 2^-64 per
+	 * pair.
+	 */
+	public long key() {
+		return key;
+	}
+
+	/**
+	 * @return the key computed from scratch, which must equal {@link #key()}
+	 */
+	long computeKey() {
+		long h = xToMove ? 0 : rules.oToMove;
+		for (int c = 0; c < rules.cells; c++)
+			if ((xBits[c >>> 6] & 1L << c) != 0)
+				h ^= rules.zobrist[0][c];
+			else if ((oBits[c >>> 6] & 1L << c) != 0)
+				h ^= rules.zobrist[1][c];
+		return h;
+	}
+
+	/**
+	 * @return the number of pieces on the board
+	 */
+	public int moveCount() {
+		return moves;
+	}
+
+	/**
+	 * @return the cell played last, or -1 if no move has been played on this board
+	 */
+	public int lastMove() {
+		return moves == first ? -1 : history[moves - 1];
+	}
+
+	/**
+	 * @return the character on {@code cell}: 'X', 'O' or ' '
+	 */
+	public char get(int cell) {
+		long bit = 1L << cell;
+		return (xBits[cell >>> 6] & bit) != 0 ? 'X' : (oBits[cell >>> 6] & bit) != 0 ? 'O' : ' ';
+	}
+
+	/**
+	 * @return true if the player to move can play {@code cell}
+	 */
+	public boolean isLegal(int cell) {
+		if (state != Game.ONGOING || cell < 0 || cell >= rules.cells)
+			return false;
+		return ((xBits[cell >>> 6] | oBits[cell >>> 6]) & 1L << cell) == 0;
+	}
+
+	/**
+	 * @return the number of cells the player to move can play, 0 once the game is over
+	 */
+	public int legalMoveCount() {
+		return state == Game.ONGOING ? rules.cells - moves : 0;
+	}
+
+	/**
+	 * Writes the cells the player to move can play into {@code out}, in increasing order.
+	 *
+	 * @param out
+	 *            at least {@link #legalMoveCount()} long
+	 * @return the number of cells written
+	 */
+	public int legalMoves(int[] out) {
+		if (state != Game.ONGOING)
+			return 0;
+		int count = 0;
+		for (int w = 0; w < rules.words; w++)
+			for (long empty = ~(xBits[w] | oBits[w]) & rules.full[w]; empty != 0; empty &= empty - 1)
+				out[count++] = (w << 6) + Long.numberOfTrailingZeros(empty);
+		return count;
+	}
+
+	/**
+	 * @param i
+	 *            between 0 and {@link #legalMoveCount()}-1
+	 * @return the {@code i}th legal cell in increasing order
+	 */
+	public int legalMove(int i) {
+		for (int w = 0; w < rules.words; w++) {
+			long empty = ~(xBits[w] | oBits[w]) & rules.full[w];
+			int count = Long.bitCount(empty);
+			if (i < count) {
+				for (; i > 0; i--)
+					empty &= empty - 1;
+				return (w << 6) + Long.numberOfTrailingZeros(empty);
+			}
+			i -= count;
+		}
+		throw new IllegalArgumentException("No legal move " + i);
+	}
+
+	/**
+	 * @return a legal cell picked uniformly at random, or -1 if the game is over
+	 */
+	public int randomMove(Random random) {
+		int count = legalMoveCount();
+		return count == 0 ? -1 : legalMove(random.nextInt(count));
+	}
+
+	/**
+	 * @return a cell where the player to move wins at once, the lowest one if there are several, or -1 if there is none
+	 */
+	public int winningMove() {
+		if (state != Game.ONGOING)
+			return -1;
+		long[] bits = xToMove ? xBits : oBits;
+		for (int w = 0; w < rules.words; w++)
+			for (long empty = ~(xBits[w] | oBits[w]) & rules.full[w]; empty != 0; empty &= empty - 1) {
+				long bit = empty & -empty;
+				int cell = (w << 6) + Long.numberOfTrailingZeros(bit);
+				bits[w] |= bit;
+				boolean wins = rules.wins(bits, cell);
+				bits[w] &= ~bit;
+				if (wins)
+					return cell;
+			}
+		return -1;
+	}
+
+	/**
+	 * Plays {@code cell} for the player to move, unless the move is illegal; then the board is left unchanged.
+	 *
+	 * @param cell
+	 * @return the state of the game after the move ({@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON} or {@link Game#DRAW}),
+	 *         or {@link Game#ILLEGAL} if the game is over or the cell is not empty
+	 */
+	public int tryPlay(int cell) {
+		if (!isLegal(cell))
+			return Game.ILLEGAL;
+		long[] bits = xToMove ? xBits : oBits;
+		bits[cell >>> 6] |= 1L << cell;
+		key ^= rules.zobrist[xToMove ? 0 : 1][cell] ^ rules.oToMove;
+		history[moves++] = cell;
+		if (rules.wins(bits, cell))
+			state = xToMove ? Game.X_WON : Game.O_WON;
+		else if (moves == rules.cells)
+			state = Game.DRAW;
+		xToMove = !xToMove;
+		return state;
+	}
+
+	/**
+	 * Plays {@code cell} for the player to move.
+	 *
+	 * @param cell
+	 * @throws IllegalMoveException
+	 *             if the game is over or the cell is not empty
+	 */
+	public void play(int cell) throws IllegalMoveException {
+		if (tryPlay(cell) != Game.ILLEGAL)
+			return;
+		if (state != Game.ONGOING)
+			throw new IllegalMoveException("The game is over:" + this);
+		throw new IllegalMoveException("Invalid move. Cell " + cell + " is not on the board or not empty");
+	}
+
+	/**
+	 * Takes back the last move. A move can only be played on an ongoing game, so the game is ongoing again afterwards.
+	 *
+	 * @throws IllegalStateException
+	 *             if there is no move to take back
+	 */
+	public void undo() {
+		if (moves == first)
+			throw new IllegalStateException("No move to undo");
+		int cell = history[--moves];
+		xToMove = !xToMove;
+		long[] bits = xToMove ? xBits : oBits;
+		bits[cell >>> 6] &= ~(1L << cell);
+		key ^= rules.zobrist[xToMove ? 0 : 1][cell] ^ rules.oToMove;
+		state = Game.ONGOING;
+	}
+
+	/**
+	 * The board in the format of {@link Game#toString()}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("\n");
+		for (int row = 0; row < rules.m; row++) {
+			result.append('|');
+			for (int col = 0; col < rules.n; col++)
+				result.append(get(rules.n * row + col)).append('|');
+			result.append('\n');
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Plays one game between two players on an m,n,k board and prints every move.
+	 *
+	 * @param a
+	 *            -m rows, -n columns (default m), -k in a row (default the smaller of max(m, n) and 5); -x and -o the players,
+	 *            random (the default); ab, an {@link AlphaBetaAgent}; or mcts, an {@link MCTSAgent} on all cores; the last two with
+	 *            one second per move
+	 */
+	public static void main(String a[]) {
+		List<String> args = Arrays.asList(a);
+		int m = intArg(args, "-m", 3);
+		int n = intArg(args, "-n", m);
+		int k = intArg(args, "-k", Math.min(Math.max(m, n), 5));
+		MNKBoard board = new MNKBoard(m, n, k);
+		MNKPlayer x = player(args, "-x");
+		MNKPlayer o = player(args, "-o");
+		System.out.println("Playing " + board.getRules() + ": " + board.getRules().lineCount() + " winning lines");
+		while (!board.isTerminal()) {
+			MNKPlayer who = board.isXToMove() ? x : o;
+			char name = board.whoseTurn();
+			int cell = who.getCell(board);
+			if (board.tryPlay(cell) == Game.ILLEGAL)
+				throw new IllegalStateException(name + " plays illegal cell " + cell + " in:" + board);
+			System.out.println(name + " plays (" + cell / n + "," + cell % n + "):" + board);
+		}
+		System.out.println(board.getState() == Game.DRAW ? "Draw" : (board.getState() == Game.X_WON ? "X" : "O") + " won");
+	}
+
+	static MNKPlayer player(List<String> args, String flag) {
+		int i = args.indexOf(flag);
+		String name = i >= 0 && i + 1 < args.size() ? args.get(i + 1) : "random";
+		switch (name) {
+		case "random":
+			return MNKPlayer.random();
+		case "ab":
+			return new AlphaBetaAgent(0, 1000, AlphaBetaAgent.TABLE_BITS);
+		case "mcts":
+			return new MCTSAgent(1000, 0, Runtime.getRuntime().availableProcessors(), MCTSAgent.Parallelism.TREE,
+					MNKPlayer.aggressive());
+		default:
+			throw new IllegalArgumentException(flag + " should be followed by random, ab or mcts, not " + name);
+		}
+	}
+
+	static int intArg(List<String> args, String flag, int otherwise) {
+		int i = args.indexOf(flag);
+		return i >= 0 && i + 1 < args.size() ? Integer.parseInt(args.get(i + 1)) : otherwise;
+	}
+
+}
@@ -0,0 +1,142 @@
+package ticTacToe;
+
+/**
+ * The reinforcement learning environment of {@link TTTEnvironment} on an m,n,k board of any size: the agent plays X, and the
+ * opponent, part of the environment, plays O and by default replies randomly. It has the same rewards and the same
+ * {@link #step}/{@link #tryStep} interface with a reusable {@link StepResult}, but reports states by their {@link MNKBoard#key()
+ * Zobrist key}, in {@link StepResult#key}, since larger boards have far too many states for a {@link StateIndex}. The hash and id
+ * of the result are -1.
+ *
+ * @author ae187
+ *
+ */
+public class MNKEnvironment {
+
+	/**
+	 * The board of the current episode
+	 */
+	final MNKBoard board;
+
+	final MNKPlayer opponent;
+
+	double winReward=10.0;
+	double loseReward=-50.0;
+	double livingReward=-1.00;
+	double drawReward=0.0;
+
+	/**
+	 * An environment on {@code rules} boards with a random opponent
+	 * @param rules
+	 */
+	public MNKEnvironment(MNKRules rules)
+	{
+		this(rules, MNKPlayer.random());
+	}
+
+	public MNKEnvironment(MNKRules rules, MNKPlayer opponent)
+	{
+		this.board=new MNKBoard(rules);
+		this.opponent=opponent;
+	}
+
+	/**
+	 * An environment on {@code rules} boards with the opponent and rewards of {@code env}. The opponent must be able to play on
+	 * {@code rules} boards, i.e. {@code rules} must be {@link MNKRules#TIC_TAC_TOE} unless it is a {@link RandomAgent}.
+	 * @param rules
+	 * @param env
+	 */
+	public MNKEnvironment(MNKRules rules, TTTEnvironment env)
+	{
+		this(rules, env.game.o instanceof RandomAgent ? MNKPlayer.random() : MNKPlayer.of(env.game.o));
+		this.winReward=env.winReward;
+		this.loseReward=env.loseReward;
+		this.livingReward=env.livingReward;
+		this.drawReward=env.drawReward;
+	}
+
+	public MNKBoard getBoard()
+	{
+		return board;
+	}
+
+	/**
+	 * Starts a new episode on the same board: clears it, and X is to move.
+	 */
+	public void reset()
+	{
+		board.reset('X');
+	}
+
+	public boolean isTerminal()
+	{
+		return board.isTerminal();
+	}
+
+	/**
+	 * Plays {@code cell} for X and then, unless that ends the game, the opponent's reply, and writes the reward and the resulting
+	 * state into {@code out}, as {@link TTTEnvironment#step} does.
+	 * @param cell the cell X plays
+	 * @param out receives the reward, the key of the next state and whether it is terminal
+	 * @throws IllegalMoveException if the game is over, or if X's move or the opponent's reply is illegal
+	 */
+	public void step(int cell, StepResult out) throws IllegalMoveException
+	{
+		if (board.isTerminal())
+			throw new IllegalMoveException("Executing move in terminal state:"+board);
+		else if (!board.isXToMove())
+			throw new IllegalMoveException("Trying to execute O move - the RL agent must always play as X:"+board);
+
+		if (tryStep(cell, out)==Game.ILLEGAL)
+		{
+			if (out.opponentCell<0)
+				throw new IllegalMoveException("Invalid move. Cell "+cell+" is not on the board or not empty");
+			throw new IllegalMoveException("Illegal reply by the opponent: cell "+out.opponentCell+" on:"+board);
+		}
+	}
+
+	/**
+	 * Like {@link #step}, but signals an illegal move with {@link Game#ILLEGAL} instead of an exception, as
+	 * {@link TTTEnvironment#tryStep} does.
+	 * @param cell the cell X plays
+	 * @param out receives the reward, the key of the next state and whether it is terminal
+	 * @return the state of the game after the step, as in {@link StepResult#state}, or {@link Game#ILLEGAL}
+	 */
+	public int tryStep(int cell, StepResult out)
+	{
+		out.opponentCell=-1;
+		if (!board.isXToMove())
+			return Game.ILLEGAL;
+
+		int state=board.tryPlay(cell);
+		if (state==Game.ILLEGAL)
+			return Game.ILLEGAL;
+
+		if (state==Game.X_WON)
+			out.reward=this.winReward;
+		else if (state==Game.DRAW)
+			out.reward=this.drawReward;
+		else
+		{
+			//the game is ongoing, so now it's the opponent's turn to play.
+			int oCell=opponent.getCell(board);
+			out.opponentCell=oCell;
+			state=board.tryPlay(oCell);
+
+			if (state==Game.ILLEGAL)
+				return Game.ILLEGAL;
+			else if (state==Game.O_WON)
+				out.reward=this.loseReward;
+			else if (state==Game.DRAW)
+				out.reward=this.drawReward;
+			else
+				out.reward=this.livingReward;
+		}
+
+		out.state=state;
+		out.key=board.key();
+		out.hash=-1;
+		out.id=-1;
+		return state;
+	}
+
+}
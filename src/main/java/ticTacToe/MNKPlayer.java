@@ -0,0 +1,69 @@
+package ticTacToe;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A player of m,n,k-games: picks a cell to play on an {@link MNKBoard} of any size. The counterpart of {@link Agent#getCell(Game)}
+ * for boards that {@link Game} can't represent.
+ *
+ * @author ae187
+ *
+ */
+public interface MNKPlayer {
+
+	/**
+	 * @param board
+	 *            a board where the game is not over
+	 * @return the cell the player to move plays, or -1 if there is no move
+	 */
+	int getCell(MNKBoard board);
+
+	/**
+	 * @return a player that picks a legal cell uniformly at random. It can be used from several threads at once.
+	 */
+	static MNKPlayer random() {
+		return board -> board.randomMove(ThreadLocalRandom.current());
+	}
+
+	/**
+	 * The rule of the {@link AggressivePolicy} on boards of any size: play a winning cell if there is one, and a random cell
+	 * otherwise. It can be used from several threads at once.
+	 *
+	 * @return the player
+	 */
+	static MNKPlayer aggressive() {
+		return board -> {
+			int win = board.winningMove();
+			return win >= 0 ? win : board.randomMove(ThreadLocalRandom.current());
+		};
+	}
+
+	/**
+	 * Lets a {@link Policy} of {@link Game}, such as the {@link RandomPolicy} or the {@link AggressivePolicy}, play on 3x3 boards.
+	 * Every thread converts the boards into one game of its own, which the interned {@link GameState}s make free, so this allocates
+	 * nothing as long as the policy's {@link Policy#getCell(Game)} doesn't; it can be used for rollouts.
+	 *
+	 * @param policy
+	 * @return the player
+	 */
+	static MNKPlayer of(Policy policy) {
+		ThreadLocal<Game> games = ThreadLocal.withInitial(() -> new Game(new Agent(), new Agent()));
+		return board -> {
+			Game g = games.get();
+			g.setPosition(board.toGameState());
+			return policy.getCell(g);
+		};
+	}
+
+	/**
+	 * Lets an agent of {@link Game}, such as a trained {@link ValueIterationAgent}, play on 3x3 boards: every move converts the board
+	 * to a {@link Game} and asks {@link Agent#getCell(Game)}.
+	 *
+	 * @param agent
+	 * @return the player
+	 */
+	static MNKPlayer of(Agent agent) {
+		return board -> agent.getCell(new Game(board.toGameState()));
+	}
+
+}
@@ -0,0 +1,240 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The geometry of an m,n,k-game: a board of m rows and n columns on which the first player to get k of their pieces in a row,
+ * horizontally, vertically or diagonally, wins. Tic Tac Toe is the 3,3,3-game, {@link #TIC_TAC_TOE}.
+ *
+ * Cell (row, column) is numbered {@code n*row+column}, so on 3x3 boards the cells are those of {@link Game}, 3*x+y. Bitboards have
+ * one bit per cell, cell c being bit {@code c & 63} of word {@code c >>> 6}, so boards of up to 64 cells (8x8) fit in one long
+ * and larger ones take {@link #words()} longs.
+ *
+ * Everything here is computed once, when the rules are created, and never changes, so one object is shared by all boards of the
+ * same size and by all threads: the winning lines as bitboard masks, the lines through each cell, and the random 64-bit
+ * {@link #zobrist(char, int) Zobrist keys} of each (player, cell) pair that {@link MNKBoard#key()} is built from. The keys come from
+ * a fixed seed, so the same position has the same key in every run.
+ *
+ * @author ae187
+ *
+ */
+public final class MNKRules {
+
+	/**
+	 * The rules created so far, by size
+	 */
+	private static final Map<Long, MNKRules> shared = new HashMap<Long, MNKRules>();
+
+	private static final long SEED = 0x6D6E6B5A6F627269L;
+
+	/**
+	 * The rules of Tic Tac Toe: 3 rows, 3 columns, 3 in a row
+	 */
+	public static final MNKRules TIC_TAC_TOE = of(3, 3, 3);
+
+	/**
+	 * The number of rows, columns and pieces in a row that win
+	 */
+	final int m, n, k;
+
+	final int cells;
+
+	/**
+	 * The number of longs in a bitboard
+	 */
+	final int words;
+
+	/**
+	 * The winning lines: line l is {@code lines[l*words]} to {@code lines[l*words+words-1]}
+	 */
+	final long[] lines;
+
+	final int lineCount;
+
+	/**
+	 * linesThrough[c] are the indexes of the lines that contain cell c
+	 */
+	final int[][] linesThrough;
+
+	/**
+	 * The mask of all cells
+	 */
+	final long[] full;
+
+	/**
+	 * zobrist[0][c] is the key of an X on cell c, zobrist[1][c] the key of an O
+	 */
+	final long[][] zobrist;
+
+	/**
+	 * Xored into the key when O is to move
+	 */
+	final long oToMove;
+
+	private MNKRules(int m, int n, int k) {
+		this.m = m;
+		this.n = n;
+		this.k = k;
+		this.cells = m * n;
+		this.words = (cells + 63) >>> 6;
+
+		full = new long[words];
+		for (int c = 0; c < cells; c++)
+			full[c >>> 6] |= 1L << c;
+
+		// every run of k cells in one of the four directions right, down, down-right and down-left
+		int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+		List<long[]> found = new ArrayList<long[]>();
+		List<List<Integer>> through = new ArrayList<List<Integer>>();
+		for (int c = 0; c < cells; c++)
+			through.add(new ArrayList<Integer>());
+		for (int row = 0; row < m; row++)
+			for (int col = 0; col < n; col++)
+				for (int[] d : directions) {
+					int lastRow = row + (k - 1) * d[0];
+					int lastCol = col + (k - 1) * d[1];
+					if (lastRow >= m || lastCol < 0 || lastCol >= n)
+						continue;
+					long[] line = new long[words];
+					for (int i = 0; i < k; i++) {
+						int c = n * (row + i * d[0]) + col + i * d[1];
+						line[c >>> 6] |= 1L << c;
+						through.get(c).add(found.size());
+					}
+					found.add(line);
+				}
+		lineCount = found.size();
+		lines = new long[lineCount * words];
+		for (int l = 0; l < lineCount; l++)
+			System.arraycopy(found.get(l), 0, lines, l * words, words);
+		linesThrough = new int[cells][];
+		for (int c = 0; c < cells; c++) {
+			List<Integer> ls = through.get(c);
+			linesThrough[c] = new int[ls.size()];
+			for (int i = 0; i < ls.size(); i++)
+				linesThrough[c][i] = ls.get(i);
+		}
+
+		SplittableRandom random = new SplittableRandom(SEED ^ (long) m << 40 ^ (long) n << 20 ^ k);
+		zobrist = new long[2][cells];
+		for (int c = 0; c < cells; c++) {
+			zobrist[0][c] = random.nextLong();
+			zobrist[1][c] = random.nextLong();
+		}
+		oToMove = random.nextLong();
+	}
+
+	/**
+	 * The rules for boards of {@code m} rows and {@code n} columns where {@code k} in a row win. Rules are created once per size and
+	 * then shared.
+	 *
+	 * @param m
+	 *            the number of rows
+	 * @param n
+	 *            the number of columns
+	 * @param k
+	 *            the number of pieces in a row that win, at most max(m, n)
+	 * @return the rules
+	 */
+	public static synchronized MNKRules of(int m, int n, int k) {
+		if (m < 1 || n < 1 || k < 1 || k > Math.max(m, n))
+			throw new IllegalArgumentException("Invalid board: " + m + "," + n + "," + k);
+		if ((long) m * n > 1 << 16)
+			throw new IllegalArgumentException("Board too large: " + m + "x" + n);
+		Long size = (long) m << 40 | (long) n << 20 | k;
+		MNKRules rules = shared.get(size);
+		if (rules == null)
+			shared.put(size, rules = new MNKRules(m, n, k));
+		return rules;
+	}
+
+	public int rows() {
+		return m;
+	}
+
+	public int columns() {
+		return n;
+	}
+
+	/**
+	 * @return the number of pieces in a row that win
+	 */
+	public int inARow() {
+		return k;
+	}
+
+	public int cells() {
+		return cells;
+	}
+
+	/**
+	 * @return the number of longs in a bitboard
+	 */
+	public int words() {
+		return words;
+	}
+
+	/**
+	 * @return the number of winning lines
+	 */
+	public int lineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * @return the cell in {@code row} and {@code column}
+	 */
+	public int cell(int row, int column) {
+		if (row < 0 || row >= m || column < 0 || column >= n)
+			throw new IllegalArgumentException("No cell (" + row + "," + column + ") on a " + m + "x" + n + " board");
+		return n * row + column;
+	}
+
+	/**
+	 * @param who
+	 *            'X' or 'O'
+	 * @param cell
+	 * @return the Zobrist key of a piece of {@code who} on {@code cell}
+	 */
+	public long zobrist(char who, int cell) {
+		return zobrist[who == 'X' ? 0 : 1][cell];
+	}
+
+	/**
+	 * @param bits
+	 *            a player's bitboard
+	 * @param cell
+	 *            the cell the player has just played
+	 * @return true if {@code bits} fills one of the lines through {@code cell}
+	 */
+	boolean wins(long[] bits, int cell) {
+		if (words == 1) {
+			long b = bits[0];
+			for (int l : linesThrough[cell]) {
+				long line = lines[l];
+				if ((b & line) == line)
+					return true;
+			}
+			return false;
+		}
+		for (int l : linesThrough[cell]) {
+			int from = l * words;
+			boolean filled = true;
+			for (int w = 0; w < words && filled; w++)
+				filled = (bits[w] & lines[from + w]) == lines[from + w];
+			if (filled)
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return m + "," + n + "," + k;
+	}
+
+}
@@ -1,26 +1,126 @@
 package ticTacToe;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * A move in the Tic-Tac-Toe game. If the game is modelled as an MDP, a Move is essentially an MDP Action.
+ * 
+ * Moves are immutable. There are only 18 different ones, two players times nine cells, and {@link #of(char, int)} returns a shared
+ * instance of each, so code that needs a Move object doesn't have to allocate one. {@link #listOf(char, int)} likewise returns
+ * shared, unmodifiable lists of them.
  * @author ae187
  *
  */
 public class Move {
 	
+	/**
+	 * An agent that is nothing but the name of a player, shared by all moves made with a name rather than an agent. It always has
+	 * the name it was made with, and {@link Game} refuses it as a player, since a game names its players.
+	 */
+	static class Player extends Agent {
+		
+		private final char player;
+		
+		Player(char name)
+		{
+			this.player=name;
+			this.name=name;
+		}
+		
+		@Override
+		public char getName()
+		{
+			return player;
+		}
+	}
+	
+	static final Agent X_PLAYER=new Player('X');
+	static final Agent O_PLAYER=new Player('O');
+	
+	/**
+	 * MOVES[9*p+cell] is the move to {@code cell}, by X for p=0 and by O for p=1.
+	 */
+	private static final Move[] MOVES=new Move[18];
+	
+	/**
+	 * LISTS[512*p+mask] lists the moves by the same player as {@link #MOVES} to the cells in {@code mask}, in increasing cell order.
+	 */
+	private static final List<?>[] LISTS=new List<?>[1024];
+	
+	static {
+		for (int cell=0;cell<9;cell++) {
+			MOVES[cell]=new Move(X_PLAYER, cell/3, cell%3);
+			MOVES[9+cell]=new Move(O_PLAYER, cell/3, cell%3);
+		}
+		for (int p=0;p<2;p++)
+			for (int mask=0;mask<512;mask++) {
+				List<Move> moves=new ArrayList<Move>(Integer.bitCount(mask));
+				for (int cells=mask;cells!=0;cells&=cells-1)
+					moves.add(MOVES[9*p+Integer.numberOfTrailingZeros(cells)]);
+				LISTS[512*p+mask]=Collections.unmodifiableList(moves);
+			}
+	}
+	
 	/**
 	 * can be either 'X', or 'O' 
 	 */
-	public Agent who;
-	public int x;
-	public int y;
+	public final Agent who;
+	public final int x;
+	public final int y;
+	
+	/**
+	 * @param who 'X' or 'O'
+	 * @param cell the cell, 3*x+y
+	 * @return the shared move by {@code who} to {@code cell}
+	 */
+	public static Move of(char who, int cell)
+	{
+		if (cell<0 || cell>8)
+			throw new IllegalArgumentException("Invalid cell "+cell);
+		if (who=='X')
+			return MOVES[cell];
+		else if (who=='O')
+			return MOVES[9+cell];
+		throw new IllegalArgumentException("Can only be a move by X or by O");
+	}
 	
+	/**
+	 * @param who 'X' or 'O'
+	 * @param x
+	 * @param y
+	 * @return the shared move by {@code who} to (x, y)
+	 */
+	public static Move of(char who, int x, int y)
+	{
+		if (x<0 || x>2 || y<0 || y>2)
+			throw new IllegalArgumentException("Invalid x or y coordinates");
+		return of(who, 3*x+y);
+	}
+	
+	/**
+	 * @param who 'X' or 'O'
+	 * @param mask a set of cells, bit c for cell c
+	 * @return the shared moves by {@code who} to the cells in {@code mask}, in increasing cell order. The list can't be modified.
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Move> listOf(char who, int mask)
+	{
+		if (who!='X' && who!='O')
+			throw new IllegalArgumentException("Can only be a move by X or by O");
+		return (List<Move>)LISTS[(who=='X'?0:512)+(mask&Game.FULL)];
+	}
+	
+	/**
+	 * Prefer {@link #of(char, int, int)}, which returns a shared move instead of a new one.
+	 */
 	public Move(char who, int x, int y)
 	{
 		if (who!='X' && who!='O')
 			throw new IllegalArgumentException("Can only be a move by X or by O");
 		
-		this.who=new Agent();
-		this.who.setName(who);
+		this.who=who=='X'?X_PLAYER:O_PLAYER;
 		
 		if (x<0 || x>2 || y<0 || y>2)
 			throw new IllegalArgumentException("Invalid x or y coordinates");
@@ -49,6 +149,14 @@ public class Move {
 	
 	}
 	
+	/**
+	 * @return the cell of this move, 3*x+y
+	 */
+	public int cell()
+	{
+		return 3*x+y;
+	}
+	
 	public String toString()
 	{
 		return who+"("+x+","+y+")";
@@ -1,10 +1,19 @@
 package ticTacToe;
 
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 
 /**
- * A Tic Tac Toe Policy implemented via a HashMap
+ * A Tic Tac Toe Policy implemented via a HashMap, via a flat array of moves over a {@link StateIndex}, or via a policy file
+ * mapped into memory (see {@link #save(String)}).
  * @author ae187
  *
  */
@@ -15,6 +24,36 @@ public class Policy {
 	 */
 	HashMap<Game, Move> policy=new HashMap<Game, Move>();
 	
+	/**
+	 * The states {@link #cells} is indexed by. Null if this policy is backed by the {@link #policy} map instead.
+	 */
+	StateIndex states;
+	
+	/**
+	 * cells[id] is the cell (3*x+y) to play in the state with that id in {@link #states}, or {@link #NO_MOVE}. For a canonical index
+	 * that is the cell in the canonical state, see {@link StateIndex#transform(Game)}.
+	 */
+	byte[] cells;
+	
+	/**
+	 * Marks a state without a move in {@link #cells}, e.g. a terminal one.
+	 */
+	public static final byte NO_MOVE=-1;
+	
+	/**
+	 * The policy file format: a {@link #HEADER_SIZE} byte header holding {@link #MAGIC}, {@link #VERSION} and the number of codes
+	 * ({@link StateIndex#HASH_CODES}) as big-endian ints, then one byte per possible {@link Game#hashCode()}: the cell (3*x+y) to play 
+	 * in the state with that hash, or 0xFF ({@link #NO_MOVE}) if there is none.
+	 */
+	public static final int MAGIC=0x54545450; // "TTTP"
+	public static final int VERSION=1;
+	public static final int HEADER_SIZE=16;
+	
+	/**
+	 * The body of the policy file this policy was loaded from, mapped read-only. Null if it was not loaded from a file.
+	 */
+	ByteBuffer file;
+	
 	/**
 	 * Create policy according to this map
 	 * @param policy
@@ -23,6 +62,18 @@ public class Policy {
 		this.policy=policy;
 	}
 	
+	/**
+	 * Create a policy that plays cells[id] in the state with that id in {@code states}.
+	 * @param states
+	 * @param cells one cell (3*x+y) per state, or {@link #NO_MOVE}
+	 */
+	public Policy(StateIndex states, byte[] cells) {
+		if (cells.length!=states.size())
+			throw new IllegalArgumentException("Expected one cell per state: "+states.size()+", got "+cells.length);
+		this.states=states;
+		this.cells=cells;
+	}
+	
 	public Policy()
 	{}
 	
@@ -35,6 +86,15 @@ public class Policy {
 	 */
 	public Move getMove(Game g) {
 		
+		if (isIndexed())
+		{
+			int cell=cellOfHash(g.hashCode());
+			if (cell<0)
+				return null;
+			
+			return Move.of(g.whoseTurn.getName(), cell);
+		}
+		
 		if (policy.containsKey(g))
 			return policy.get(g);
 		
@@ -44,21 +104,119 @@ public class Policy {
 	}
 	
 	/**
-	 * loads policy from file. One possible format for storing a policy is as a sequence of lines where each line
-	 * specifies the action/move determined by the policy in a particular game state. The game states should not
-	 * explicitly stored, only their hashes are stored. The {@link Game} object itself can be constructed using the 
-	 * {@link Game#inverseHash} method.
+	 * The move of {@link #getMove(Game)} as a cell index, 3*x+y. For a policy over a {@link StateIndex} this is a couple of array
+	 * reads and allocates nothing. Subclasses that pick moves some other way should override this too if they are used in
+	 * allocation-free loops such as {@link TTTEnvironment#step}.
+	 * 
+	 * @param g
+	 * @return the cell to play, or -1 if the policy has no move for {@code g}
+	 */
+	public int getCell(Game g) {
+		
+		if (isIndexed())
+			return cellOfHash(g.hashCode());
+		
+		Move m=getMove(g);
+		return m==null?-1:3*m.x+m.y;
+	}
+	
+	/**
+	 * @return true if this policy is backed by a {@link StateIndex} or a policy file, so that {@link #cellOfHash(int)} works
+	 */
+	public boolean isIndexed() {
+		return cells!=null || file!=null;
+	}
+	
+	/**
+	 * The move of a policy backed by a {@link StateIndex} or a policy file, for a state given by its hash only, e.g. a board of a 
+	 * {@link BatchEnvironment}.
+	 * 
+	 * @param hash a hash as returned by {@link Game#hashCode()}
+	 * @return the cell (3*x+y) to play in the state with that hash, or -1 if there is none or the policy is not {@link #isIndexed() indexed}
+	 */
+	public int cellOfHash(int hash) {
+		if (file!=null)
+			return file.get(hash);
+		
+		if (cells==null)
+			return -1;
+		
+		int id=states.idOfHash(hash);
+		if (id<0 || cells[id]==NO_MOVE)
+			return -1;
+		
+		//cells are stored for the state in the index, which may be a rotation or reflection of the state with this hash
+		return Symmetry.invert(states.transformOfHash(hash), cells[id]);
+	}
+	
+	/**
+	 * Loads a policy written by {@link #save(String)}. The file is mapped into memory read-only rather than read, so processes that
+	 * load the same file share one copy of it in the page cache, and looking up a move is one read of the mapped bytes.
 	 *  
 	 * @param file
+	 * @throws IOException if the file can't be read or is not a policy file
 	 */
-	public Policy(String file)
+	public Policy(String file) throws IOException
 	{
-		/* implement this constructor to load a stored policy from file. */
+		MappedByteBuffer mapped;
+		try (FileChannel channel=FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			if (channel.size()!=HEADER_SIZE+StateIndex.HASH_CODES)
+				throw new IOException("Not a policy file, wrong size "+channel.size()+": "+file);
+			mapped=channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		mapped.order(ByteOrder.BIG_ENDIAN);
+		if (mapped.getInt(0)!=MAGIC)
+			throw new IOException("Not a policy file: "+file);
+		if (mapped.getInt(4)!=VERSION)
+			throw new IOException("Unsupported policy file version "+mapped.getInt(4)+": "+file);
+		if (mapped.getInt(8)!=StateIndex.HASH_CODES)
+			throw new IOException("Policy file has "+mapped.getInt(8)+" codes instead of "+StateIndex.HASH_CODES+": "+file);
 		
+		mapped.position(HEADER_SIZE);
+		this.file=mapped.slice();
 	}
-
-	
 	
+	/**
+	 * Writes this policy in the format {@link #Policy(String)} loads: for every hash of a reachable, unfinished game, the cell this
+	 * policy's {@link #getCell(Game)} plays there, if it is a legal move. Works for any policy, but for one that is not
+	 * {@link #isIndexed() indexed} every game is built with {@link Game#inverseHash} and asked for its move, which takes longer.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(String file) throws IOException
+	{
+		ByteBuffer out=ByteBuffer.allocate(HEADER_SIZE+StateIndex.HASH_CODES).order(ByteOrder.BIG_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION).putInt(StateIndex.HASH_CODES).putInt(0);
+		for (int hash=0;hash<StateIndex.HASH_CODES;hash++)
+			out.put((byte)cellToSave(hash));
+		
+		Files.write(Paths.get(file), out.array());
+	}
 	
+	/**
+	 * @return the cell to store for {@code hash} in a policy file, or -1 (0xFF) for none
+	 */
+	private int cellToSave(int hash)
+	{
+		if (isIndexed())
+			return cellOfHash(hash);
+		
+		if (!ReachableStates.isReachable(hash))
+			return -1;
+		
+		Game g=Game.inverseHash(hash);
+		
+		g.evaluateGameState();
+		if (g.isTerminal())
+			return -1;
+		
+		int cell=getCell(g);
+		if (cell<0 || (g.emptyCells()&(1<<cell))==0)
+			return -1;
+		
+		return cell;
+	}
 
 }
@@ -1,11 +1,8 @@
 package ticTacToe;
 
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
+import java.io.IOException;
 import java.util.Random;
-import java.util.Set;
 /**
  * A policy iteration agent. You should implement the following methods:
  * (1) {@link PolicyIterationAgent#evaluatePolicy}: this is the policy evaluation step from your lectures
@@ -21,17 +18,30 @@ import java.util.Set;
  * @author ae187
  *
  */
-public class PolicyIterationAgent extends Agent {
+public class PolicyIterationAgent extends Agent implements Snapshot.Trainable {
 
 	/**
-	 * This map is used to store the values of states according to the current policy (policy evaluation). 
+	 * The states the agent plans over: all reachable games where it is X's turn, or it's terminal.
 	 */
-	HashMap<Game, Double> policyValues=new HashMap<Game, Double>();
+	StateIndex states;
 	
 	/**
-	 * This stores the current policy as a map from {@link Game}s to {@link Move}. 
+	 * If true (the default) {@link #states} only holds one game per class of games that are rotations or reflections of each other,
+	 * which shrinks every table roughly eightfold without changing any value.
 	 */
-	HashMap<Game, Move> curPolicy=new HashMap<Game, Move>();
+	boolean symmetric=true;
+	
+	/**
+	 * This array is used to store the values of states according to the current policy (policy evaluation): policyValues[id] is the
+	 * value of the state with that id in {@link #states}.
+	 */
+	double[] policyValues;
+	
+	/**
+	 * This stores the current policy: curPolicy[id] is the cell (3*x+y) played in the state with that id in {@link #states},
+	 * or {@link Policy#NO_MOVE} for terminal states.
+	 */
+	byte[] curPolicy;
 	
 	double discount=0.9;
 	
@@ -41,14 +51,15 @@ public class PolicyIterationAgent extends Agent {
 	TTTMDP mdp;
 	
 	/**
-	 * loads the policy from file if one exists. Policies should be stored in .pol files directly under the project folder.
+	 * Trains the agent, or if snapshots are enabled (see {@link Snapshot}) and the last snapshot was made with the same parameters,
+	 * loads the values and the policy from that instead.
 	 */
 	public PolicyIterationAgent() {
 		super();
 		this.mdp=new TTTMDP();
 		initValues();
 		initRandomPolicy();
-		train();
+		Snapshot.loadOrTrain(this, "policy-iteration");
 		
 		
 	}
@@ -93,16 +104,61 @@ public class PolicyIterationAgent extends Agent {
 		train();
 	}
 	/**
-	 * Initialises the {@link #policyValues} map, and sets the initial value of all states to 0 
-	 * (V0 under some policy pi ({@link #curPolicy} from the lectures). Uses {@link Game#inverseHash} and {@link Game#generateAllValidGames(char)} to do this. 
+	 * Initialises the {@link #policyValues} array, and sets the initial value of all states to 0 
+	 * (V0 under some policy pi ({@link #curPolicy} from the lectures). Uses the shared {@link StateIndex} over {@link ReachableStates#forPlayer(char)} to do this. 
 	 * 
 	 */
 	public void initValues()
 	{
-		List<Game> allGames=Game.generateAllValidGames('X');//all valid games where it is X's turn, or it's terminal.
-		for(Game g: allGames)
-			this.policyValues.put(g, 0.0);
+		this.states=StateIndex.forPlayer('X', symmetric);//all reachable games where it is X's turn, or it's terminal.
+		this.policyValues=new double[states.size()];
+		
+	}
+	
+	/**
+	 * @return a snapshot header with this agent's parameters and no arrays
+	 */
+	Snapshot snapshotHeader()
+	{
+		return new Snapshot(Snapshot.POLICY_ITERATION, states, discount, mdp.winReward, mdp.loseReward, mdp.livingReward, 
+				mdp.drawReward, exactEvaluation?1:0, delta);
+	}
+	
+	/**
+	 * Saves {@link #policyValues} and {@link #curPolicy} with the parameters they were trained with.
+	 */
+	public void saveSnapshot(String file) throws IOException
+	{
+		Snapshot snapshot=snapshotHeader();
+		snapshot.doubles=policyValues;
+		snapshot.bytes=curPolicy;
+		snapshot.save(file);
+	}
+	
+	/**
+	 * Loads {@link #policyValues} and {@link #curPolicy} from a snapshot, if it was made with this agent's parameters. Call
+	 * {@link #initValues()} first.
+	 */
+	public boolean loadSnapshot(String file) throws IOException
+	{
+		Snapshot snapshot=Snapshot.load(file);
+		if (!snapshot.sameParameters(snapshotHeader()) || snapshot.doubles.length!=states.size() 
+				|| snapshot.bytes.length!=states.size())
+			return false;
 		
+		policyValues=snapshot.doubles;
+		curPolicy=snapshot.bytes;
+		super.policy=new Policy(states, curPolicy);
+		return true;
+	}
+	
+	/**
+	 * @param g
+	 * @return the value of game {@code g} under the current policy, see {@link #policyValues}
+	 */
+	public double getValue(Game g)
+	{
+		return policyValues[states.id(g)];
 	}
 	
 	/**
@@ -114,23 +170,24 @@ public class PolicyIterationAgent extends Agent {
 	{
 		//instance of random
 		Random rand = new Random();
-		//get set of states
-		Set<Game> games = policyValues.keySet();
+		curPolicy = new byte[states.size()];
 		//initialise rand number 
 		int randN = 0;
 		//loop for every state
-		for(Game g: games) {
+		for(int id=0;id<states.size();id++) {
+			GameState g=states.position(id);
+			curPolicy[id]=Policy.NO_MOVE;
 			//check the game is ongoing
-			int gameStatus = g.evaluateGameState();
-			if(gameStatus == 0) {
-				//get list of valid moves
-				List<Move> moves = g.getPossibleMoves();
-				//generate ran number within size of moves list 
-				randN = rand.nextInt(moves.size());
-				//get random move
-				Move move = moves.get(randN);
+			if(g.getState() == Game.ONGOING) {
+				//get the valid moves
+				int moves = g.legalMoveMask();
+				//generate ran number within the number of moves 
+				randN = rand.nextInt(Integer.bitCount(moves));
+				//get random move: drop the randN lowest cells
+				for(;randN>0;randN--)
+					moves&=moves-1;
 				//set current policy of that state to random move
-				curPolicy.put(g, move);
+				curPolicy[id]=(byte)Integer.numberOfTrailingZeros(moves);
 			}
 			
 			
@@ -149,78 +206,59 @@ public class PolicyIterationAgent extends Agent {
 	 */
 	protected void evaluatePolicy(double delta)
 	{
-		//get set of games states
-		Set<Game> games = curPolicy.keySet();
+		CompiledMDP model=mdp.compile(states);
 		//create boolean for if change is less than delta
-		Boolean lessDelta = false;
+		boolean lessDelta = false;
 		//while change is still not less than delta
 		while(lessDelta == false) {
-			//set max change to something very small
-			double maxChange = -99999;
+			//the largest change in either direction
+			double maxChange = 0;
 			//loop for all games
-			for(Game g: games) {
+			for(int s=0;s<model.stateCount();s++) {
 				//check the game is ongoing
-				if(!g.isTerminal())
+				if(!model.isTerminal(s))
 				{
-					//generate game transition objects
-					List<TransitionProb> outcomes = mdp.generateTransitions(g, curPolicy.get(g));
-					//initialise and reset result for every game 
-					double result = 0;
-					//loop for how many outcomes there is
-					for(int i =0;i < outcomes.size();i++) {
-						//get reward 
-						double reward = outcomes.get(i).outcome.localReward;
-						//get probability
-						double prob = outcomes.get(i).prob;
-						//get next state 
-						Game sPrime = outcomes.get(i).outcome.sPrime;
-						//calculate the result and add it to previous 
-						result = result+( prob*(reward + (this.discount*policyValues.get(sPrime))));
-						
-						}
-					//Initialise change to result take away previous result
-					double change = (result - policyValues.get(g));
-					
-					
-					
-					//if change is a negative
-					//if(change < 0) {
-						//disregard the negative if change is greater than maxchange 
-						//if ((-change) > maxChange) {
-							//set maxchange to the new change 
-							//maxChange = (-change);
-						//}
-					//}else {
-						//change must already be positve 
-					
-					
-					
-					
+					//the expected return of the move the current policy plays
+					double result = model.qValue(model.action(s, curPolicy[s]), policyValues, discount);
+					//Initialise change to result take away previous result; values can go down as well as up
+					double change = Math.abs(result - policyValues[s]);
 					//if change is greater than maxchange 
 					if(change > maxChange) {
-							//set maxchange to change
+						//set maxchange to change
 						maxChange = change;
 					}
-					//}
-					//add to hashmap 
-					this.policyValues.put(g, result);
+					//add to value array 
+					this.policyValues[s] = result;
 				}
 				else {
 					//if terminal set value to zero
-					this.policyValues.put(g, 0.0);
+					this.policyValues[s] = 0.0;
 				}
-				
-				
-			
 			}
+			evaluationSweeps++;
 			//if make change is smaller than delta stop while loop
-			
 			if(maxChange < delta) {
-				
 				lessDelta = true;	
 			}	
 		}
 	}
+	
+	/**
+	 * Computes the values of the current policy exactly, in a single pass over the states in {@link CompiledMDP#topologicalOrder()}:
+	 * every move adds a piece, so all successors of a state already have their final values when it is evaluated. After running this
+	 * method {@link #policyValues} holds V under {@link #curPolicy}.
+	 */
+	protected void evaluatePolicyExact()
+	{
+		CompiledMDP model=mdp.compile(states);
+		for(int s: model.topologicalOrder()) {
+			if(model.isTerminal(s))
+				this.policyValues[s] = 0.0;
+			else
+				this.policyValues[s] = model.qValue(model.action(s, curPolicy[s]), policyValues, discount);
+		}
+		evaluationSweeps++;
+	}
 		
 		
 	
@@ -229,68 +267,40 @@ public class PolicyIterationAgent extends Agent {
 	 * {@link PolicyIterationAgent#policyValues}. You will need to do a single step of expectimax from each game (state) key in {@link PolicyIterationAgent#curPolicy} 
 	 * to look for a move/action that potentially improves the current policy. 
 	 * 
+	 * A state only switches to another move if that move's q value is strictly higher than that of the move it plays now, so ties never
+	 * make the policy flip back and forth, and the policy is stable exactly when no state changed its move.
+	 * 
 	 * @return true if the policy improved. Returns false if there was no improvement, i.e. the policy already returned the optimal actions.
 	 */
 	protected boolean improvePolicy()
 	{
+		CompiledMDP model=mdp.compile(states);
 		boolean hasimproved = false;
 		
-		//get set of game states
-		Set<Game> games = curPolicy.keySet();
 		//loop for game in games
-		for(Game g: games) {
-			//get list of possible moves for state
-			List<Move> moves = g.getPossibleMoves();
-			//set max to really low number
-			double max = -99999;
-			//Initialise bestmove 
-			Move bestmove = null;
-			//loop for all moves 
-			for(Move m: moves) {
-				//get transition objects
-				List<TransitionProb> outcomes = mdp.generateTransitions(g, m);
-				//reset result to 0
-				double result = 0;
-				
-				//loop for all transition objects
-				for(int i =0;i < outcomes.size();i++) {
-					
-					//get reward
-					double reward = outcomes.get(i).outcome.localReward;
-					//get probability 
-					double prob = outcomes.get(i).prob;
-					//get target state
-					Game sPrime = outcomes.get(i).outcome.sPrime;
-					//get result
-					result = result +(prob*(reward + (this.discount*this.policyValues.get(sPrime))));
-					 
-				}
-				//if max is smaller than result set max to result and set bestmove to current move
-				if(max < result) {
-					max = result;
-					bestmove = m;
-					
+		for(int s=0;s<model.stateCount();s++) {
+			if(model.isTerminal(s))
+				continue;
+			//start from the move the current policy plays, and only replace it with a strictly better one
+			int current=model.action(s, curPolicy[s]);
+			int best=current;
+			double max=model.qValue(current, policyValues, discount);
+			for(int a=model.actionStart[s];a<model.actionStart[s+1];a++) {
+				double q=model.qValue(a, policyValues, discount);
+				if(q > max) {
+					max=q;
+					best=a;
 				}
-				
 			}
-			//make sure policy has improved
-			if(max > this.policyValues.get(g)) {
+			//the policy changed if the chosen move changed
+			if(best != current) {
 				// add new action to current policy 
-				this.curPolicy.put(g, bestmove);
+				this.curPolicy[s] = model.actionCell[best];
 				//flag there has been an improvement 
 				hasimproved = true;
 			}
-			
-				
-		}
-		//if there has been an improvement
-		if(hasimproved) {
-			//return true 
-			return true;
-		}else {
-			//return false 
-			return false;
 		}
+		return hasimproved;
 	}
 	
 	/**
@@ -298,6 +308,19 @@ public class PolicyIterationAgent extends Agent {
 	 */
 	double delta=0.1;
 	
+	/**
+	 * If true (the default) {@link #train()} evaluates each policy exactly with {@link #evaluatePolicyExact()}; otherwise iteratively, 
+	 * to within {@link #delta}, with {@link #evaluatePolicy(double)}.
+	 */
+	boolean exactEvaluation=true;
+	
+	/**
+	 * Statistics of the last {@link #train()}: the number of policy evaluation/improvement iterations, and the number of sweeps over
+	 * the states policy evaluation took in total.
+	 */
+	int iterations;
+	int evaluationSweeps;
+	
 	/**
 	 * This method should perform policy evaluation and policy improvement steps until convergence (i.e. until the policy
 	 * no longer changes), and so uses your 
@@ -307,16 +330,29 @@ public class PolicyIterationAgent extends Agent {
 	{
 		//create boolean for to keep track of convergence 
 		boolean notConvergence = true;
+		iterations = 0;
+		evaluationSweeps = 0;
+		long start=System.nanoTime();
+		//reports one step per improvement, and stops here if a background training run is cancelled
+		Training.Progress progress=Training.progress();
+		progress.start(0);
 		//loop while convergence is false
 		while(notConvergence) {
 			//Evaluate policy
-			evaluatePolicy(this.delta);
+			if(exactEvaluation)
+				evaluatePolicyExact();
+			else
+				evaluatePolicy(this.delta);
+			iterations++;
 			//set notconvergence to improved  policy
 			//when there is no more improvements to be made, convergence will be false loop will terminate
 			notConvergence = improvePolicy();
+			progress.advance(1);
 		}
+		System.out.printf("Policy iteration (%s evaluation): %d iterations, %d evaluation sweeps, %.1f ms%n",
+				exactEvaluation?"exact":"iterative", iterations, evaluationSweeps, (System.nanoTime()-start)/1e6);
 		//set agent policy to the current policy after training
-		super.policy = new Policy(curPolicy);
+		super.policy = new Policy(states, curPolicy);
 	}
 	
 	public static void main(String[] args) throws IllegalMoveException
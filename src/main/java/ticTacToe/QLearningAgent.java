@@ -1,13 +1,16 @@
 package ticTacToe;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Random;
-import java.util.Set;
-
-import javax.swing.text.html.HTMLDocument.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * A Q-Learning agent with a Q-Table, i.e. a table of Q-Values. This table is implemented in the {@link QTable} class.
@@ -22,7 +25,7 @@ import javax.swing.text.html.HTMLDocument.Iterator;
  * @author ae187
  */
 
-public class QLearningAgent extends Agent {
+public class QLearningAgent extends Agent implements Snapshot.Trainable {
 	
 	/**
 	 * The learning rate, between 0 and 1.
@@ -47,12 +50,13 @@ public class QLearningAgent extends Agent {
 	
 	/**
 	 * This is the Q-Table. To get an value for an (s,a) pair, i.e. a (game, move) pair, you can do
-	 * qTable.get(game).get(move) which return the Q(game,move) value stored. Be careful with 
-	 * cases where there is currently no value. You can use the containsKey method to check if the mapping is there.
+	 * qTable.getQValue(game, move) which return the Q(game,move) value stored. Be careful with 
+	 * cases where there is currently no value, where it returns null.
 	 * 
+	 * Games that are rotations or reflections of each other share their Q-values, see {@link StateIndex#forPlayer(char, boolean)}.
 	 */
 	
-	QTable qTable=new QTable();
+	QTable qTable=new QTable(StateIndex.forPlayer('X', true));
 	
 	
 	/**
@@ -62,6 +66,21 @@ public class QLearningAgent extends Agent {
 	 */
 	TTTEnvironment env=new TTTEnvironment();
 	
+	/**
+	 * The number of threads episodes are played on, see {@link #setThreads}. 
+	 */
+	int threads=1;
+	
+	/**
+	 * The number of games played in lockstep in a {@link BatchEnvironment}, see {@link #setBatchSize}; 0 to play one game at a time.
+	 */
+	int batchSize=0;
+	
+	/**
+	 * The number of episodes between two progress reports to a background {@link Training}.
+	 */
+	static final int REPORT_EVERY=1000;
+	
 	
 	/**
 	 * Construct a Q-Learning agent that learns from interactions with {@code opponent}.
@@ -86,30 +105,61 @@ public class QLearningAgent extends Agent {
 	
 	protected void initQTable()
 	{
-		List<Game> allGames=Game.generateAllValidGames('X');//all valid games where it is X's turn, or it's terminal.
-		for(Game g: allGames)
-		{
-			List<Move> moves=g.getPossibleMoves();
-			for(Move m: moves)
-			{
-				this.qTable.addQValue(g, m, 0.0);
-				//System.out.println("initing q value. Game:"+g);
-				//System.out.println("Move:"+m);
-			}
-			
-		}
+		//all reachable games where it is X's turn, or it's terminal, are in the q table's state index
+		this.qTable.initLegalMoves();
 		
 	}
 	
 	/**
 	 * Uses default parameters for the opponent (a RandomAgent) and the learning rate (0.2). Use other constructor to set these manually.
+	 * If snapshots are enabled, see {@link Snapshot}, the q-values are loaded from the last snapshot instead of learned, when it was made 
+	 * with the same parameters.
 	 */
 	public QLearningAgent()
 	{
-		this(new RandomAgent(), 0.2, 30000, 0.9);
+		//the defaults of the fields: a RandomAgent opponent, alpha 0.2, 30000 episodes, discount 0.9
+		super();
+		initQTable();
+		Snapshot.loadOrTrain(this, "q-learning");
 		
 	}
 	
+	/**
+	 * @return a snapshot header with this agent's parameters and no arrays. The opponent is identified by its class.
+	 */
+	Snapshot snapshotHeader()
+	{
+		return new Snapshot(Snapshot.Q_LEARNING, qTable.getStates(), discount, env.winReward, env.loseReward, env.livingReward, 
+				env.drawReward, alpha, epsilon, numEpisodes, env.game.o.getClass().getName().hashCode());
+	}
+	
+	/**
+	 * Saves the q-values and legal moves of the {@link #qTable} with the parameters they were learned with.
+	 */
+	public void saveSnapshot(String file) throws IOException
+	{
+		Snapshot snapshot=snapshotHeader();
+		snapshot.doubles=qTable.toArray();
+		snapshot.shorts=qTable.legal.clone();
+		snapshot.save(file);
+	}
+	
+	/**
+	 * Loads the q-values and legal moves of the {@link #qTable} from a snapshot, if it was made with this agent's parameters, and
+	 * extracts the policy.
+	 */
+	public boolean loadSnapshot(String file) throws IOException
+	{
+		Snapshot snapshot=Snapshot.load(file);
+		if (!snapshot.sameParameters(snapshotHeader()) || snapshot.doubles.length!=9*qTable.size() 
+				|| snapshot.shorts.length!=qTable.size())
+			return false;
+		
+		qTable.restore(snapshot.doubles, snapshot.shorts);
+		this.policy=extractPolicy();
+		return true;
+	}
+	
 	/**
 	 * Returns the entry with the max q value
 	 * 
@@ -119,20 +169,11 @@ public class QLearningAgent extends Agent {
 	public HashMap.Entry<Move, Double> maxQ(Game state) {
 		if(!state.isTerminal()) 
 		{
-			HashMap<Move, Double> moveQs = qTable.get(state);
-			Double maxQ = -Double.MAX_VALUE;
-			HashMap.Entry<Move, Double> maxEntry = null;
-		
-			for (HashMap.Entry<Move, Double> q : moveQs.entrySet())
-			{
-				if (q.getValue() > maxQ)
-			    	{
-						
-				 		maxQ = q.getValue();
-				 		maxEntry = q;
-			    	}
-			}
-			return maxEntry;
+			Move best=qTable.bestMove(state);
+			if (best==null)
+				return null;
+			
+			return new AbstractMap.SimpleEntry<Move, Double>(best, qTable.getQValue(state, best));
 		}
 		return null;
 		
@@ -143,6 +184,14 @@ public class QLearningAgent extends Agent {
 	 *  to the Q-Learning algorithm as required. The agent should play according to an epsilon-greedy policy where with the probability {@code epsilon} the
 	 *  agent explores, and with probability {@code 1-epsilon}, it exploits. 
 	 *  
+	 *  The episodes are played in {@link #env}, reset between episodes, through {@link TTTEnvironment#step}, and the q-values are read and
+	 *  written through the primitive {@link QTable} methods, by state id and cell in the table's frame; so against an opponent whose moves 
+	 *  don't allocate, such as the {@link RandomAgent}, an episode allocates nothing.
+	 *  
+	 *  With more than one {@link #threads thread} the episodes are split over workers that share one {@link AtomicQTable}, see 
+	 *  {@link #trainParallel(Training.Progress)}.
+	 *  With a {@link #batchSize} the episodes are played in a {@link BatchEnvironment} instead, see {@link #playBatch}.
+	 *  
 	 *  At the end of this method you should always call the {@code extractPolicy()} method to extract the policy from the learned q-values. This is currently
 	 *  done for you on the last line of the method.
 	 *  
@@ -150,186 +199,246 @@ public class QLearningAgent extends Agent {
 	
 	public void train() 
 	{	
+		//one environment, with the opponent given in the constructor, and one result object for all episodes
+		env.setStateIndex(qTable.getStates());
+		//reports episodes played, and stops training if a background training run is cancelled
+		Training.Progress progress=Training.progress();
+		progress.start(this.numEpisodes);
+		if (batchSize>0)
+			playBatch(this.numEpisodes, progress);
+		else if (threads==1)
+			playEpisodes(env, this.numEpisodes, new Random(), progress);
+		else
+			trainParallel(progress);
 		
-		//get number of episodes
-		int epi = this.numEpisodes;
-		
-		
-		
+		//--------------------------------------------------------
+		//you shouldn't need to delete the following lines of code.
+		this.policy=extractPolicy();
+		if (this.policy==null)
+		{
+			System.out.println("Unimplemented methods! First implement the train() & extractPolicy methods");
+			//System.exit(1);
+		}
+	}
 	
-		//used for debugging
-		int i =0;
+	/**
+	 * Plays {@code episodes} episodes in {@code env}, resetting it before each one, and updates the q-values after every step with
+	 * {@link QTable#update}. Only reads the fields of this agent, so several threads can run it at once, each with its own environment
+	 * and random generator, if the q-table is an {@link AtomicQTable}.
+	 * @param env an environment reporting ids in the q-table's state index
+	 * @param episodes
+	 * @param random
+	 * @param progress told about every {@link #REPORT_EVERY} episodes
+	 * @throws IllegalStateException if a move played is illegal, which means the q-table or the opponent is broken
+	 */
+	void playEpisodes(TTTEnvironment env, int episodes, Random random, Training.Progress progress)
+	{
+		QTable qTable=this.qTable;
+		StateIndex states=qTable.getStates();
+		StepResult out=new StepResult();
+		
 		//while there is still episodes to be played
-		while(epi > 0) {
-			i++;
-			//set the training environment to be the same as the normal environment
-			TTTEnvironment trainingE = new TTTEnvironment();
-			
+		int reported=0;
+		for(int epi=0;epi<episodes;epi++) {
+			if (epi-reported==REPORT_EVERY) {
+				progress.advance(REPORT_EVERY);
+				reported=epi;
+			}
+			env.reset();
+			int hash=env.game.hashCode();
+			int s=states.idOfHash(hash);
 			
-			//while g is not terminal 
-			while(!trainingE.game.isTerminal()) {
-				//set trainingE
-				Game g = trainingE.game;
-				//generate random number
-				double z = Math.random();
-				//initialise sample, currentAvg, outcome, reward, maxQ and sPrime to null
-				double sample = 0;
-				double currentAvg = 0;
-				Outcome outcome = null;
-				Game previousS = null;
-				double reward = 0;
-				Game sPrime = null;
-				HashMap.Entry<Move, Double> maxQ = null;
+			//while the game is not terminal 
+			while(true) {
+				//the transform from the game to the state the row of s is stored for
+				int t=states.transformOfHash(hash);
 				
-				
-				//if random number is less than epsilon explore
-				if(z <= epsilon)
+				int cell;
+				//if random number is less than epsilon explore: pick any legal move
+				if(random.nextDouble() <= epsilon)
 				{
-					//get all possible moves from state
-					List<Move> moves = g.getPossibleMoves();
-					//set the maxMove to the last move in moves
-					int maxMove = moves.size()-1;
-					//set Min to  the first move in move
-					int min = 0;
-					//generate random index using math, which is inside the range of moves
-					int x = (int)(Math.random() * (maxMove- min +1)+ min);
+					int legal=qTable.legalMask(s);
+					//drop a random number of the lowest legal cells, then take the lowest one left
+					for(int skip=random.nextInt(Integer.bitCount(legal));skip>0;skip--)
+						legal&=legal-1;
+					cell=Integer.numberOfTrailingZeros(legal);
+				}
+				//otherwise exploit: the move where q is max
+				else
+					cell=qTable.argmax(s);
 				
-					//select move at this random index
-					Move m = moves.get(x);
-					
-					//if the move is legal
-					if(g.isLegal(m)) 
-					{
-						//execute move and set to outcome
-						try {
-							outcome = trainingE.executeMove(m);
-							
-						} catch (IllegalMoveException e) {
-								// TODO Auto-generated catch block
-								e.printStackTrace();
-						}
-						//get local reward
-						reward = outcome.localReward;
-						//get s prime
-						sPrime = outcome.sPrime;
-						//get previous state
-						previousS = outcome.s;
-						//if S prime is not terminal
-						if(!sPrime.isTerminal())
-						{
-							//get max q value 
-							maxQ = maxQ(sPrime);
-							//calculate sample
-							sample = (reward + this.discount*(maxQ.getValue()));
-							//get the new current average using the old average, learning rate and sample
-							currentAvg = ((1-this.alpha)*qTable.getQValue(previousS, m)) +(this.alpha*sample);
-							
-							
-						}
-						//s prime is terminal
-						else {
-							//maxQ of sprime will be 0 as its termainl
-							sample = (reward + 0);
-							//get current average using the old average, learning rate and sample
-							currentAvg = ((1-this.alpha)*qTable.getQValue(previousS, m)) + (this.alpha*sample);
-							//update q value for that move 	
-							qTable.get(previousS).replace(m, currentAvg);
-							break;
-						}
-						//update q value for that move 	
-						qTable.get(previousS).replace(m, currentAvg);
-						
-								
-								
-						}
-							
-						
-					}
-					else {
-						//get action where q is max
-						maxQ = maxQ(g);
-						//check its legal move and agents turn
-						if(g.isLegal(maxQ.getKey()))
-						{
-							//execute move
-							try {
-								outcome = trainingE.executeMove(maxQ.getKey());
-								
-							} catch (IllegalMoveException e) {
-								// TODO Auto-generated catch block
-								e.printStackTrace();
-							}
-							//get s prime and local reward 
-							reward = outcome.localReward;
-							sPrime = outcome.sPrime;
-							previousS = outcome.s;
-							//id s prime is not terminal
-							if((!sPrime.isTerminal()))
-							{
-								//get max q value for s prime
-								HashMap.Entry<Move, Double> primeMaxQ = maxQ(sPrime);		
-								//calculate sample
-								sample = (reward + this.discount*(primeMaxQ.getValue()));
-								//get the new current average using the old average, learning rate and sample
-								currentAvg = ((1-this.alpha)*qTable.getQValue(previousS, maxQ.getKey())) +(this.alpha*sample);
-								
-								
-							}
-							else {
-								//sample is reward pluss 0 as sprime is terminal
-								sample =(reward +0);
-								//get the new current average using the old average, learning rate and sample
-								currentAvg = ((1-this.alpha)*qTable.getQValue(previousS, maxQ.getKey())) +(this.alpha*sample);
-								qTable.get(previousS).replace(maxQ.getKey(), currentAvg);
-								break;
-
-							}
-							
-							//update q value for that move 	
-							qTable.get(previousS).replace(maxQ.getKey(), currentAvg);
-							
-						}
-					
-					}
-					
+				//execute move, as it is on the actual board
+				if (env.tryStep(Symmetry.invert(t, cell), out)==Game.ILLEGAL)
+					throw new IllegalStateException("Illegal move: cell "+Symmetry.invert(t, cell)+", opponent cell "+out.opponentCell+" on:"+env.game);
+				
+				//sample is the reward plus the discounted max q value of s prime, which is 0 if s prime is terminal
+				double sample = out.reward;
+				if(!out.isTerminal())
+					sample += this.discount*qTable.max(out.id);
+				
+				//get the new current average using the old average, learning rate and sample
+				qTable.update(s, cell, this.alpha, sample);
+				
+				if(out.isTerminal())
+					break;
+				hash=out.hash;
+				s=out.id;
 			}
-			epi--;
 		}
-		 
-		System.out.println("the num of epi " + i);
+		progress.advance(episodes-reported);
+	}
+	
+	/**
+	 * Plays episodes on {@link #batchSize} boards of a {@link BatchEnvironment} in lockstep until at least {@code episodes} of them
+	 * have ended: each step picks an epsilon-greedy move for every board, steps all boards, and then does the q-value update of
+	 * every board. The batch environment's opponent always replies randomly, so this needs {@link #env}'s opponent to be a 
+	 * {@link RandomAgent}. The rewards are taken from {@link #env}.
+	 * @param episodes
+	 * @param progress told about the episodes that have ended after every step
+	 * @throws IllegalStateException if a move picked is illegal, which means the q-table is broken
+	 */
+	void playBatch(int episodes, Training.Progress progress)
+	{
+		if (!(env.game.o instanceof RandomAgent))
+			throw new IllegalStateException("Batch training can only play against a RandomAgent, not "+env.game.o.getClass().getSimpleName());
 		
+		StateIndex states=qTable.getStates();
+		BatchEnvironment batch=new BatchEnvironment(batchSize, states);
+		batch.setRewards(env);
+		Random random=new Random();
+		//per board: the row and cell of the q-value to update, and the cell actually played
+		int[] from=new int[batchSize];
+		int[] cells=new int[batchSize];
+		int[] actions=new int[batchSize];
 		
-		//--------------------------------------------------------
-		//you shouldn't need to delete the following lines of code.
-		this.policy=extractPolicy();
-		if (this.policy==null)
+		long reported=0;
+		while (batch.getEpisodes()<episodes) {
+			if (batch.getEpisodes()>=reported+REPORT_EVERY) {
+				progress.advance(batch.getEpisodes()-reported);
+				reported=batch.getEpisodes();
+			}
+			for (int b=0;b<batchSize;b++) {
+				int s=batch.id(b);
+				int cell;
+				if(random.nextDouble() <= epsilon)
+				{
+					int legal=qTable.legalMask(s);
+					for(int skip=random.nextInt(Integer.bitCount(legal));skip>0;skip--)
+						legal&=legal-1;
+					cell=Integer.numberOfTrailingZeros(legal);
+				}
+				else
+					cell=qTable.argmax(s);
+				
+				from[b]=s;
+				cells[b]=cell;
+				actions[b]=Symmetry.invert(states.transformOfHash(batch.hash(b)), cell);
+			}
+			
+			int illegal=batch.tryStep(actions);
+			if (illegal>=0)
+				throw new IllegalStateException("Illegal move on board "+illegal+": cell "+actions[illegal]);
+			
+			for (int b=0;b<batchSize;b++) {
+				double sample=batch.reward[b];
+				if (!batch.isTerminal(b))
+					sample+=this.discount*qTable.max(batch.nextId[b]);
+				qTable.update(from[b], cells[b], this.alpha, sample);
+			}
+		}
+		progress.advance(batch.getEpisodes()-reported);
+	}
+	
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+	
+	/**
+	 * Sets the number of games {@link #train()} plays in lockstep in a {@link BatchEnvironment}, or 0 to play one game at a time
+	 * in {@link #env}. Batch training runs on one thread, whatever {@link #threads} is.
+	 * @param batchSize
+	 */
+	public void setBatchSize(int batchSize)
+	{
+		if (batchSize<0)
+			throw new IllegalArgumentException("Batch size can't be negative, got "+batchSize);
+		this.batchSize=batchSize;
+	}
+	
+	/**
+	 * Hogwild training: splits {@code numEpisodes} as evenly as possible over {@link #threads} workers that update one shared
+	 * {@link AtomicQTable} without locks. Each worker has its own copy of {@link #env}, but they all share its opponent, which
+	 * therefore has to be safe to call from several threads (the {@link RandomAgent} and agents with a fixed policy are).
+	 * @param progress told about the episodes of all workers
+	 */
+	void trainParallel(Training.Progress progress)
+	{
+		if (!(qTable instanceof AtomicQTable))
+			qTable=new AtomicQTable(qTable);
+		
+		List<Callable<Void>> workers=new ArrayList<Callable<Void>>();
+		for (int w=0;w<threads;w++)
 		{
-			System.out.println("Unimplemented methods! First implement the train() & extractPolicy methods");
-			//System.exit(1);
+			int episodes=numEpisodes/threads+(w<numEpisodes%threads?1:0);
+			TTTEnvironment workerEnv=new TTTEnvironment(env);
+			workers.add(() -> {
+				playEpisodes(workerEnv, episodes, new Random(), progress);
+				return null;
+			});
+		}
+		
+		ForkJoinPool pool=new ForkJoinPool(threads);
+		try {
+			for (Future<Void> f:pool.invokeAll(workers))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while training", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CancellationException)
+				throw (CancellationException)e.getCause();
+			if (e.getCause() instanceof IllegalStateException)
+				throw (IllegalStateException)e.getCause();
+			throw new IllegalStateException("Training worker failed", e.getCause());
+		} finally {
+			pool.shutdown();
 		}
 	}
 	
+	public int getThreads()
+	{
+		return threads;
+	}
+	
+	/**
+	 * Sets the number of threads {@link #train()} plays episodes on. With more than one, the q-table is replaced by an
+	 * {@link AtomicQTable} copy of it on the next {@link #train()}.
+	 * @param threads
+	 */
+	public void setThreads(int threads)
+	{
+		if (threads<1)
+			throw new IllegalArgumentException("Need at least one thread, got "+threads);
+		this.threads=threads;
+	}
+	
 	/** Implement this method. It should use the q-values in the {@code qTable} to extract a policy and return it.
 	 *
 	 * @return the policy currently inherent in the QTable
 	 */
 	public Policy extractPolicy()
 	{
-		//create policy
-		Policy bestPolicy = new Policy();
-		//loop for all moves for a state
-		for(HashMap.Entry<Game, HashMap<Move,Double>> g: qTable.entrySet()) {
-			//get max q value action for state
-			Entry<Move, Double> maxQ = maxQ(g.getKey());
-			//add it to policy
-			bestPolicy.policy.put(g.getKey(), maxQ.getKey());
-			
-			
+		//one move per state of the q table, stored as it is in that state; the policy maps it to the game it is asked about
+		StateIndex states=qTable.getStates();
+		byte[] cells=new byte[states.size()];
+		for(int id=0;id<states.size();id++) {
+			int best=qTable.argmax(id);
+			cells[id]=best<0?Policy.NO_MOVE:(byte)best;
 		}
 		
-		
 		//return the policy
-		return bestPolicy;
+		return new Policy(states, cells);
 		
 	}
 	
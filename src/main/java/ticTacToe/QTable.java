@@ -1,39 +1,222 @@
 package ticTacToe;
 
-import java.util.HashMap;
-
-public class QTable extends HashMap<Game, HashMap<Move,Double>> {
+/**
+ * A table of Q-values, Q(game, move), stored in one flat array: the Q-value of playing cell c (3*x+y) in the state with id s in a
+ * {@link StateIndex} is at {@code [9*s+c]}. A bitmask per state records which cells have a Q-value, i.e. which moves are legal;
+ * {@link #initLegalMoves()} sets them to all empty cells of the non-terminal states.
+ * 
+ * Over a canonical index, all games that are rotations or reflections of each other share one row, and moves are stored as they are
+ * in the canonical game (see {@link Symmetry}). The primitive methods ({@link #get}, {@link #set}, {@link #argmax}, {@link #max})
+ * work on ids and cells in that frame and never allocate. {@link #getQValue}, {@link #addQValue} and {@link #bestMove} take and
+ * return moves as they are in the game passed in, and do the mapping for you.
+ * 
+ * @author ae187
+ *
+ */
+public class QTable {
 
+	/**
+	 * The index the rows of this table are numbered by.
+	 */
+	final StateIndex states;
+	
+	/**
+	 * q[9*id+cell] is the Q-value of playing {@code cell} in the state with id {@code id}.
+	 */
+	final double[] q;
 	
+	/**
+	 * legal[id] has bit {@code cell} set if the table holds a Q-value for playing {@code cell} in the state with id {@code id}.
+	 */
+	final short[] legal;
+	
+	/**
+	 * A table over all reachable games where it is X's turn, or it's terminal, with every game stored as it is.
+	 */
 	public QTable()
 	{
-		super();
+		this(StateIndex.forPlayer('X'));
 	}
 	
 	/**
-	 * 
+	 * A Q-table with one row per state in {@code states}, with all Q-values 0 and no legal moves yet.
+	 * @param states
 	 */
-	private static final long serialVersionUID = 1L;
+	public QTable(StateIndex states)
+	{
+		this(states, new double[9*states.size()]);
+	}
 	
+	/**
+	 * For subclasses that store the Q-values elsewhere: {@code q} may be null if they override {@link #get} and {@link #set}.
+	 */
+	QTable(StateIndex states, double[] q)
+	{
+		this.states=states;
+		this.q=q;
+		this.legal=new short[states.size()];
+	}
 	
-	public Double getQValue(Game g, Move m)
+	/**
+	 * Marks all empty cells of every non-terminal state as legal moves.
+	 */
+	public void initLegalMoves()
+	{
+		for (int id=0;id<states.size();id++)
+		{
+			legal[id]=(short)states.position(id).legalMoveMask();
+		}
+	}
+	
+	/**
+	 * @return the number of states (rows) in this table
+	 */
+	public int size()
+	{
+		return legal.length;
+	}
+	
+	public StateIndex getStates()
+	{
+		return states;
+	}
+	
+	/**
+	 * @param id
+	 * @return the cells that have a Q-value in state {@code id}, as a bitmask
+	 */
+	public int legalMask(int id)
+	{
+		return legal[id];
+	}
+	
+	public double get(int id, int cell)
+	{
+		return q[9*id+cell];
+	}
+	
+	public void set(int id, int cell, double v)
 	{
-		if (containsKey(g))
+		q[9*id+cell]=v;
+	}
+	
+	/**
+	 * Moves the Q-value of playing {@code cell} in state {@code id} towards {@code sample}: Q = (1-alpha)*Q + alpha*sample.
+	 * @param id
+	 * @param cell
+	 * @param alpha the learning rate
+	 * @param sample
+	 */
+	public void update(int id, int cell, double alpha, double sample)
+	{
+		int i=9*id+cell;
+		q[i]=(1-alpha)*q[i]+alpha*sample;
+	}
+	
+	/**
+	 * @return a copy of all Q-values, laid out like {@link #q}
+	 */
+	public double[] toArray()
+	{
+		double[] values=new double[9*size()];
+		for (int id=0;id<size();id++)
+			for (int cell=0;cell<9;cell++)
+				values[9*id+cell]=get(id, cell);
+		return values;
+	}
+	
+	/**
+	 * Replaces all Q-values and legal moves, e.g. with ones from a {@link Snapshot}.
+	 * @param values laid out like {@link #q}
+	 * @param legal one legal move mask per state
+	 */
+	public void restore(double[] values, short[] legal)
+	{
+		if (values.length!=9*size() || legal.length!=size())
+			throw new IllegalArgumentException("Expected "+9*size()+" values and "+size()+" masks, got "+values.length+" and "+legal.length);
+		System.arraycopy(legal, 0, this.legal, 0, legal.length);
+		for (int id=0;id<size();id++)
+			for (int cell=0;cell<9;cell++)
+				set(id, cell, values[9*id+cell]);
+	}
+	
+	/**
+	 * @param id
+	 * @return the legal cell with the highest Q-value in state {@code id} (the lowest such cell on ties), or -1 if it has no legal moves.
+	 */
+	public int argmax(int id)
+	{
+		int best=-1;
+		double max=Double.NEGATIVE_INFINITY;
+		for (int m=legal[id];m!=0;m&=m-1)
 		{
-			HashMap<Move,Double> moves=get(g);
-			if (moves.containsKey(m))
-				return moves.get(m);
+			int cell=Integer.numberOfTrailingZeros(m);
+			double v=get(id, cell);
+			if (best<0 || v>max)
+			{
+				max=v;
+				best=cell;
+			}
 		}
+		return best;
+	}
+	
+	/**
+	 * @param id
+	 * @return the highest Q-value of a legal move in state {@code id}, or 0 if it has none (e.g. it is terminal).
+	 */
+	public double max(int id)
+	{
+		int best=argmax(id);
+		return best<0?0.0:get(id, best);
+	}
+	
+	/**
+	 * @return the Q-value of {@code m} in {@code g}, or null if the table does not have one.
+	 */
+	public Double getQValue(Game g, Move m)
+	{
+		int id=states.id(g);
+		if (id<0)
+			return null;
 		
-		return null;
+		int cell=Symmetry.apply(states.transform(g), 3*m.x+m.y);
+		if ((legal[id]&(1<<cell))==0)
+			return null;
+		
+		return get(id, cell);
 	}
 	
+	/**
+	 * Sets the Q-value of {@code m} in {@code g}, and marks {@code m} as legal there.
+	 */
 	public void addQValue(Game g, Move m, Double v)
 	{
-		if (!containsKey(g))
-			this.put(g, new HashMap<Move,Double>());
+		int id=states.id(g);
+		if (id<0)
+			throw new IllegalArgumentException("Game is not in the Q-table's state index:"+g);
+		
+		int cell=Symmetry.apply(states.transform(g), 3*m.x+m.y);
+		legal[id]|=1<<cell;
+		set(id, cell, v);
+	}
+	
+	/**
+	 * @param g
+	 * @return the move with the highest Q-value in {@code g}, or null if there are no Q-values for {@code g}.
+	 */
+	public Move bestMove(Game g)
+	{
+		int id=states.id(g);
+		if (id<0)
+			return null;
+		
+		int best=argmax(id);
+		if (best<0)
+			return null;
 		
-		this.get(g).put(m, v);
+		int cell=Symmetry.invert(states.transform(g), best);
+		return Move.of(g.whoseTurn.getName(), cell);
 	}
 	
 	
@@ -1,9 +1,7 @@
 package ticTacToe;
 
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This is a Policy which picks an move randomly with equal probability from the available moves. 
@@ -12,41 +10,29 @@ import java.util.Random;
  */
 public class RandomPolicy extends Policy{
 
-	Random r = new Random();
-	
 	@Override
 	public Move getMove(Game g) {
 		
+		int cell=getCell(g);
 		
-		List<IndexPair> pairs=new ArrayList<IndexPair>();
-		
-		for(int i=0;i<3;i++)
-			for(int j=0;j<3;j++)
-			{
-				if (g.getBoard()[i][j]==' ')
-					pairs.add(new IndexPair(i,j));
-					
-			}
+		return Move.of(g.whoseTurn.getName(), cell);
+	}
+	
+	/**
+	 * Picks one of the empty cells of {@code g} straight from its bitboard, without allocating anything. Uses the random generator of
+	 * the calling thread, so one random policy can be shared by several threads without them contending for it.
+	 */
+	@Override
+	public int getCell(Game g) {
 		
-		IndexPair random=pairs.get(r.nextInt(pairs.size()));
+		int empty=g.emptyCells();
+		//drop a random number of the lowest empty cells, then take the lowest one left
+		for(int skip=ThreadLocalRandom.current().nextInt(Integer.bitCount(empty));skip>0;skip--)
+			empty&=empty-1;
 		
-		return new Move(g.whoseTurn, random.x, random.y);
+		return Integer.numberOfTrailingZeros(empty);
 	}
 	
 	
-	
 
 }
-
-
-class IndexPair{
-	
-	public int x;
-	public int y;
-	
-	IndexPair(int x, int y)
-	{
-		this.x=x;
-		this.y=y;
-	}
-}
\ No newline at end of file
@@ -0,0 +1,142 @@
+package ticTacToe;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The positions that can actually come up in a game: everything reachable from the empty board, with either X or O to move first,
+ * by legal moves, where no move is made once someone has won or the board is full. This excludes the positions
+ * {@link Game#isValid()} lets through although no game can get there, such as boards where both sides have three in a row, or
+ * where play went on after a win.
+ *
+ * The positions are enumerated once per JVM, the first time they are needed, by a depth-first search over bitboards that builds no
+ * objects; {@link #forPlayer(char)} then builds the {@link GameState}s for one player once. Everything handed out is shared; the
+ * arrays must not be modified, and the lists and states can't be.
+ *
+ * @author ae187
+ *
+ */
+public class ReachableStates {
+
+	/**
+	 * The hashes, as in {@link Game#hashCode()}, of all reachable positions in increasing order. Built by {@link #hashes()}.
+	 */
+	private static int[] hashes;
+
+	/**
+	 * reachable[h] is true if the position with hash h is reachable
+	 */
+	private static boolean[] reachable;
+
+	/**
+	 * The states returned by {@link #forPlayer(char)}: [xo == 'X' ? 0 : 1]
+	 */
+	private static final List<GameState>[] states = newStateLists();
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static List<GameState>[] newStateLists() {
+		return new List[2];
+	}
+
+	/**
+	 * Enumerates the reachable positions the first time it is called.
+	 *
+	 * @return the hashes of all reachable positions in increasing order. Shared: do not modify.
+	 */
+	static synchronized int[] hashes() {
+		if (hashes != null)
+			return hashes;
+
+		boolean[] seen = new boolean[StateIndex.HASH_CODES];
+		// a position is packed as xBits | oBits << 9 | (O to move ? 1 << 18 : 0). The stack never holds more than one position
+		// per (depth, cell) pair, plus the two starting positions.
+		int[] stack = new int[2 + 9 * 9];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = 1 << 18;
+		int count = 0;
+		while (top > 0) {
+			int p = stack[--top];
+			int xBits = p & Game.FULL;
+			int oBits = (p >>> 9) & Game.FULL;
+			boolean oToMove = (p >>> 18) != 0;
+			int hash = boardHash(xBits, oBits) + (oToMove ? 2 : 1);
+			if (seen[hash])
+				continue;
+			seen[hash] = true;
+			count++;
+
+			if (Game.WINS[xBits] || Game.WINS[oBits] || (xBits | oBits) == Game.FULL)
+				continue;
+			for (int empty = ~(xBits | oBits) & Game.FULL; empty != 0; empty &= empty - 1) {
+				int move = empty & -empty;
+				stack[top++] = oToMove ? xBits | (oBits | move) << 9 : (xBits | move) | oBits << 9 | 1 << 18;
+			}
+		}
+
+		int[] h = new int[count];
+		int n = 0;
+		for (int i = 0; i < seen.length; i++)
+			if (seen[i])
+				h[n++] = i;
+		reachable = seen;
+		hashes = h;
+		return hashes;
+	}
+
+	private static int boardHash(int xBits, int oBits) {
+		int hash = 0;
+		for (int bits = xBits; bits != 0; bits &= bits - 1)
+			hash += Game.CELL_WEIGHTS[Integer.numberOfTrailingZeros(bits)];
+		for (int bits = oBits; bits != 0; bits &= bits - 1)
+			hash += 2 * Game.CELL_WEIGHTS[Integer.numberOfTrailingZeros(bits)];
+		return hash;
+	}
+
+	/**
+	 * @return the number of reachable positions, counting the same board with different players to move twice
+	 */
+	public static int count() {
+		return hashes().length;
+	}
+
+	/**
+	 * @param hash
+	 *            a hash as returned by {@link Game#hashCode()}
+	 * @return true if the position with that hash can come up in a game
+	 */
+	public static boolean isReachable(int hash) {
+		hashes();
+		return hash >= 0 && hash < StateIndex.HASH_CODES && reachable[hash];
+	}
+
+	/**
+	 * The reachable positions where it is {@code xo}'s turn, plus all reachable terminal positions, in increasing order of their
+	 * hashes. Built the first time it is asked for and then shared; neither the list nor the states can be modified. Use
+	 * {@link Game#generateAllValidGames(char)} for games to play on.
+	 *
+	 * @param xo
+	 *            'X' or 'O'
+	 * @return the states
+	 */
+	public static synchronized List<GameState> forPlayer(char xo) {
+		if (xo != 'X' && xo != 'O')
+			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+
+		int p = xo == 'X' ? 0 : 1;
+		if (states[p] == null) {
+			int[] h = hashes();
+			GameState[] result = new GameState[h.length];
+			int n = 0;
+			for (int hash : h) {
+				GameState g = GameState.fromHash(hash);
+				if (g.whoseTurn() == xo || g.isTerminal())
+					result[n++] = g;
+			}
+			states[p] = Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(result, n)));
+		}
+		return states[p];
+	}
+
+}
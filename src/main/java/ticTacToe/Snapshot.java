@@ -0,0 +1,262 @@
+package ticTacToe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A trained agent's tables saved to a file, so that a later process can load them instead of training again. The file is a
+ * versioned header followed by dense primitive arrays, written and read through NIO channels, not object serialization:
+ * 
+ * <pre>
+ * int    MAGIC ("TTTS"), VERSION, kind, flags (1 if the state index is canonical)
+ * int    number of states, fingerprint of the state index, number of extra parameters
+ * int    lengths of the double, byte and short arrays
+ * double discount, win, lose, living and draw rewards, then the extra parameters
+ * double[], byte[], short[]
+ * </pre>
+ * 
+ * All big-endian. What the arrays hold depends on the kind: the value function for value iteration, the values and the policy for
+ * policy iteration, and the Q-values and legal moves for Q-learning. Everything in the header up to the array lengths is the
+ * snapshot's parameters: {@link #sameParameters} tells whether a snapshot was made by an agent configured the same way, over the
+ * same states, so that its arrays can be used as they are.
+ * 
+ * The no-argument constructors of the agents look for snapshots in the directory named by the system property
+ * {@value #DIRECTORY_PROPERTY}, see {@link #loadOrTrain}.
+ * 
+ * @author ae187
+ *
+ */
+public class Snapshot {
+
+	public static final int MAGIC = 0x54545453; // "TTTS"
+	public static final int VERSION = 1;
+
+	public static final int VALUE_ITERATION = 1;
+	public static final int POLICY_ITERATION = 2;
+	public static final int Q_LEARNING = 3;
+
+	/**
+	 * The system property naming the directory the agents' default snapshots are kept in, e.g.
+	 * {@code -DticTacToe.snapshots=snapshots}. If it is not set, no snapshots are loaded or saved.
+	 */
+	public static final String DIRECTORY_PROPERTY = "ticTacToe.snapshots";
+
+	static final int HEADER_INTS = 10;
+
+	final int kind;
+	final boolean canonical;
+	final int states;
+	final int fingerprint;
+	final double discount, winReward, loseReward, livingReward, drawReward;
+	final double[] parameters;
+
+	double[] doubles = new double[0];
+	byte[] bytes = new byte[0];
+	short[] shorts = new short[0];
+
+	/**
+	 * A snapshot of an agent of the given kind over {@code index}, without arrays yet.
+	 * 
+	 * @param kind
+	 *            {@link #VALUE_ITERATION}, {@link #POLICY_ITERATION} or {@link #Q_LEARNING}
+	 * @param index
+	 *            the states the arrays are indexed by
+	 * @param discount
+	 * @param winReward
+	 * @param loseReward
+	 * @param livingReward
+	 * @param drawReward
+	 * @param parameters
+	 *            any other training parameters that the arrays depend on
+	 */
+	public Snapshot(int kind, StateIndex index, double discount, double winReward, double loseReward, double livingReward,
+			double drawReward, double... parameters) {
+		this(kind, index.isCanonical(), index.size(), fingerprint(index), discount, winReward, loseReward, livingReward, drawReward,
+				parameters);
+	}
+
+	Snapshot(int kind, boolean canonical, int states, int fingerprint, double discount, double winReward, double loseReward,
+			double livingReward, double drawReward, double[] parameters) {
+		this.kind = kind;
+		this.canonical = canonical;
+		this.states = states;
+		this.fingerprint = fingerprint;
+		this.discount = discount;
+		this.winReward = winReward;
+		this.loseReward = loseReward;
+		this.livingReward = livingReward;
+		this.drawReward = drawReward;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * @return a hash of the order of the states in {@code index}, so that arrays indexed by a differently built index are not
+	 *         mistaken for ones indexed by this one
+	 */
+	static int fingerprint(StateIndex index) {
+		return Arrays.hashCode(index.hashOfId);
+	}
+
+	/**
+	 * @param other
+	 * @return true if {@code other} was made by the same kind of agent, over the same states, with the same parameters
+	 */
+	public boolean sameParameters(Snapshot other) {
+		return kind == other.kind && canonical == other.canonical && states == other.states && fingerprint == other.fingerprint
+				&& discount == other.discount && winReward == other.winReward && loseReward == other.loseReward
+				&& livingReward == other.livingReward && drawReward == other.drawReward
+				&& Arrays.equals(parameters, other.parameters);
+	}
+
+	/**
+	 * Writes this snapshot to {@code file}, replacing it if it exists. The snapshot is written to a temporary file first and then
+	 * moved into place, so that a process loading it never sees half a file.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(String file) throws IOException {
+		int size = 4 * HEADER_INTS + 8 * (5 + parameters.length) + 8 * doubles.length + bytes.length + 2 * shorts.length;
+		ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(canonical ? 1 : 0);
+		out.putInt(states).putInt(fingerprint).putInt(parameters.length);
+		out.putInt(doubles.length).putInt(bytes.length).putInt(shorts.length);
+		out.putDouble(discount).putDouble(winReward).putDouble(loseReward).putDouble(livingReward).putDouble(drawReward);
+		for (double p : parameters)
+			out.putDouble(p);
+		out.asDoubleBuffer().put(doubles);
+		out.position(out.position() + 8 * doubles.length);
+		out.put(bytes);
+		out.asShortBuffer().put(shorts);
+		out.rewind();
+
+		Path target = Paths.get(file);
+		Path parent = target.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+			while (out.hasRemaining())
+				channel.write(out);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads a snapshot written by {@link #save(String)}. The file is memory-mapped and the arrays are copied out of it in bulk.
+	 * 
+	 * @param file
+	 * @return the snapshot
+	 * @throws IOException
+	 *             if the file can't be read, or is not a snapshot of this version
+	 */
+	public static Snapshot load(String file) throws IOException {
+		MappedByteBuffer in;
+		try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			in.order(ByteOrder.BIG_ENDIAN);
+			if (in.getInt() != MAGIC)
+				throw new IOException("Not a snapshot: " + file);
+			int version = in.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported snapshot version " + version + ": " + file);
+			int kind = in.getInt();
+			boolean canonical = (in.getInt() & 1) != 0;
+			int states = in.getInt();
+			int fingerprint = in.getInt();
+			double[] parameters = new double[in.getInt()];
+			int doubles = in.getInt(), bytes = in.getInt(), shorts = in.getInt();
+			double discount = in.getDouble(), win = in.getDouble(), lose = in.getDouble(), living = in.getDouble(),
+					draw = in.getDouble();
+			for (int i = 0; i < parameters.length; i++)
+				parameters[i] = in.getDouble();
+
+			Snapshot s = new Snapshot(kind, canonical, states, fingerprint, discount, win, lose, living, draw, parameters);
+			s.doubles = new double[doubles];
+			in.asDoubleBuffer().get(s.doubles);
+			in.position(in.position() + 8 * doubles);
+			s.bytes = new byte[bytes];
+			in.get(s.bytes);
+			s.shorts = new short[shorts];
+			in.asShortBuffer().get(s.shorts);
+			return s;
+		} catch (RuntimeException e) {
+			// BufferUnderflowException, NegativeArraySizeException: the file is shorter than its header says
+			throw new IOException("Corrupt snapshot: " + file, e);
+		}
+	}
+
+	/**
+	 * @param name
+	 * @return the file the default snapshot called {@code name} is kept in, or null if {@value #DIRECTORY_PROPERTY} is not set
+	 */
+	public static String file(String name) {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if (directory == null)
+			return null;
+		return Paths.get(directory, name + ".snapshot").toString();
+	}
+
+	/**
+	 * An agent whose trained tables can be saved to and restored from a snapshot.
+	 */
+	public interface Trainable {
+
+		/**
+		 * Trains the agent from scratch
+		 */
+		void train();
+
+		/**
+		 * @param file
+		 * @return true if the snapshot in {@code file} was made with this agent's parameters and has been loaded; false if the
+		 *         parameters differ, in which case the agent is unchanged
+		 */
+		boolean loadSnapshot(String file) throws IOException;
+
+		void saveSnapshot(String file) throws IOException;
+	}
+
+	/**
+	 * Loads the default snapshot called {@code name} into {@code agent} if snapshots are enabled (see {@link #DIRECTORY_PROPERTY}),
+	 * it exists and its parameters match the agent's. Otherwise trains the agent, and then saves a snapshot of it for next time
+	 * if snapshots are enabled. Problems reading or writing the snapshot are reported, but only mean that the agent is trained.
+	 * 
+	 * @param agent
+	 * @param name
+	 */
+	public static void loadOrTrain(Trainable agent, String name) {
+		String file = file(name);
+		if (file != null && Files.exists(Paths.get(file)))
+			try {
+				if (agent.loadSnapshot(file))
+					return;
+				System.out.println("Snapshot " + file + " was made with other parameters, retraining.");
+			} catch (IOException e) {
+				System.out.println("Could not load snapshot, retraining: " + e.getMessage());
+			}
+
+		agent.train();
+
+		if (file != null)
+			try {
+				agent.saveSnapshot(file);
+			} catch (IOException e) {
+				System.out.println("Could not save snapshot: " + e.getMessage());
+			}
+	}
+
+}
@@ -0,0 +1,238 @@
+package ticTacToe;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A dense numbering of a fixed set of game states: each state gets an id between 0 and {@link #size()}-1, so that value functions
+ * and policies can be stored in flat primitive arrays indexed by that id instead of in maps keyed by {@link Game} objects.
+ *
+ * Conversions between ids, {@link Game#hashCode() hashes} and {@link GameState}s are all constant time array reads. The hash to id
+ * direction uses a table over all {@link #HASH_CODES} possible hash values. The states are immutable, so an index can be shared by
+ * any number of tables and threads.
+ *
+ * A canonical index only numbers the canonical representative of each class of positions that are equivalent under the
+ * {@link Symmetry symmetries} of the board, and maps all members of the class to that one id. Tables over a canonical index store
+ * moves as they are in the canonical position; {@link #transform(Game)} gives the transform that maps a position's moves there, and
+ * {@link Symmetry#invert(int, int)} maps them back. For an index that is not canonical the transform is always the identity.
+ *
+ * @author ae187
+ *
+ */
+public class StateIndex {
+
+	/**
+	 * The number of possible values of {@link Game#hashCode()}: 3^10, i.e. 9 board digits plus the whose-turn digit.
+	 */
+	public static final int HASH_CODES = 59049;
+
+	/**
+	 * idOfHash[h] is the id of the state with hash h, or -1 if that state is not in the index.
+	 */
+	final int[] idOfHash = new int[HASH_CODES];
+
+	/**
+	 * hashOfId[id] is the hash of the state with that id.
+	 */
+	final int[] hashOfId;
+
+	/**
+	 * positions[id] is the state with that id.
+	 */
+	final GameState[] positions;
+
+	/**
+	 * transformOfHash[h] is the {@link Symmetry} transform that maps the state with hash h to the state numbered by its id; always
+	 * the identity unless the index is {@link #canonical}.
+	 */
+	final byte[] transformOfHash = new byte[HASH_CODES];
+
+	final boolean canonical;
+
+	/**
+	 * Indexes {@code games} in list order. Duplicate states (equal hashes) only get the id of their first occurrence.
+	 *
+	 * @param games
+	 */
+	public StateIndex(List<Game> games) {
+		this(games, false);
+	}
+
+	/**
+	 * Indexes {@code games} in list order. Duplicate states only get the id of their first occurrence; if {@code canonical} is true,
+	 * states that are equivalent under the {@link Symmetry symmetries} of the board count as duplicates, and the state stored for an
+	 * id is the canonical representative.
+	 *
+	 * @param games
+	 * @param canonical
+	 */
+	public StateIndex(List<Game> games, boolean canonical) {
+		this(positionsOf(games), canonical);
+	}
+
+	private static GameState[] positionsOf(List<Game> games) {
+		GameState[] positions = new GameState[games.size()];
+		for (int i = 0; i < positions.length; i++)
+			positions[i] = games.get(i).getPosition();
+		return positions;
+	}
+
+	/**
+	 * Indexes {@code positions} in list order, like {@link #StateIndex(List, boolean)}.
+	 *
+	 * @param positions
+	 * @param canonical
+	 * @return the index
+	 */
+	public static StateIndex of(List<GameState> positions, boolean canonical) {
+		return new StateIndex(positions.toArray(new GameState[positions.size()]), canonical);
+	}
+
+	private StateIndex(GameState[] positions, boolean canonical) {
+		this.canonical = canonical;
+		Arrays.fill(idOfHash, -1);
+		int[] hashes = new int[positions.length];
+		GameState[] unique = new GameState[positions.length];
+		int n = 0;
+		for (GameState g : positions) {
+			int h = g.hashCode();
+			if (idOfHash[h] >= 0)
+				continue;
+			int t = canonical ? g.canonicalTransform() : Symmetry.IDENTITY;
+			int c = Symmetry.applyToHash(t, h);
+			if (idOfHash[c] < 0) {
+				idOfHash[c] = n;
+				hashes[n] = c;
+				unique[n] = g.transform(t);
+				n++;
+			}
+			idOfHash[h] = idOfHash[c];
+			transformOfHash[h] = (byte) t;
+		}
+		this.hashOfId = Arrays.copyOf(hashes, n);
+		this.positions = Arrays.copyOf(unique, n);
+	}
+
+	/**
+	 * Shared indexes, built on first use: [canonical ? 1 : 0][xo == 'X' ? 0 : 1]
+	 */
+	private static final StateIndex[][] shared = new StateIndex[2][2];
+
+	/**
+	 * The shared index over {@link ReachableStates#forPlayer(char)} for player {@code xo}, i.e. all reachable games where it is
+	 * {@code xo}'s turn, plus all reachable terminal games. Built once and then reused.
+	 *
+	 * @param xo
+	 *            'X' or 'O'
+	 * @return the index
+	 */
+	public static StateIndex forPlayer(char xo) {
+		return forPlayer(xo, false);
+	}
+
+	/**
+	 * Like {@link #forPlayer(char)}, but if {@code canonical} is true the index only numbers one state per class of symmetric states.
+	 *
+	 * @param xo
+	 *            'X' or 'O'
+	 * @param canonical
+	 * @return the index
+	 */
+	public static synchronized StateIndex forPlayer(char xo, boolean canonical) {
+		if (xo != 'X' && xo != 'O')
+			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+
+		int c = canonical ? 1 : 0;
+		int p = xo == 'X' ? 0 : 1;
+		if (shared[c][p] == null)
+			shared[c][p] = StateIndex.of(ReachableStates.forPlayer(xo), canonical);
+		return shared[c][p];
+	}
+
+	/**
+	 * @return the number of states, N. Ids run from 0 to N-1.
+	 */
+	public int size() {
+		return hashOfId.length;
+	}
+
+	/**
+	 * @param g
+	 * @return the id of {@code g}, or -1 if it is not in the index.
+	 */
+	public int id(Game g) {
+		return idOfHash[g.hashCode()];
+	}
+
+	/**
+	 * @param g
+	 * @return the id of {@code g}, or -1 if it is not in the index.
+	 */
+	public int id(GameState g) {
+		return idOfHash[g.hashCode()];
+	}
+
+	/**
+	 * @param hash
+	 *            a hash as returned by {@link Game#hashCode()}
+	 * @return the id of the state with that hash, or -1 if it is not in the index.
+	 */
+	public int idOfHash(int hash) {
+		return idOfHash[hash];
+	}
+
+	/**
+	 * @param id
+	 * @return the hash of the state with id {@code id}
+	 */
+	public int hash(int id) {
+		return hashOfId[id];
+	}
+
+	/**
+	 * @param id
+	 * @return the state with id {@code id}
+	 */
+	public GameState position(int id) {
+		return positions[id];
+	}
+
+	/**
+	 * A new game, with new agents, in the state with id {@code id}. Prefer {@link #position(int)}, which allocates nothing.
+	 *
+	 * @param id
+	 * @return a new game in the state with id {@code id}
+	 */
+	public Game game(int id) {
+		return new Game(positions[id]);
+	}
+
+	public boolean contains(Game g) {
+		return id(g) >= 0;
+	}
+
+	/**
+	 * @param g
+	 *            a state in the index
+	 * @return the {@link Symmetry} transform that maps {@code g}, and its moves, onto the state stored for its id
+	 */
+	public int transform(Game g) {
+		return transformOfHash[g.hashCode()];
+	}
+
+	/**
+	 * @param hash
+	 * @return the {@link Symmetry} transform that maps the state with this hash onto the state stored for its id
+	 */
+	public int transformOfHash(int hash) {
+		return transformOfHash[hash];
+	}
+
+	/**
+	 * @return true if this index numbers one state per class of symmetric states
+	 */
+	public boolean isCanonical() {
+		return canonical;
+	}
+
+}
@@ -0,0 +1,54 @@
+package ticTacToe;
+
+/**
+ * The result of one {@link TTTEnvironment#step(int, StepResult)}: the primitive counterpart of an {@link Outcome}. The caller owns
+ * the object and passes the same one to every step, so that stepping through an episode allocates nothing.
+ * 
+ * @author ae187
+ *
+ */
+public class StepResult {
+
+	/**
+	 * The reward received for the step
+	 */
+	public double reward;
+
+	/**
+	 * The {@link Game#hashCode() hash} of the state after the step, i.e. after the opponent's reply if there was one.
+	 */
+	public int hash;
+
+	/**
+	 * The id of the state after the step in the environment's {@link StateIndex}, or -1 if the environment has no index or the
+	 * state is not in it.
+	 */
+	public int id;
+
+	/**
+	 * The {@link MNKBoard#key() Zobrist key} of the state after the step, from an {@link MNKEnvironment}; 0 from a
+	 * {@link TTTEnvironment}.
+	 */
+	public long key;
+
+	/**
+	 * The cell the opponent replied with, or -1 if the agent's move ended the game.
+	 */
+	public int opponentCell;
+
+	/**
+	 * The {@link Game#getState() state} of the game after the step: {@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON}
+	 * or {@link Game#DRAW}.
+	 */
+	public int state;
+
+	public boolean isTerminal() {
+		return state != Game.ONGOING;
+	}
+
+	public String toString() {
+		return "Reward = " + reward + ", hash = " + hash + ", id = " + id + ", key = " + key + ", opponent cell = " + opponentCell
+				+ ", state = " + state;
+	}
+
+}
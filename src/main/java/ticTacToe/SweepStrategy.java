@@ -0,0 +1,35 @@
+package ticTacToe;
+
+/**
+ * The ways a {@link ValueIterationEngine} can order its Bellman backups.
+ * 
+ * @author ae187
+ *
+ */
+public enum SweepStrategy {
+
+	/**
+	 * Full sweeps over all states, each one reading only the values of the previous sweep (Jacobi). Can run on several threads.
+	 */
+	SYNCHRONOUS,
+
+	/**
+	 * Full sweeps over all states that update the values in place, so later states in a sweep already see the new values of
+	 * earlier ones (Gauss-Seidel). Single threaded.
+	 */
+	GAUSS_SEIDEL,
+
+	/**
+	 * Backs up one state at a time, always the one with the largest Bellman residual, and only re-checks the predecessors of a
+	 * state when its value changes. Single threaded.
+	 */
+	PRIORITIZED,
+
+	/**
+	 * A single pass over the states in {@link CompiledMDP#topologicalOrder()}, from the full boards back to the empty one. Since
+	 * every move adds a piece, the successors of a state are always backed up before it, so each state is backed up exactly once
+	 * and the values are exact.
+	 */
+	BACKWARD_INDUCTION
+
+}
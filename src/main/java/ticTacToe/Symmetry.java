@@ -0,0 +1,147 @@
+package ticTacToe;
+
+/**
+ * The 8 symmetries of the board (the dihedral group D4): the identity, three rotations and four reflections. Positions that are
+ * mapped onto each other by one of these are equivalent - they have the same value and their best moves correspond - so tables
+ * only need to store one of them, the canonical one.
+ *
+ * A transform t moves the piece on cell c (3*x+y) to cell {@code apply(t, c)}. The canonical representative of a position is the one
+ * of its 8 transforms with the smallest {@link Game#hashCode()}, and {@link #canonicalTransform(int)} is the transform that gets
+ * there. A move chosen in the canonical position is mapped back to the original position with {@link #invert(int, int)}.
+ *
+ * @author ae187
+ *
+ */
+public class Symmetry {
+
+	/**
+	 * The number of symmetries
+	 */
+	public static final int COUNT = 8;
+
+	public static final int IDENTITY = 0;
+
+	/**
+	 * CELLS[t][c] is the cell that the piece on cell c moves to under transform t.
+	 */
+	static final int[][] CELLS = new int[COUNT][9];
+
+	/**
+	 * INVERSE[t][c] is the cell that moves to cell c under transform t.
+	 */
+	static final int[][] INVERSE = new int[COUNT][9];
+
+	static {
+		for (int x = 0; x < 3; x++)
+			for (int y = 0; y < 3; y++) {
+				int c = 3 * x + y;
+				CELLS[0][c] = 3 * x + y; // identity
+				CELLS[1][c] = 3 * y + (2 - x); // rotate 90 degrees clockwise
+				CELLS[2][c] = 3 * (2 - x) + (2 - y); // rotate 180 degrees
+				CELLS[3][c] = 3 * (2 - y) + x; // rotate 270 degrees clockwise
+				CELLS[4][c] = 3 * x + (2 - y); // mirror left-right
+				CELLS[5][c] = 3 * (2 - x) + y; // mirror top-bottom
+				CELLS[6][c] = 3 * y + x; // mirror in the main diagonal
+				CELLS[7][c] = 3 * (2 - y) + (2 - x); // mirror in the anti-diagonal
+			}
+		for (int t = 0; t < COUNT; t++)
+			for (int c = 0; c < 9; c++)
+				INVERSE[t][CELLS[t][c]] = c;
+	}
+
+	/**
+	 * @param t
+	 *            a transform
+	 * @param cell
+	 * @return where transform {@code t} moves {@code cell} to
+	 */
+	public static int apply(int t, int cell) {
+		return CELLS[t][cell];
+	}
+
+	/**
+	 * @param t
+	 *            a transform
+	 * @param cell
+	 * @return the cell that transform {@code t} moves to {@code cell}
+	 */
+	public static int invert(int t, int cell) {
+		return INVERSE[t][cell];
+	}
+
+	/**
+	 * @param t
+	 *            a transform
+	 * @param bits
+	 *            a set of cells, bit c for cell c
+	 * @return the cells that transform {@code t} moves them to
+	 */
+	public static int applyToBits(int t, int bits) {
+		int result = 0;
+		for (; bits != 0; bits &= bits - 1)
+			result |= 1 << CELLS[t][Integer.numberOfTrailingZeros(bits)];
+		return result;
+	}
+
+	/**
+	 * @param t
+	 * @param m
+	 * @return move {@code m} by the same player, moved by transform {@code t}
+	 */
+	public static Move apply(int t, Move m) {
+		return Move.of(m.who.getName(), CELLS[t][3 * m.x + m.y]);
+	}
+
+	/**
+	 * @param t
+	 * @param m
+	 * @return the move by the same player that transform {@code t} moves onto {@code m}
+	 */
+	public static Move invert(int t, Move m) {
+		return Move.of(m.who.getName(), INVERSE[t][3 * m.x + m.y]);
+	}
+
+	/**
+	 * @param t
+	 * @param hash
+	 *            a hash as returned by {@link Game#hashCode()}
+	 * @return the hash of the position with every piece moved by transform {@code t}, and the same player to move
+	 */
+	public static int applyToHash(int t, int hash) {
+		int result = hash % 3;
+		int rest = hash / 3;
+		for (int cell = 8; cell >= 0; cell--) {
+			int digit = rest % 3;
+			rest /= 3;
+			result += digit * Game.CELL_WEIGHTS[CELLS[t][cell]];
+		}
+		return result;
+	}
+
+	/**
+	 * @param hash
+	 * @return the first transform that takes the position with this hash to its canonical representative, the one with the smallest
+	 *         hash
+	 */
+	public static int canonicalTransform(int hash) {
+		int best = IDENTITY;
+		int min = hash;
+		for (int t = 1; t < COUNT; t++) {
+			int h = applyToHash(t, hash);
+			if (h < min) {
+				min = h;
+				best = t;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param hash
+	 * @return the hash of the canonical representative of the position with this hash
+	 */
+	public static int canonicalHash(int hash) {
+		return applyToHash(canonicalTransform(hash), hash);
+	}
+
+}
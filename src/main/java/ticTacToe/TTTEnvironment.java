@@ -1,7 +1,7 @@
 package ticTacToe;
 
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -27,6 +27,11 @@ public class TTTEnvironment {
 	double livingReward=-1.00;
 	double drawReward=0.0;
 	
+	/**
+	 * The index {@link TTTEnvironment#step} reports state ids in. Null if it should not report ids.
+	 */
+	StateIndex states;
+	
 	
 	/**
 	 * By default, the environment contains an opponent that plays randomly, i.e. a {@link RandomAgent}; and uses all the
@@ -52,16 +57,43 @@ public class TTTEnvironment {
 		
 	}
 	
+	/**
+	 * A new environment with the same opponent, rewards and state index as {@code env}, but a game of its own, e.g. for another
+	 * thread to train in. Note that the opponent agent itself is shared.
+	 * @param env
+	 */
+	public TTTEnvironment(TTTEnvironment env)
+	{
+		this(env.game.o, env.winReward, env.loseReward, env.livingReward, env.drawReward);
+		this.states=env.states;
+	}
+	
 	public Game getCurrentGameState()
 	{
 		return game;
 	}
 	
+	/**
+	 * Sets the index that {@link TTTEnvironment#step} reports the ids of the next states in, e.g. the one of a Q-table.
+	 * @param states the index, or null to not report ids
+	 */
+	public void setStateIndex(StateIndex states)
+	{
+		this.states=states;
+	}
+	
+	/**
+	 * Starts a new episode in the same game object: clears the board, and X is to move.
+	 */
+	public void reset()
+	{
+		game.reset(game.x);
+	}
+	
 	public List<Move> getPossibleMoves()
 	{
-		List<Move> moves=new ArrayList<Move>();
 		if (game.whoseTurn.getName()!='X')
-			return moves;
+			return Collections.emptyList();
 		
 		return game.getPossibleMoves();
 		
@@ -130,6 +162,78 @@ public class TTTEnvironment {
 		
 	}
 	
+	/**
+	 * Plays {@code cell} for X and then, unless that ends the game, the opponent's reply, and writes the reward and the resulting 
+	 * state into {@code out}. The same as {@link TTTEnvironment#executeMove}, but with cell indexes and a reusable result object: 
+	 * nothing is allocated as long as the opponent's {@link Agent#getCell} does not allocate.
+	 * @param cell the cell (3*x+y) X plays
+	 * @param out receives the reward, the next state and whether it is terminal
+	 * @throws IllegalMoveException if the game is over, or if X's move or the opponent's reply is illegal
+	 */
+	public void step(int cell, StepResult out) throws IllegalMoveException
+	{
+		if (game.isTerminal())
+			throw new IllegalMoveException("Executing move in terminal state:"+game);
+		else if (game.whoseTurn!=game.x)
+			throw new IllegalMoveException("Trying to execute O move - the RL agent must always play as X:"+game);
+		
+		if (tryStep(cell, out)==Game.ILLEGAL)
+		{
+			if (out.opponentCell<0)
+				throw new IllegalMoveException("Invalid move. Cell "+cell+" is not empty");
+			throw new IllegalMoveException("Illegal reply by the opponent: cell "+out.opponentCell+" on:"+game);
+		}
+	}
+	
+	/**
+	 * Like {@link TTTEnvironment#step}, but signals an illegal move with {@link Game#ILLEGAL} instead of an exception, for training 
+	 * loops that step millions of times.
+	 * 
+	 * If X's move is illegal - the game is over, it is O's turn or the cell is not empty - nothing changes and 
+	 * {@code out.opponentCell} is -1. If the opponent's reply is illegal, X's move has been played and {@code out.opponentCell} is 
+	 * the reply. In both cases the rest of {@code out} is left as it was.
+	 * @param cell the cell (3*x+y) X plays
+	 * @param out receives the reward, the next state and whether it is terminal
+	 * @return the state of the game after the step, as in {@link StepResult#state}, or {@link Game#ILLEGAL}
+	 */
+	public int tryStep(int cell, StepResult out)
+	{
+		out.opponentCell=-1;
+		if (game.whoseTurn!=game.x)
+			return Game.ILLEGAL;
+		
+		int state=game.tryPlay(cell);
+		if (state==Game.ILLEGAL)
+			return Game.ILLEGAL;
+		
+		if (state==Game.X_WON)
+			out.reward=this.winReward;
+		else if (state==Game.DRAW)
+			out.reward=this.drawReward;
+		else
+		{
+			//the game is ongoing, so now it's the opponent's turn to play.
+			int oCell=game.o.getCell(game);
+			out.opponentCell=oCell;
+			state=game.tryPlay(oCell);
+			
+			if (state==Game.ILLEGAL)
+				return Game.ILLEGAL;
+			else if (state==Game.O_WON)
+				out.reward=this.loseReward;
+			else if (state==Game.DRAW)
+				out.reward=this.drawReward;
+			else
+				out.reward=this.livingReward;
+		}
+		
+		out.state=state;
+		out.hash=game.hashCode();
+		out.id=states==null?-1:states.idOfHash(out.hash);
+		out.key=0;
+		return state;
+	}
+	
 	public boolean isTerminal()
 	{
 		return game.isTerminal();
@@ -61,15 +61,10 @@ public class TTTMDP {
 		List<TransitionProb> result=new ArrayList<TransitionProb>();
 		//first simulate move m
 		
-		Game intermediate=null;
-		try {
-			intermediate=g.simulateMove(m);
-		}
-		catch(IllegalMoveException e)
+		Game intermediate=g.trySimulateMove(m.cell());
+		if (intermediate==null)
 		{
 			System.out.println("WARNING: illegal move "+m+" tried when generating transitions. Returning empty list.");
-			System.out.println(e.getMessage());
-			
 			return result;
 		}
 		
@@ -137,6 +132,46 @@ public class TTTMDP {
 	
 	
 	
+	/**
+	 * @param sPrime
+	 *            the state after X's move and, unless that ended the game, O's reply
+	 * @return the reward {@link #generateTransitions} gives for ending up in {@code sPrime}
+	 */
+	public double reward(GameState sPrime)
+	{
+		switch (sPrime.getState())
+		{
+		case Game.X_WON:
+			return winReward;
+		case Game.O_WON:
+			return loseReward;
+		case Game.DRAW:
+			return drawReward;
+		default:
+			return livingReward;
+		}
+	}
+	
+	/**
+	 * The model last returned by {@link #compile}
+	 */
+	private CompiledMDP compiled;
+	
+	/**
+	 * Compiles this MDP over {@code states} into flat arrays, see {@link CompiledMDP}. The result is cached, and compiled again only if
+	 * it is asked for over a different index or the rewards have changed since.
+	 * @param states
+	 * @return the compiled model
+	 */
+	public synchronized CompiledMDP compile(StateIndex states)
+	{
+		if (compiled==null || compiled.states!=states || compiled.winReward!=winReward || compiled.loseReward!=loseReward
+				|| compiled.livingReward!=livingReward || compiled.drawReward!=drawReward)
+			compiled=new CompiledMDP(this, states);
+		
+		return compiled;
+	}
+	
 	public boolean isTerminal(Game g)
 	{
 		return g.isTerminal();
@@ -150,7 +185,7 @@ public class TTTMDP {
 		g.executeMove('X',0,1);
 		g.executeMove('O', 2,2);
 		
-		Move m=new Move('X', 0,2);
+		Move m=Move.of('X', 0,2);
 		
 		TTTMDP gm=new TTTMDP();
 		List<TransitionProb> tps=gm.generateTransitions(g, m);
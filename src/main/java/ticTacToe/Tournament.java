@@ -0,0 +1,327 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Plays many games between every pairing of agents without printing anything per game, spread over a thread pool, and reports
+ * win/draw/loss tables, games per second and the time the agents take per move. Who starts alternates from game to game.
+ * 
+ * The agents are named as in {@link Game#main}: vi, pi, ql, random, agg and def. The value iteration, policy iteration and Q-learning
+ * agents are only trained to play X, so they are only paired as X; every agent plays X against every agent that can play O.
+ * 
+ * <pre>
+ * java ticTacToe.Tournament -games 100000 -threads 4 -agents vi,ql,random
+ * </pre>
+ * 
+ * @author ae187
+ *
+ */
+public class Tournament {
+
+	public static final String help = " -h this menu" + "\n -games the number of games per pairing: -games <M>, default 10000"
+			+ "\n -threads the number of threads to play on: -threads <N>, default the number of processors"
+			+ "\n -agents the agents to pair: -agents <comma separated list of vi, pi, ql, ab, random, agg, def>, default all of them";
+
+	public static final String[] AGENTS = { "vi", "pi", "ql", "ab", "random", "agg", "def" };
+
+	/**
+	 * Games per task handed to the thread pool
+	 */
+	static final int CHUNK = 1000;
+
+	final int threads;
+
+	/**
+	 * The training runs of the solver agents by name, so that each is only trained once
+	 */
+	final Map<String, Training<Agent>> trained = new HashMap<String, Training<Agent>>();
+
+	public Tournament(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread, got " + threads);
+		this.threads = threads;
+	}
+
+	/**
+	 * @param name
+	 * @return true if the agent with this name can play O
+	 */
+	public static boolean canPlayO(String name) {
+		return name.equals("ab") || name.equals("random") || name.equals("agg") || name.equals("def");
+	}
+
+	/**
+	 * Starts training all the solvers among {@code names} that have not been started yet, at the same time, on up to
+	 * {@link #threads} threads. Returns without waiting for them to finish.
+	 * 
+	 * @param names
+	 */
+	public synchronized void train(List<String> names) {
+		List<String> solvers = new ArrayList<String>();
+		for (String name : names)
+			if (!canPlayO(name) && !trained.containsKey(name) && !solvers.contains(name))
+				solvers.add(name);
+		if (solvers.isEmpty())
+			return;
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, solvers.size()));
+		for (String name : solvers) {
+			Supplier<Agent> trainer;
+			switch (name) {
+			case "vi":
+				trainer = ValueIterationAgent::new;
+				break;
+			case "pi":
+				trainer = PolicyIterationAgent::new;
+				break;
+			case "ql":
+				trainer = QLearningAgent::new;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown agent: " + name);
+			}
+			trained.put(name, Training.start(trainer, pool));
+		}
+		// runs the queued training and then lets the threads end
+		pool.shutdown();
+	}
+
+	/**
+	 * Creates a new agent. The solvers are trained the first time they are asked for, unless {@link #train} has already started
+	 * them, and this waits for them to finish; later calls return a new agent with the same policy, so that the same solver can be
+	 * X in several pairings at once.
+	 * 
+	 * @param name
+	 *            vi, pi, ql, ab, random, agg or def
+	 * @return a new agent, not yet in any game
+	 */
+	public synchronized Agent agent(String name) {
+		switch (name) {
+		case "ab":
+			return new AlphaBetaAgent();
+		case "random":
+			return new RandomAgent();
+		case "agg":
+			return new AggressiveAgent();
+		case "def":
+			return new DefensiveAgent();
+		case "vi":
+		case "pi":
+		case "ql":
+			train(Arrays.asList(name));
+			return new Agent(trained.get(name).future().join().getPolicy());
+		default:
+			throw new IllegalArgumentException("Unknown agent: " + name);
+		}
+	}
+
+	/**
+	 * The results of one pairing
+	 */
+	public static class Result {
+
+		public final String x, o;
+
+		/**
+		 * The number of games that ended in each state, indexed by {@link Game#X_WON}, {@link Game#O_WON} and {@link Game#DRAW}
+		 */
+		public final int[] outcomes = new int[4];
+
+		public long xMoves, oMoves;
+
+		/**
+		 * The total time the X and O agents took to pick their moves
+		 */
+		public long xNanos, oNanos;
+
+		/**
+		 * The wall-clock time of the pairing
+		 */
+		public long nanos;
+
+		public Result(String x, String o) {
+			this.x = x;
+			this.o = o;
+		}
+
+		public int games() {
+			return outcomes[Game.X_WON] + outcomes[Game.O_WON] + outcomes[Game.DRAW];
+		}
+
+		void add(Result r) {
+			for (int i = 0; i < outcomes.length; i++)
+				outcomes[i] += r.outcomes[i];
+			xMoves += r.xMoves;
+			oMoves += r.oMoves;
+			xNanos += r.xNanos;
+			oNanos += r.oNanos;
+		}
+
+		public String toString() {
+			int games = games();
+			return String.format("%-7s %-7s %,9d %6.1f%% %6.1f%% %6.1f%% %,12.0f %10.3f %10.3f", x, o, games,
+					100.0 * outcomes[Game.X_WON] / games, 100.0 * outcomes[Game.DRAW] / games,
+					100.0 * outcomes[Game.O_WON] / games, games * 1e9 / nanos, xNanos / 1e3 / Math.max(1, xMoves),
+					oNanos / 1e3 / Math.max(1, oMoves));
+		}
+	}
+
+	public static final String HEADER = String.format("%-7s %-7s %9s %7s %7s %7s %12s %10s %10s", "X", "O", "games", "X won",
+			"drawn", "O won", "games/s", "X us/move", "O us/move");
+
+	/**
+	 * Plays {@code games} games of {@code x} against {@code o}, split into chunks over the thread pool. X starts the even games and O
+	 * the odd ones.
+	 * 
+	 * @param x
+	 * @param o
+	 * @param games
+	 * @return the results
+	 * @throws IllegalStateException
+	 *             if an agent plays an illegal move or has no move
+	 */
+	public Result play(String x, String o, int games) {
+		if (!canPlayO(o))
+			throw new IllegalArgumentException(o + " can only play X");
+
+		Agent xAgent = agent(x);
+		Agent oAgent = agent(o);
+		List<Callable<Result>> tasks = new ArrayList<Callable<Result>>();
+		for (int from = 0; from < games; from += CHUNK) {
+			int first = from;
+			int to = Math.min(games, from + CHUNK);
+			tasks.add(() -> playGames(xAgent, oAgent, first, to, new Result(x, o)));
+		}
+
+		Result result = new Result(x, o);
+		long start = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (Future<Result> f : pool.invokeAll(tasks))
+				result.add(f.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while playing", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IllegalStateException)
+				throw (IllegalStateException) e.getCause();
+			throw new IllegalStateException("Game failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		result.nanos = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Plays games {@code from} to {@code to}-1 in one reused {@link Game}, adding them to {@code result}.
+	 */
+	static Result playGames(Agent x, Agent o, int from, int to, Result result) {
+		Game g = new Game(x, o);
+		for (int i = from; i < to; i++) {
+			g.reset(i % 2 == 0 ? x : o);
+			while (!g.isTerminal()) {
+				Agent who = g.whoseTurn;
+				long start = System.nanoTime();
+				int cell = who.getCell(g);
+				long time = System.nanoTime() - start;
+				if (who == x) {
+					result.xMoves++;
+					result.xNanos += time;
+				} else {
+					result.oMoves++;
+					result.oNanos += time;
+				}
+				if (g.tryPlay(cell) == Game.ILLEGAL)
+					throw new IllegalStateException("Agent " + who + " plays illegal cell " + cell + " in:" + g);
+			}
+			result.outcomes[g.getState()]++;
+		}
+		return result;
+	}
+
+	/**
+	 * Plays every agent in {@code agents} as X against every agent in {@code agents} that can play O.
+	 * 
+	 * @param agents
+	 * @param games
+	 *            the number of games per pairing
+	 * @return the results, one per pairing
+	 */
+	public List<Result> run(List<String> agents, int games) {
+		List<Result> results = new ArrayList<Result>();
+		for (String x : agents)
+			for (String o : agents)
+				if (canPlayO(o))
+					results.add(play(x, o, games));
+		return results;
+	}
+
+	public static void main(String a[]) {
+		List<String> args = Arrays.asList(a);
+		if (args.contains("-h")) {
+			System.out.println(help);
+			return;
+		}
+
+		int games = 10000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> agents = Arrays.asList(AGENTS);
+		Iterator<String> iter = args.iterator();
+		try {
+			while (iter.hasNext()) {
+				String cur = iter.next();
+				switch (cur) {
+				case "-games":
+					games = Integer.parseInt(iter.next());
+					break;
+				case "-threads":
+					threads = Integer.parseInt(iter.next());
+					break;
+				case "-agents":
+					agents = Arrays.asList(iter.next().split(","));
+					break;
+				default:
+					System.out.println("Unknown option: " + cur);
+					System.out.println(help);
+					return;
+				}
+			}
+		} catch (RuntimeException e) {
+			System.out.println("Error: " + e.getMessage());
+			System.out.println(help);
+			return;
+		}
+
+		Tournament t = new Tournament(threads);
+		// train the solvers, all at once, before the clock starts
+		t.train(agents);
+		for (String name : agents)
+			t.agent(name);
+
+		long start = System.nanoTime();
+		List<Result> results = t.run(agents, games);
+		long time = System.nanoTime() - start;
+
+		System.out.println(HEADER);
+		long total = 0;
+		for (Result r : results) {
+			System.out.println(r);
+			total += r.games();
+		}
+		System.out.printf("%,d games in %.2f s on %d threads: %,.0f games/s%n", total, time / 1e9, threads, total * 1e9 / time);
+	}
+
+}
@@ -0,0 +1,228 @@
+package ticTacToe;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Trains an agent in the background: {@link #start} runs a trainer - typically an agent constructor such as
+ * {@code ValueIterationAgent::new}, which trains before it returns - on an executor, and returns at once. The trained agent is
+ * delivered through {@link #future()}, so several agents can train at the same time on the same executor.
+ *
+ * Until training has finished, {@link #getPolicy()} returns a fallback policy (by default a {@link RandomPolicy}), and the agent
+ * returned by {@link #agent()} plays by it, so games can start straight away; that agent switches to the trained policy as soon as
+ * it is ready.
+ *
+ * Training can be cancelled with {@link #cancel()}, or by cancelling the future. The training loops of the value iteration,
+ * policy iteration and Q-learning agents check for this regularly through {@link #progress()}, which is also how they report
+ * their progress to the {@link ProgressListener}.
+ *
+ * @author ae187
+ *
+ */
+public class Training<A extends Agent> {
+
+	/**
+	 * Receives the progress of a training run. It is called on the training threads, possibly on several at once.
+	 */
+	public interface ProgressListener {
+
+		/**
+		 * @param done
+		 *            the work done so far: sweeps for value iteration, policy improvement steps for policy iteration and episodes
+		 *            for Q-learning
+		 * @param total
+		 *            the most work the run will do, or 0 if that is not known in advance
+		 */
+		void progress(long done, long total);
+	}
+
+	/**
+	 * The progress of the training run on the current thread, see {@link Training#progress()}.
+	 */
+	static class Progress {
+
+		final CompletableFuture<?> future;
+		final ProgressListener listener;
+		final AtomicLong done = new AtomicLong();
+		volatile long total;
+
+		Progress(CompletableFuture<?> future, ProgressListener listener) {
+			this.future = future;
+			this.listener = listener;
+		}
+
+		/**
+		 * Starts a new stage of training with at most {@code total} steps (0 if not known), and checks for cancellation.
+		 *
+		 * @param total
+		 */
+		void start(long total) {
+			if (future == null)
+				return;
+			this.total = total;
+			done.set(0);
+			advance(0);
+		}
+
+		/**
+		 * Records {@code steps} more steps done, tells the listener, and checks for cancellation.
+		 *
+		 * @param steps
+		 * @throws CancellationException
+		 *             if training has been cancelled
+		 */
+		void advance(long steps) {
+			if (future == null)
+				return;
+			if (future.isCancelled())
+				throw new CancellationException("Training was cancelled");
+			long d = done.addAndGet(steps);
+			if (listener != null)
+				listener.progress(d, total);
+		}
+	}
+
+	/**
+	 * The progress of threads that are not training for a {@link Training}: ignores everything.
+	 */
+	static final Progress NONE = new Progress(null, null);
+
+	private static final ThreadLocal<Progress> CURRENT = new ThreadLocal<Progress>();
+
+	/**
+	 * @return the progress of the training run on the current thread, or {@link #NONE} if this thread is not running one. Training
+	 *         loops that hand work to other threads have to get this on the calling thread and pass it on.
+	 */
+	static Progress progress() {
+		Progress p = CURRENT.get();
+		return p == null ? NONE : p;
+	}
+
+	private final CompletableFuture<A> future = new CompletableFuture<A>();
+
+	private final Policy fallback;
+
+	private final Progress progress;
+
+	private Training(Policy fallback, ProgressListener listener) {
+		this.fallback = fallback;
+		this.progress = new Progress(future, listener);
+	}
+
+	/**
+	 * Starts training with {@code trainer} on {@code executor}, with a {@link RandomPolicy} fallback and no progress listener.
+	 *
+	 * @param trainer
+	 *            creates and trains the agent, e.g. {@code QLearningAgent::new}
+	 * @param executor
+	 * @return the training run
+	 */
+	public static <A extends Agent> Training<A> start(Supplier<A> trainer, Executor executor) {
+		return start(trainer, executor, new RandomPolicy(), null);
+	}
+
+	/**
+	 * Starts training with {@code trainer} on {@code executor}. If the executor rejects the task, the future fails with the
+	 * rejection.
+	 *
+	 * @param trainer
+	 *            creates and trains the agent, e.g. {@code QLearningAgent::new}
+	 * @param executor
+	 * @param fallback
+	 *            the policy to play by until training has finished
+	 * @param listener
+	 *            told about the progress of training, or null
+	 * @return the training run
+	 */
+	public static <A extends Agent> Training<A> start(Supplier<A> trainer, Executor executor, Policy fallback,
+			ProgressListener listener) {
+		Training<A> training = new Training<A>(fallback, listener);
+		try {
+			executor.execute(() -> training.run(trainer));
+		} catch (RuntimeException e) {
+			training.future.completeExceptionally(e);
+		}
+		return training;
+	}
+
+	private void run(Supplier<A> trainer) {
+		// cancelled before it got to run
+		if (future.isDone())
+			return;
+		CURRENT.set(progress);
+		try {
+			future.complete(trainer.get());
+		} catch (Throwable t) {
+			// a no-op if the failure is the CancellationException of a cancelled future
+			future.completeExceptionally(t);
+		} finally {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * @return the future of the trained agent. It fails with the exception the trainer threw, if it threw one.
+	 */
+	public CompletableFuture<A> future() {
+		return future;
+	}
+
+	/**
+	 * Cancels training. The trainer stops the next time it checks {@link #progress()}, and the future fails with a
+	 * {@link CancellationException}; the agent from {@link #agent()} keeps playing by the fallback policy.
+	 *
+	 * @return true if training had not already finished
+	 */
+	public boolean cancel() {
+		return future.cancel(false);
+	}
+
+	/**
+	 * @return true once training has finished, successfully or not
+	 */
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	/**
+	 * @return true if training has finished successfully, i.e. {@link #getPolicy()} is the trained policy
+	 */
+	public boolean isTrained() {
+		return future.isDone() && !future.isCompletedExceptionally();
+	}
+
+	/**
+	 * @return the trained agent's policy if training has finished successfully, and the fallback policy otherwise
+	 */
+	public Policy getPolicy() {
+		return isTrained() ? future.join().getPolicy() : fallback;
+	}
+
+	/**
+	 * @return an agent that plays by {@link #getPolicy()}: by the fallback policy until training has finished, and by the trained
+	 *         policy from then on.
+	 */
+	public Agent agent() {
+		return new Agent() {
+
+			@Override
+			public Move getMove(Game g) {
+				return Training.this.getPolicy().getMove(g);
+			}
+
+			@Override
+			public int getCell(Game g) {
+				return Training.this.getPolicy().getCell(g);
+			}
+
+			@Override
+			public Policy getPolicy() {
+				return Training.this.getPolicy();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,124 @@
+package ticTacToe;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, keyed by the {@link MNKBoard#key() Zobrist key} of the position: for each position
+ * searched, the value found, how deep it was searched, whether the value is exact or a bound, and the best move.
+ *
+ * Position p goes in slot {@code key & (size-1)} and only there. When two positions want the same slot the one searched deeper
+ * keeps it (depth-preferred replacement), since a deep result saves more work when it is found again; a new result for the same
+ * position always replaces the old one.
+ *
+ * An entry is two longs, the packed result and the key xored with it, so that the table needs no locks to be shared by several
+ * searching threads: an entry torn by two threads writing the same slot at once no longer matches its key, and reads as a miss.
+ *
+ * @author ae187
+ *
+ */
+public class TranspositionTable {
+
+	/**
+	 * The kinds of value: exact, at least the value (the search failed high), and at most the value (it failed low)
+	 */
+	public static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+	/**
+	 * The result of {@link #probe(long)} when the position is not in the table
+	 */
+	public static final long MISS = 0;
+
+	final long[] checks;
+	final long[] entries;
+	final int mask;
+
+	/**
+	 * @param bits
+	 *            the table has 2^bits entries of 16 bytes
+	 */
+	public TranspositionTable(int bits) {
+		if (bits < 0 || bits > 28)
+			throw new IllegalArgumentException("Table size must be 2^0 to 2^28 entries, not 2^" + bits);
+		checks = new long[1 << bits];
+		entries = new long[1 << bits];
+		mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return entries.length;
+	}
+
+	/**
+	 * @param key
+	 * @return the entry of the position with this key, to be read with {@link #value(long)}, {@link #depth(long)},
+	 *         {@link #flag(long)} and {@link #move(long)}; or {@link #MISS}
+	 */
+	public long probe(long key) {
+		int i = (int) key & mask;
+		long entry = entries[i];
+		return entry != MISS && (checks[i] ^ entry) == key ? entry : MISS;
+	}
+
+	/**
+	 * Stores a search result, unless the slot holds another position that was searched deeper.
+	 *
+	 * @param key
+	 * @param depth
+	 *            the depth searched, 0 to 255
+	 * @param flag
+	 *            {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 * @param value
+	 *            between -32768 and 32767
+	 * @param move
+	 *            the best move, or -1 if there is none
+	 */
+	public void store(long key, int depth, int flag, int value, int move) {
+		int i = (int) key & mask;
+		long old = entries[i];
+		if (old != MISS && (checks[i] ^ old) != key && depth(old) > depth)
+			return;
+		// value in bits 0-15, depth 16-23, flag 24-25, move+1 26-45; the flag is never 0, so neither is an entry
+		long entry = (value & 0xFFFFL) | (long) depth << 16 | (long) flag << 24 | (long) (move + 1) << 26;
+		entries[i] = entry;
+		checks[i] = key ^ entry;
+	}
+
+	public static int value(long entry) {
+		return (short) entry;
+	}
+
+	public static int depth(long entry) {
+		return (int) (entry >>> 16) & 0xFF;
+	}
+
+	public static int flag(long entry) {
+		return (int) (entry >>> 24) & 3;
+	}
+
+	/**
+	 * @return the best move, or -1 if none was stored
+	 */
+	public static int move(long entry) {
+		return (int) (entry >>> 26 & 0xFFFFF) - 1;
+	}
+
+	/**
+	 * @return the number of entries in use
+	 */
+	public int used() {
+		int used = 0;
+		for (long entry : entries)
+			if (entry != MISS)
+				used++;
+		return used;
+	}
+
+	public void clear() {
+		Arrays.fill(entries, MISS);
+		Arrays.fill(checks, 0);
+	}
+
+}
@@ -1,11 +1,7 @@
 package ticTacToe;
 
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.io.IOException;
 
 /**
  * A Value Iteration Agent, only very partially implemented. The methods to implement are: 
@@ -16,12 +12,23 @@ import java.util.Set;
  * @author ae187
  *
  */
-public class ValueIterationAgent extends Agent {
+public class ValueIterationAgent extends Agent implements Snapshot.Trainable {
 
 	/**
-	 * This map is used to store the values of states
+	 * The states the agent plans over: all reachable games where it is X's turn, or it's terminal.
 	 */
-	Map<Game, Double> valueFunction=new HashMap<Game, Double>();
+	StateIndex states;
+	
+	/**
+	 * If true (the default) {@link #states} only holds one game per class of games that are rotations or reflections of each other,
+	 * which shrinks every table roughly eightfold without changing any value.
+	 */
+	boolean symmetric=true;
+	
+	/**
+	 * This array is used to store the values of states: valueFunction[id] is the value of the state with that id in {@link #states}
+	 */
+	double[] valueFunction;
 	
 	/**
 	 * the discount factor
@@ -34,13 +41,39 @@ public class ValueIterationAgent extends Agent {
 	TTTMDP mdp=new TTTMDP();
 	
 	/**
-	 * the number of iterations to perform - feel free to change this/try out different numbers of iterations
+	 * the maximum number of iterations (sweeps) to perform. Value iteration stops earlier once the values have converged, see
+	 * {@link #epsilon}, and {@link #train()} fails if they have not converged after k sweeps.
+	 */
+	int k=1000;
+	
+	/**
+	 * the values have converged when no Bellman backup changes any value by more than this
+	 */
+	double epsilon=1e-9;
+	
+	/**
+	 * the order the Bellman backups are done in, see {@link SweepStrategy}. By default a single backward pass over the (acyclic) 
+	 * game graph, which gives the exact values.
+	 */
+	SweepStrategy strategy=SweepStrategy.BACKWARD_INDUCTION;
+	
+	/**
+	 * Statistics of the last {@link #iterate()}: the number of sweeps, the number of Bellman backups and the final Bellman residual.
+	 */
+	int sweeps;
+	long backups;
+	double residual;
+	
+	/**
+	 * the number of threads value iteration sweeps run on, see {@link ValueIterationEngine}. The values are the same whatever 
+	 * the number of threads.
 	 */
-	int k=10;
+	int threads=1;
 	
 	
 	/**
-	 * This constructor trains the agent offline first and sets its policy
+	 * This constructor trains the agent offline first and sets its policy. If snapshots are enabled, see {@link Snapshot}, it 
+	 * loads the values from the last snapshot instead when that was made with the same parameters.
 	 */
 	public ValueIterationAgent()
 	{
@@ -48,7 +81,7 @@ public class ValueIterationAgent extends Agent {
 		mdp=new TTTMDP();
 		this.discount=0.9;
 		initValues();
-		train();
+		Snapshot.loadOrTrain(this, "value-iteration");
 	}
 	
 	
@@ -70,23 +103,49 @@ public class ValueIterationAgent extends Agent {
 	}
 	
 	/**
-	 * Initialises the {@link ValueIterationAgent#valueFunction} map, and sets the initial value of all states to 0 
-	 * (V0 from the lectures). Uses {@link Game#inverseHash} and {@link Game#generateAllValidGames(char)} to do this. 
+	 * Trains the agent offline with value iteration sweeps spread over {@code threads} threads.
+	 * @param discountFactor
+	 * @param threads
+	 */
+	public ValueIterationAgent(double discountFactor, int threads) {
+		
+		this.discount=discountFactor;
+		this.threads=threads;
+		mdp=new TTTMDP();
+		initValues();
+		train();
+	}
+	
+	/**
+	 * Initialises the {@link ValueIterationAgent#valueFunction} array, and sets the initial value of all states to 0 
+	 * (V0 from the lectures). Uses the shared {@link StateIndex} over {@link ReachableStates#forPlayer(char)} to do this. 
 	 * 
 	 */
 	public void initValues()
 	{
 		
-		List<Game> allGames=Game.generateAllValidGames('X');//all valid games where it is X's turn, or it's terminal.
-		for(Game g: allGames)
-			this.valueFunction.put(g, 0.0);
+		this.states=StateIndex.forPlayer('X', symmetric);//all reachable games where it is X's turn, or it's terminal.
+		this.valueFunction=new double[states.size()];
 		
 		
 		
 	}
 	
+	/**
+	 * @param g
+	 * @return the current value of game {@code g}, see {@link #valueFunction}
+	 */
+	public double getValue(Game g)
+	{
+		return valueFunction[states.id(g)];
+	}
+	
 	
 	
+	/**
+	 * Use this constructor to set the various parameters of the Tic-Tac-Toe MDP. This does not train the agent: change any other
+	 * parameters (e.g. {@link #setThreads}) and then call {@link #initValues()} and {@link #train()}.
+	 */
 	public ValueIterationAgent(double discountFactor, double winReward, double loseReward, double livingReward, double drawReward)
 	{
 		this.discount=discountFactor;
@@ -95,66 +154,81 @@ public class ValueIterationAgent extends Agent {
 	}
 	
 	/**
-	 
+	 * @return a snapshot header with this agent's parameters and no arrays
+	 */
+	Snapshot snapshotHeader()
+	{
+		return new Snapshot(Snapshot.VALUE_ITERATION, states, discount, mdp.winReward, mdp.loseReward, mdp.livingReward, mdp.drawReward);
+	}
 	
-	/*
-	 * Performs {@link #k} value iteration steps. After running this method, the {@link ValueIterationAgent#valueFunction} map should contain
-	 * the (current) values of each reachable state. You should use the {@link TTTMDP} provided to do this.
-	 * 
+	/**
+	 * Saves {@link #valueFunction} with the parameters it was trained with.
+	 */
+	public void saveSnapshot(String file) throws IOException
+	{
+		Snapshot snapshot=snapshotHeader();
+		snapshot.doubles=valueFunction;
+		snapshot.save(file);
+	}
+	
+	/**
+	 * Loads {@link #valueFunction} from a snapshot and extracts the policy, if the snapshot was made with this agent's parameters.
+	 * Call {@link #initValues()} first.
+	 */
+	public boolean loadSnapshot(String file) throws IOException
+	{
+		Snapshot snapshot=Snapshot.load(file);
+		if (!snapshot.sameParameters(snapshotHeader()) || snapshot.doubles.length!=states.size())
+			return false;
+		
+		valueFunction=snapshot.doubles;
+		super.policy=extractPolicy();
+		return true;
+	}
+	
+	public int getThreads()
+	{
+		return threads;
+	}
+	
+	public void setThreads(int threads)
+	{
+		if (threads<1)
+			throw new IllegalArgumentException("Need at least one thread, got "+threads);
+		this.threads=threads;
+	}
+	
+	/**
+	 * Performs value iteration steps in the order given by {@link #strategy} until the values converge to within {@link #epsilon}, or 
+	 * for at most {@link #k} sweeps. After running this method, the {@link ValueIterationAgent#valueFunction} array should contain
+	 * the (current) values of each reachable state, and {@link #sweeps}, {@link #backups} and {@link #residual} say how it got there.
+	 * Synchronous sweeps are spread over {@link #threads} threads by a {@link ValueIterationEngine}.
 	 *
 	 */
 	public void iterate()
 	{
-		/* YOUR CODE HERE
-		 */
-		//get how many time steps
-		int j =k;
-		//loop for how many time steps
-		while(j!=0 && j> 0) {
-			//gets states
-			Set<Game> games =valueFunction.keySet();
-			//loop for all states
-			for(Game g: games){
-				//make sure game is on going
-				if(!g.isTerminal())
-				{
-					//get all possible moves from each state
-					List<Move> moves = g.getPossibleMoves();
-					//set the max to a really small number
-					double max = -100;
-					//loop for how many moves there is from that state
-					for(Move m: moves) {
-						//get transition objects for that state
-						List<TransitionProb> outcomes = mdp.generateTransitions(g, m);
-						//initialise result to 0;
-						double result = 0;
-						//loop for how many transition objects there is 
-						for(int i =0;i < outcomes.size();i++) {
-							//get reward 
-							double reward = outcomes.get(i).outcome.localReward;
-							//get probability
-							double prob = outcomes.get(i).prob;
-							//get next state 
-							Game sPrime = outcomes.get(i).outcome.sPrime;
-							//calculate the result and add it to previous 
-							result = result+( prob*(reward + (this.discount*valueFunction.get(sPrime))));
-							
-						}
-						//if max is lower than result 
-						if(max < result) {
-							//set new max to result
-							max = result;
-						}
-						//add to hashmap 
-						this.valueFunction.put(g, max);
-					}
-				}
-					
-				
-				
-			}
-			j--;
-		}		
+		//the transition model as flat arrays, compiled once per mdp
+		CompiledMDP model=mdp.compile(states);
+		ValueIterationEngine engine=new ValueIterationEngine(model, discount, threads);
+		engine.solve(valueFunction, strategy, epsilon, k);
+		this.sweeps=engine.getSweeps();
+		this.backups=engine.getBackups();
+		this.residual=engine.getResidual();
+	}
+	
+	public SweepStrategy getStrategy()
+	{
+		return strategy;
+	}
+	
+	public void setStrategy(SweepStrategy strategy)
+	{
+		this.strategy=strategy;
+	}
+	
+	public void setEpsilon(double epsilon)
+	{
+		this.epsilon=epsilon;
 	}
 	
 	
@@ -166,42 +240,15 @@ public class ValueIterationAgent extends Agent {
 	 */
 	public Policy extractPolicy()
 	{
-		
-		Policy policy = new Policy();
-		Set<Game> games = valueFunction.keySet();
-		for(Game g: games) {
-			List<Move> moves = g.getPossibleMoves();
-			double max = -100;
-			Move bestmove = null;
-			for(Move m: moves) {
-				List<TransitionProb> outcomes = mdp.generateTransitions(g, m);
-				double result = 0;
-				
-				
-				for(int i =0;i < outcomes.size();i++) {
-					
-					
-					double reward = outcomes.get(i).outcome.localReward;
-					
-					double prob = outcomes.get(i).prob;
-				
-					Game sPrime = outcomes.get(i).outcome.sPrime;
-					
-					result = result +(prob*(reward + (this.discount*this.valueFunction.get(sPrime))));
-					 
-				}
-				if(max < result) {
-					max = result;
-					bestmove = m;
-					
-				}
-				
-				policy.policy.put(g, bestmove);
-				
-			}
+		CompiledMDP model=mdp.compile(states);
+		byte[] cells = new byte[states.size()];
+		for(int s=0;s<model.stateCount();s++) {
+			//the move with the highest q value, i.e. a single step of expectimax
+			int best=model.bestAction(s, valueFunction, discount);
+			cells[s]=best<0?Policy.NO_MOVE:model.actionCell[best];
 		}
 		
-		return policy;
+		return new Policy(states, cells);
 	}
 	
 	/**
@@ -214,6 +261,9 @@ public class ValueIterationAgent extends Agent {
 		 * First run value iteration
 		 */
 		this.iterate();
+		System.out.println("Value iteration ("+strategy+"): "+sweeps+" sweeps, "+backups+" backups, residual "+residual);
+		if (residual>epsilon)
+			throw new IllegalStateException("Value iteration did not converge in "+k+" sweeps: residual "+residual+" > "+epsilon);
 		/**
 		 * now extract policy from the values in {@link ValueIterationAgent#valueFunction} and set the agent's policy 
 		 *  
@@ -0,0 +1,374 @@
+package ticTacToe;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs value iteration over a {@link CompiledMDP}, in one of the orders given by {@link SweepStrategy}, either for a fixed number of
+ * sweeps ({@link #run}) or until the largest Bellman residual drops below some epsilon ({@link #solve}). After each call,
+ * {@link #getSweeps()}, {@link #getBackups()} and {@link #getResidual()} report how much work was done and how far from converged the
+ * values are.
+ *
+ * {@link SweepStrategy#SYNCHRONOUS} sweeps are Jacobi sweeps: every sweep reads the values of the previous sweep from one buffer and
+ * writes the new values into another, and the two buffers are swapped between sweeps. Since no state ever reads a value written in
+ * the same sweep, the states can be split across a {@link ForkJoinPool} in any way, and the result is bit-identical whatever the
+ * number of threads.
+ *
+ * When created on a thread that is running a {@link Training}, the engine reports each sweep as progress and stops with a
+ * {@link java.util.concurrent.CancellationException} between sweeps once the training has been cancelled.
+ *
+ * @author ae187
+ *
+ */
+public class ValueIterationEngine {
+
+	/**
+	 * States per fork-join task. Below this a range of states is swept on the current thread.
+	 */
+	static final int GRAIN = 512;
+
+	final CompiledMDP model;
+
+	final double discount;
+
+	final int threads;
+
+	/**
+	 * The progress of the {@link Training} this engine was created for, if any: told about every sweep, and checked for
+	 * cancellation between sweeps.
+	 */
+	final Training.Progress progress = Training.progress();
+
+	/**
+	 * Statistics of the last {@link #run} or {@link #solve}.
+	 */
+	int sweeps;
+	long backups;
+	double residual;
+
+	/**
+	 * @param model
+	 *            the MDP to solve
+	 * @param discount
+	 *            the discount factor
+	 * @param threads
+	 *            the number of threads to sweep with. 1 sweeps on the calling thread.
+	 */
+	public ValueIterationEngine(CompiledMDP model, double discount, int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread, got " + threads);
+		this.model = model;
+		this.discount = discount;
+		this.threads = threads;
+	}
+
+	/**
+	 * Runs {@code sweeps} synchronous sweeps starting from {@code values}, and leaves the result in {@code values}.
+	 *
+	 * @param values
+	 *            one value per state of the model
+	 * @param sweeps
+	 * @return the largest absolute change of any value in the last sweep (the Bellman residual)
+	 */
+	public double run(double[] values, int sweeps) {
+		return synchronous(values, 0.0, sweeps);
+	}
+
+	/**
+	 * Runs value iteration with {@code strategy}, starting from {@code values}, until the Bellman residual (the largest absolute
+	 * change a backup makes to any value) is at most {@code epsilon}, or until {@code maxSweeps} sweeps' worth of backups have been
+	 * done. The result is left in {@code values}.
+	 *
+	 * @param values
+	 *            one value per state of the model
+	 * @param strategy
+	 * @param epsilon
+	 * @param maxSweeps
+	 * @return the final Bellman residual; more than {@code epsilon} if the values did not converge within {@code maxSweeps}
+	 */
+	public double solve(double[] values, SweepStrategy strategy, double epsilon, int maxSweeps) {
+		switch (strategy) {
+		case SYNCHRONOUS:
+			return synchronous(values, epsilon, maxSweeps);
+		case GAUSS_SEIDEL:
+			return gaussSeidel(values, epsilon, maxSweeps);
+		case PRIORITIZED:
+			return prioritized(values, epsilon, maxSweeps);
+		case BACKWARD_INDUCTION:
+			return backwardInduction(values);
+		default:
+			throw new IllegalArgumentException("Unknown strategy " + strategy);
+		}
+	}
+
+	/**
+	 * @return the number of full sweeps over the states in the last run. Prioritized sweeping only makes the one initial pass, and
+	 *         backward induction the one pass in topological order.
+	 */
+	public int getSweeps() {
+		return sweeps;
+	}
+
+	/**
+	 * @return the number of Bellman backups computed in the last run
+	 */
+	public long getBackups() {
+		return backups;
+	}
+
+	/**
+	 * @return the Bellman residual at the end of the last run
+	 */
+	public double getResidual() {
+		return residual;
+	}
+
+	double synchronous(double[] values, double epsilon, int maxSweeps) {
+		double[] in = values;
+		double[] out = new double[values.length];
+		sweeps = 0;
+		backups = 0;
+		residual = Double.POSITIVE_INFINITY;
+		progress.start(maxSweeps);
+		ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		try {
+			while (sweeps < maxSweeps && residual > epsilon) {
+				residual = pool == null ? sweep(in, out, 0, in.length) : pool.invoke(new Sweep(in, out, 0, in.length));
+				sweeps++;
+				backups += in.length;
+				progress.advance(1);
+				double[] swap = in;
+				in = out;
+				out = swap;
+			}
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+		}
+		if (in != values)
+			System.arraycopy(in, 0, values, 0, values.length);
+		return residual;
+	}
+
+	double gaussSeidel(double[] values, double epsilon, int maxSweeps) {
+		sweeps = 0;
+		backups = 0;
+		residual = Double.POSITIVE_INFINITY;
+		progress.start(maxSweeps);
+		while (sweeps < maxSweeps && residual > epsilon) {
+			// reading and writing the same buffer makes this an in-place sweep
+			residual = sweep(values, values, 0, values.length);
+			sweeps++;
+			backups += values.length;
+			progress.advance(1);
+		}
+		return residual;
+	}
+
+	double prioritized(double[] values, double epsilon, int maxSweeps) {
+		int n = values.length;
+		int[] pred = model.predecessors();
+		int[] predStart = model.predecessorStarts();
+		ResidualQueue queue = new ResidualQueue(n);
+		long maxBackups = (long) maxSweeps * n;
+		progress.start(maxSweeps);
+
+		// one full pass to find the initial residuals
+		for (int s = 0; s < n; s++) {
+			double r = Math.abs(model.backup(s, values, discount) - values[s]);
+			if (r > epsilon)
+				queue.offer(s, r);
+		}
+		sweeps = 1;
+		backups = n;
+		progress.advance(1);
+		// the number of backups at which the next sweep's worth of them is reported
+		long nextReport = 2L * n;
+
+		while (!queue.isEmpty() && backups < maxBackups) {
+			if (backups >= nextReport) {
+				progress.advance(1);
+				nextReport += n;
+			}
+			int s = queue.poll();
+			values[s] = model.backup(s, values, discount);
+			backups++;
+			// only the states that can move into s can have had their residual changed
+			for (int i = predStart[s]; i < predStart[s + 1]; i++) {
+				int p = pred[i];
+				double r = Math.abs(model.backup(p, values, discount) - values[p]);
+				backups++;
+				if (r > epsilon)
+					queue.offer(p, r);
+				else
+					queue.remove(p);
+			}
+		}
+		residual = queue.isEmpty() ? 0.0 : queue.peekPriority();
+		if (queue.isEmpty()) {
+			// every residual dropped below epsilon when it was last checked; measure the exact one to report
+			for (int s = 0; s < n; s++)
+				residual = Math.max(residual, Math.abs(model.backup(s, values, discount) - values[s]));
+			backups += n;
+		}
+		return residual;
+	}
+
+	double backwardInduction(double[] values) {
+		int[] order = model.topologicalOrder();
+		progress.start(1);
+		for (int s : order)
+			values[s] = model.backup(s, values, discount);
+		sweeps = 1;
+		backups = order.length;
+		progress.advance(1);
+		// every state was backed up after all of its successors had their final values
+		residual = 0.0;
+		return residual;
+	}
+
+	/**
+	 * Backs up states {@code from} to {@code to}-1, reading from {@code in} and writing to {@code out}.
+	 *
+	 * @return the largest absolute change in that range
+	 */
+	double sweep(double[] in, double[] out, int from, int to) {
+		double residual = 0;
+		for (int s = from; s < to; s++) {
+			double v = model.backup(s, in, discount);
+			residual = Math.max(residual, Math.abs(v - in[s]));
+			out[s] = v;
+		}
+		return residual;
+	}
+
+	/**
+	 * An indexed binary max-heap of states keyed by their Bellman residuals. Each state is in the heap at most once, and offering it
+	 * again updates its priority.
+	 */
+	static class ResidualQueue {
+
+		final int[] heap;
+		final int[] position;
+		final double[] priority;
+		int size;
+
+		ResidualQueue(int states) {
+			heap = new int[states];
+			position = new int[states];
+			priority = new double[states];
+			Arrays.fill(position, -1);
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		double peekPriority() {
+			return priority[heap[0]];
+		}
+
+		void offer(int s, double p) {
+			if (position[s] < 0) {
+				priority[s] = p;
+				heap[size] = s;
+				position[s] = size;
+				up(size++);
+			} else if (p > priority[s]) {
+				priority[s] = p;
+				up(position[s]);
+			} else {
+				priority[s] = p;
+				down(position[s]);
+			}
+		}
+
+		int poll() {
+			int top = heap[0];
+			removeAt(0);
+			return top;
+		}
+
+		void remove(int s) {
+			if (position[s] >= 0)
+				removeAt(position[s]);
+		}
+
+		private void removeAt(int i) {
+			int s = heap[i];
+			position[s] = -1;
+			size--;
+			if (i == size)
+				return;
+			int moved = heap[size];
+			heap[i] = moved;
+			position[moved] = i;
+			up(i);
+			down(position[moved]);
+		}
+
+		private void up(int i) {
+			int s = heap[i];
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (priority[heap[parent]] >= priority[s])
+					break;
+				heap[i] = heap[parent];
+				position[heap[i]] = i;
+				i = parent;
+			}
+			heap[i] = s;
+			position[s] = i;
+		}
+
+		private void down(int i) {
+			int s = heap[i];
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && priority[heap[child + 1]] > priority[heap[child]])
+					child++;
+				if (priority[heap[child]] <= priority[s])
+					break;
+				heap[i] = heap[child];
+				position[heap[i]] = i;
+				i = child;
+			}
+			heap[i] = s;
+			position[s] = i;
+		}
+	}
+
+	/**
+	 * Sweeps a range of states, splitting it in halves until it is at most {@link #GRAIN} states long.
+	 */
+	class Sweep extends RecursiveTask<Double> {
+
+		private static final long serialVersionUID = 1L;
+
+		final double[] in, out;
+		final int from, to;
+
+		Sweep(double[] in, double[] out, int from, int to) {
+			this.in = in;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Double compute() {
+			if (to - from <= GRAIN)
+				return sweep(in, out, from, to);
+
+			int mid = (from + to) >>> 1;
+			Sweep left = new Sweep(in, out, from, mid);
+			left.fork();
+			double right = new Sweep(in, out, mid, to).compute();
+			return Math.max(left.join(), right);
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class AlphaBetaSearchTest {
+
+	@Test
+	void solvesTheEmptyBoardToADraw() {
+		AlphaBetaSearch search = new AlphaBetaSearch(MNKRules.TIC_TAC_TOE, new TranspositionTable(14));
+		int move = search.search(new MNKBoard(MNKRules.TIC_TAC_TOE), 0, 0);
+		assertTrue(search.isExact());
+		assertEquals(0, search.getValue());
+		assertEquals(9, search.getDepth());
+		assertTrue(move >= 0 && move < 9);
+	}
+
+	@Test
+	void transpositionTableChangesNoValue() {
+		for (GameState position : ReachableStates.forPlayer('X'))
+			if (!position.isTerminal()) {
+				MNKBoard board = MNKBoard.of(position);
+				AlphaBetaSearch withTable = new AlphaBetaSearch(MNKRules.TIC_TAC_TOE, new TranspositionTable(14));
+				AlphaBetaSearch without = new AlphaBetaSearch(MNKRules.TIC_TAC_TOE, null);
+				withTable.search(board, 0, 0);
+				without.search(board, 0, 0);
+				assertEquals(without.getValue(), withTable.getValue(), position.toString());
+			}
+	}
+
+	@Test
+	void takesAWinInOne() {
+		// X on 0 and 1, O on 3 and 4: X wins on 2
+		MNKBoard board = MNKBoard.of(GameState.of(0x003, 0x018, 'X'));
+		AlphaBetaSearch search = new AlphaBetaSearch(MNKRules.TIC_TAC_TOE, new TranspositionTable(14));
+		assertEquals(2, search.search(board, 0, 0));
+		assertEquals(AlphaBetaSearch.WIN - 1, search.getValue());
+	}
+
+	@Test
+	void neverLosesToRandomPlay() throws IllegalMoveException {
+		AlphaBetaAgent agent = new AlphaBetaAgent();
+		for (int game = 0; game < 200; game++) {
+			MNKBoard board = new MNKBoard(MNKRules.TIC_TAC_TOE);
+			boolean agentIsX = game % 2 == 0;
+			while (!board.isTerminal()) {
+				MNKPlayer player = board.isXToMove() == agentIsX ? agent : MNKPlayer.random();
+				board.play(player.getCell(board));
+			}
+			assertTrue(board.getState() != (agentIsX ? Game.O_WON : Game.X_WON), board.toString());
+		}
+	}
+
+}
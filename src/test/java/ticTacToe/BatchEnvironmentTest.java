@@ -0,0 +1,118 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author ae187
+ *
+ */
+public class BatchEnvironmentTest {
+
+	/**
+	 * @return a random cell of {@code mask}
+	 */
+	static int pick(int mask, SplittableRandom r) {
+		for (int skip = r.nextInt(Integer.bitCount(mask)); skip > 0; skip--)
+			mask &= mask - 1;
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	@Test
+	void everyBoardStepsByTheRules() {
+		StateIndex states = StateIndex.forPlayer('X');
+		// two blocks of the bit planes, the second one partly used
+		BatchEnvironment batch = new BatchEnvironment(100, states);
+		SplittableRandom r = new SplittableRandom(42);
+		int[] actions = new int[batch.size()];
+		int[] before = new int[batch.size()];
+		for (int step = 0; step < 2000; step++) {
+			for (int b = 0; b < batch.size(); b++) {
+				actions[b] = pick(batch.legalMask(b), r);
+				before[b] = batch.hash(b);
+			}
+			assertEquals(-1, batch.tryStep(actions));
+
+			for (int b = 0; b < batch.size(); b++) {
+				GameState from = Game.inverseHash(before[b]).getPosition();
+				Game next = Game.inverseHash(batch.nextHash[b]);
+				GameState to = next.getPosition();
+				assertEquals(from.getXBits() | 1 << actions[b], to.getXBits());
+				int replies = Integer.bitCount(to.getOBits() & ~from.getOBits());
+				assertEquals(from.getOBits(), to.getOBits() & from.getOBits());
+				assertEquals(batch.outcome[b] == Game.X_WON || Integer.bitCount(to.getXBits()) == 5 ? 0 : 1, replies);
+
+				assertEquals(next.evaluateGameState(), batch.outcome[b]);
+				assertEquals(states.idOfHash(batch.nextHash[b]), batch.nextId[b]);
+				double reward = batch.outcome[b] == Game.X_WON ? batch.winReward
+						: batch.outcome[b] == Game.O_WON ? batch.loseReward
+								: batch.outcome[b] == Game.DRAW ? batch.drawReward : batch.livingReward;
+				assertEquals(reward, batch.reward[b]);
+				// finished boards start over with an empty board, X to move
+				assertEquals(batch.isTerminal(b) ? 1 : batch.nextHash[b], batch.hash(b));
+			}
+		}
+	}
+
+	@Test
+	void illegalActionsChangeNoBoard() {
+		BatchEnvironment batch = new BatchEnvironment(70);
+		int[] actions = new int[batch.size()];
+		batch.tryStep(actions);
+		int[] hashes = new int[batch.size()];
+		for (int b = 0; b < batch.size(); b++)
+			hashes[b] = batch.hash(b);
+
+		// cell 0 is taken on every board now
+		actions[3] = 4;
+		assertEquals(0, batch.tryStep(actions));
+		for (int b = 0; b < batch.size(); b++)
+			assertEquals(hashes[b], batch.hash(b));
+	}
+
+	/**
+	 * A fixed policy that plays a random empty cell in every state, whose wins are shorter games than its draws
+	 */
+	static Policy randomPolicy(StateIndex states, SplittableRandom r) {
+		byte[] cells = new byte[states.size()];
+		for (int id = 0; id < states.size(); id++) {
+			GameState position = states.position(id);
+			cells[id] = (byte) (position.isTerminal() ? -1 : pick(position.emptyCells(), r));
+		}
+		return new Policy(states, cells);
+	}
+
+	/**
+	 * 20,000 games on many games per board, one and a half and a quarter
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = { 256, 13333, 80000 })
+	void batchPlayHasTheOutcomesOfGameByGamePlay(int boards) throws IllegalMoveException {
+		int games = 20000;
+		Policy policy = randomPolicy(StateIndex.forPlayer('X'), new SplittableRandom(42));
+		int[] batched = new BatchEnvironment(boards).play(policy, games);
+		int[] single = QLearningAgentTest.playX(new Agent(policy), new RandomAgent(), games);
+		assertEquals(games, batched[Game.X_WON] + batched[Game.O_WON] + batched[Game.DRAW]);
+		// four standard errors of the difference of two rates
+		for (int state : new int[] { Game.X_WON, Game.O_WON, Game.DRAW })
+			assertEquals((double) single[state] / games, (double) batched[state] / games, 0.02, "state " + state);
+	}
+
+	@Test
+	void batchPlayCountsWholeGamesOfEveryBoard() {
+		Policy policy = randomPolicy(StateIndex.forPlayer('X'), new SplittableRandom(42));
+		BatchEnvironment batch = new BatchEnvironment(64);
+		for (int games : new int[] { 1, 63, 64, 65, 1000 }) {
+			int[] result = batch.play(policy, games);
+			assertEquals(games, result[Game.X_WON] + result[Game.O_WON] + result[Game.DRAW]);
+		}
+		assertThrows(IllegalArgumentException.class, () -> batch.play(policy, -1));
+	}
+
+}
@@ -0,0 +1,48 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The compiled arrays must back up exactly like {@link TTTMDP#generateTransitions}, which they replace.
+ * 
+ * @author ae187
+ *
+ */
+public class CompiledMDPTest {
+
+	@Test
+	void qValuesAgreeWithGenerateTransitions() {
+		StateIndex states = StateIndex.forPlayer('X');
+		TTTMDP mdp = new TTTMDP();
+		CompiledMDP model = mdp.compile(states);
+		Random r = new Random(42);
+		double[] values = new double[states.size()];
+		for (int s = 0; s < values.length; s++)
+			values[s] = r.nextDouble() * 20 - 10;
+
+		assertEquals(states.size(), model.stateCount());
+		for (int s = 0; s < states.size(); s++) {
+			Game g = states.game(s);
+			assertEquals(g.isTerminal(), model.isTerminal(s), g.toString());
+			if (g.isTerminal())
+				continue;
+			double max = Double.NEGATIVE_INFINITY;
+			for (Move m : g.getPossibleMoves()) {
+				double q = 0;
+				for (TransitionProb tp : mdp.generateTransitions(g, m))
+					q += tp.prob * (tp.outcome.localReward + 0.9 * values[states.id(tp.outcome.sPrime)]);
+				int a = model.action(s, 3 * m.x + m.y);
+				assertTrue(a >= 0, g + " " + m);
+				assertEquals(q, model.qValue(a, values, 0.9), 1e-9, g + " " + m);
+				max = Math.max(max, q);
+			}
+			assertEquals(max, model.backup(s, values, 0.9), 1e-9, g.toString());
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class GameStateTest {
+
+	@Test
+	void playReturnsTheSharedStateOfTheNextPosition() throws IllegalMoveException {
+		Random r = new Random(42);
+		for (int game = 0; game < 1000; game++) {
+			GameState position = r.nextBoolean() ? GameState.X_FIRST : GameState.O_FIRST;
+			Game g = new Game(new Agent(), new Agent());
+			g.setPosition(position);
+			while (!position.isTerminal()) {
+				int empty = position.legalMoveMask();
+				for (int skip = r.nextInt(Integer.bitCount(empty)); skip > 0; skip--)
+					empty &= empty - 1;
+				int cell = Integer.numberOfTrailingZeros(empty);
+				int xBits = position.getXBits(), oBits = position.getOBits();
+				GameState next = position.play(cell);
+				// the old position is unchanged
+				assertEquals(xBits, position.getXBits());
+				assertEquals(oBits, position.getOBits());
+				assertEquals(position.whoseTurn() == 'X' ? 'O' : 'X', next.whoseTurn());
+				assertEquals(position.whoseTurn(), next.get(cell));
+				assertSame(GameState.fromHash(next.hashCode()), next);
+
+				g.play(cell);
+				assertSame(next, g.getPosition());
+				assertEquals(GameTest.base3(g), next.hashCode());
+				position = next;
+			}
+		}
+	}
+
+	@Test
+	void positionsDoNotDependOnTheAgents() throws IllegalMoveException {
+		Game one = new Game(new Agent(), new Agent());
+		Game other = new Game(new RandomAgent(), new Agent());
+		for (int cell : new int[] { 4, 0, 8 }) {
+			one.play(cell);
+			other.play(cell);
+			assertSame(one.getPosition(), other.getPosition());
+			assertEquals(one, other);
+			assertEquals(one.hashCode(), other.hashCode());
+		}
+		assertSame(one.getPosition(), new Game(one).getPosition());
+	}
+
+	@Test
+	void illegalMovesLeaveNoState() {
+		GameState position = GameState.X_FIRST.tryPlay(4);
+		assertNull(position.tryPlay(4));
+		assertThrows(IllegalMoveException.class, () -> position.play(4));
+		assertEquals('X', position.get(4));
+		assertEquals(' ', position.get(0));
+	}
+
+	@Test
+	void getBoardIsACopy() {
+		Game g = new Game(new Agent(), new Agent());
+		g.tryPlay(4);
+		char[][] board = g.getBoard();
+		board[0][0] = 'O';
+		board[1][1] = ' ';
+		assertEquals(GameState.X_FIRST.tryPlay(4), g.getPosition());
+		assertEquals('X', g.getBoard()[1][1]);
+		assertEquals(' ', g.getBoard()[0][0]);
+	}
+
+}
@@ -0,0 +1,103 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class GameTest {
+
+	/**
+	 * @return the state of {@code board} by the eight line checks and the scan for empty cells that {@link Game} used before it was
+	 *         backed by bitboards
+	 */
+	static int scanLines(char[][] b) {
+		for (int i = 0; i < 3; i++) {
+			if (b[i][0] != ' ' && b[i][0] == b[i][1] && b[i][1] == b[i][2])
+				return b[i][0] == 'X' ? Game.X_WON : Game.O_WON;
+			if (b[0][i] != ' ' && b[0][i] == b[1][i] && b[1][i] == b[2][i])
+				return b[0][i] == 'X' ? Game.X_WON : Game.O_WON;
+		}
+		if (b[1][1] != ' ' && ((b[0][0] == b[1][1] && b[1][1] == b[2][2]) || (b[2][0] == b[1][1] && b[1][1] == b[0][2])))
+			return b[1][1] == 'X' ? Game.X_WON : Game.O_WON;
+		for (int i = 0; i < 3; i++)
+			for (int j = 0; j < 3; j++)
+				if (b[i][j] == ' ')
+					return Game.ONGOING;
+		return Game.DRAW;
+	}
+
+	/**
+	 * @return the base-3 number of the board, ' ' 0, 'X' 1 and 'O' 2, followed by 1 if X is to move and 2 if O is, as
+	 *         {@link Game#hashCode()} used to build it digit by digit in a string
+	 */
+	static int base3(Game g) {
+		char[][] board = g.getBoard();
+		int hash = 0;
+		for (int i = 0; i < 3; i++)
+			for (int j = 0; j < 3; j++)
+				hash = 3 * hash + (board[i][j] == 'X' ? 1 : board[i][j] == 'O' ? 2 : 0);
+		return 3 * hash + (g.whoseTurn == g.x ? 1 : 2);
+	}
+
+	@Test
+	void winDetectionAgreesWithTheLineScan() {
+		for (char xo : new char[] { 'X', 'O' })
+			for (Game g : Game.generateAllValidGames(xo))
+				assertEquals(scanLines(g.getBoard()), g.evaluateGameState(), g.toString());
+	}
+
+	@Test
+	void hashCodeIsTheBase3NumberOfTheBoard() {
+		for (char xo : new char[] { 'X', 'O' })
+			for (Game g : Game.generateAllValidGames(xo)) {
+				assertEquals(base3(g), g.hashCode(), g.toString());
+				assertEquals(g, Game.inverseHash(g.hashCode()));
+			}
+	}
+
+	@Test
+	void hashCodeFollowsTheMoves() throws IllegalMoveException {
+		Random r = new Random(42);
+		for (int game = 0; game < 1000; game++) {
+			Game g = new Game(new Agent(), new Agent());
+			while (!g.isTerminal()) {
+				List<Move> moves = g.getPossibleMoves();
+				g.executeMove(moves.get(r.nextInt(moves.size())));
+				assertEquals(base3(g), g.hashCode(), g.toString());
+			}
+		}
+	}
+
+	@Test
+	void tryPlayAgreesWithPlay() {
+		Game played = new Game(new Agent(), new Agent());
+		Game tried = new Game(new Agent(), new Agent());
+		for (char xo : new char[] { 'X', 'O' })
+			for (GameState position : ReachableStates.forPlayer(xo))
+				for (int cell = 0; cell < 9; cell++) {
+					played.setPosition(position);
+					tried.setPosition(position);
+					Game simulated;
+					int state;
+					try {
+						simulated = played.simulateMove(played.whoseTurn.getName(), cell / 3, cell % 3);
+						played.play(cell);
+						state = played.getState();
+					} catch (IllegalMoveException e) {
+						simulated = null;
+						state = Game.ILLEGAL;
+					}
+					assertEquals(simulated, tried.trySimulateMove(cell), position + " " + cell);
+					assertEquals(state, tried.tryPlay(cell), position + " " + cell);
+					assertEquals(played.getPosition(), tried.getPosition(), position + " " + cell);
+				}
+	}
+
+}
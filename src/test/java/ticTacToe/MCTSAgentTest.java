@@ -0,0 +1,64 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * @author ae187
+ *
+ */
+public class MCTSAgentTest {
+
+	@ParameterizedTest
+	@EnumSource(MCTSAgent.Parallelism.class)
+	void takesAWinInOne(MCTSAgent.Parallelism parallelism) {
+		// X on 0 and 1, O on 3 and 4: X wins on 2
+		MNKBoard board = MNKBoard.of(GameState.of(0x003, 0x018, 'X'));
+		MCTSAgent agent = new MCTSAgent(0, 2000, 2, parallelism, MNKPlayer.random());
+		assertEquals(2, agent.getCell(board));
+	}
+
+	@ParameterizedTest
+	@EnumSource(MCTSAgent.Parallelism.class)
+	void searchesWithinItsBudgets(MCTSAgent.Parallelism parallelism) {
+		// trees of 1,000 nodes fill up long before the 5,000 playouts are done
+		MCTSAgent agent = new MCTSAgent(0, 5000, 4, parallelism, MNKPlayer.aggressive(), 1000);
+		int trees = parallelism == MCTSAgent.Parallelism.ROOT ? 4 : 1;
+		for (int move = 0; move < 3; move++) {
+			MNKBoard board = new MNKBoard(7, 7, 5);
+			int cell = agent.getCell(board);
+			assertTrue(board.isLegal(cell), "cell " + cell);
+			assertEquals(5000, agent.getLastIterations());
+			assertTrue(agent.getLastNodes() > 1 && agent.getLastNodes() <= 1000 * trees, agent.getLastNodes() + " nodes");
+		}
+	}
+
+	@Test
+	void rarelyLosesToRandomPlay() {
+		MCTSAgent agent = new MCTSAgent(0, 2000, 1, MCTSAgent.Parallelism.TREE, MNKPlayer.of(new AggressivePolicy()));
+		int games = 200, lost = 0;
+		for (int game = 0; game < games; game++) {
+			MNKBoard board = new MNKBoard(MNKRules.TIC_TAC_TOE);
+			boolean agentIsX = game % 2 == 0;
+			while (!board.isTerminal()) {
+				MNKPlayer player = board.isXToMove() == agentIsX ? agent : MNKPlayer.random();
+				board.tryPlay(player.getCell(board));
+			}
+			if (board.getState() == (agentIsX ? Game.O_WON : Game.X_WON))
+				lost++;
+		}
+		assertTrue(lost <= games / 50, lost + " of " + games + " games lost");
+	}
+
+	@Test
+	void needsABudget() {
+		assertThrows(IllegalArgumentException.class, () -> new MCTSAgent(0, 0, 1, MCTSAgent.Parallelism.TREE, MNKPlayer.random()));
+		assertThrows(IllegalArgumentException.class, () -> new MCTSAgent(10, 0, 0, MCTSAgent.Parallelism.TREE, MNKPlayer.random()));
+	}
+
+}
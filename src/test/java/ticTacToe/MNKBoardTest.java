@@ -0,0 +1,68 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class MNKBoardTest {
+
+	/**
+	 * Counts the positions of the tree below {@code board}, including the board itself, and checks every move against the same
+	 * move on {@code position}, the board's 3x3 position
+	 */
+	static long perft(MNKBoard board, GameState position) {
+		assertSame(position, board.toGameState());
+		assertEquals(board.computeKey(), board.key());
+		if (board.isTerminal())
+			return 1;
+		long nodes = 1;
+		long key = board.key();
+		int[] moves = new int[9];
+		int count = board.legalMoves(moves);
+		assertEquals(position.legalMoveMask(), mask(moves, count));
+		for (int i = 0; i < count; i++) {
+			GameState next = position.tryPlay(moves[i]);
+			assertEquals(next.getState(), board.tryPlay(moves[i]));
+			nodes += perft(board, next);
+			board.undo();
+			assertEquals(key, board.key());
+		}
+		return nodes;
+	}
+
+	static int mask(int[] cells, int count) {
+		int mask = 0;
+		for (int i = 0; i < count; i++)
+			mask |= 1 << cells[i];
+		return mask;
+	}
+
+	@Test
+	void ticTacToeTreeAgreesWithGameState() {
+		// the number of nodes of the full game tree of Tic Tac Toe, root included
+		assertEquals(549946, perft(new MNKBoard(MNKRules.TIC_TAC_TOE), GameState.X_FIRST));
+	}
+
+	@Test
+	void kInARowWinsOnLargerBoards() {
+		MNKBoard board = new MNKBoard(7, 7, 5);
+		// X along the anti-diagonal from the top right corner, O along the bottom row
+		int[] x = { 6, 12, 18, 24, 30 };
+		int[] o = { 42, 43, 44, 45 };
+		for (int i = 0; i < 4; i++) {
+			assertEquals(Game.ONGOING, board.tryPlay(x[i]));
+			assertEquals(Game.ONGOING, board.tryPlay(o[i]));
+		}
+		assertEquals(Game.X_WON, board.tryPlay(x[4]));
+		board.undo();
+		// four in a row is not enough
+		assertEquals(Game.ONGOING, board.tryPlay(0));
+		assertEquals(Game.O_WON, board.tryPlay(46));
+	}
+
+}
@@ -0,0 +1,63 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class MoveTest {
+
+	@Test
+	void movesAreShared() {
+		for (char who : new char[] { 'X', 'O' })
+			for (int cell = 0; cell < 9; cell++) {
+				Move m = Move.of(who, cell);
+				assertSame(m, Move.of(who, cell / 3, cell % 3));
+				assertEquals(new Move(who, cell / 3, cell % 3), m);
+				assertEquals(who, m.who.getName());
+				assertEquals(cell, m.cell());
+			}
+	}
+
+	@Test
+	void sharedPlayersKeepTheirNames() {
+		Agent x = Move.of('X', 0).who;
+		x.setName('O');
+		assertEquals('X', x.getName());
+		assertEquals('X', Move.of('X', 4).who.getName());
+		assertThrows(IllegalArgumentException.class, () -> new Game(new Agent(), x));
+		assertThrows(IllegalArgumentException.class, () -> new Game(Move.of('O', 0).who, new Agent()));
+	}
+
+	@Test
+	void possibleMovesAreSharedUnmodifiableLists() {
+		for (char xo : new char[] { 'X', 'O' })
+			for (Game g : Game.generateAllValidGames(xo)) {
+				List<Move> moves = g.getPossibleMoves();
+				assertSame(moves, g.getPossibleMoves());
+				assertEquals(Integer.bitCount(g.legalMoveMask()), moves.size());
+				for (Move m : moves)
+					assertSame(Move.of(g.whoseTurn.getName(), m.cell()), m);
+				assertThrows(UnsupportedOperationException.class, () -> moves.add(Move.of('X', 0)));
+			}
+	}
+
+	@Test
+	void policiesPlaySharedMoves() {
+		Policy[] policies = { new RandomPolicy(), new AggressivePolicy(), new DefensivePolicy() };
+		for (Game g : Game.generateAllValidGames('X'))
+			if (!g.isTerminal())
+				for (Policy p : policies) {
+					Move m = p.getMove(g);
+					assertSame(Move.of('X', m.cell()), m, p.getClass().getSimpleName());
+				}
+	}
+
+}
@@ -0,0 +1,35 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class PolicyIterationAgentTest {
+
+	@Test
+	void exactAndIterativeEvaluationFindTheSamePolicy() {
+		TTTMDP mdp = new TTTMDP();
+		mdp.compile(StateIndex.forPlayer('X'));
+		byte[] initial = null;
+		byte[][] found = new byte[2][];
+		for (int exact = 1; exact >= 0; exact--) {
+			PolicyIterationAgent agent = new PolicyIterationAgent((Policy) null);
+			agent.mdp = mdp;
+			agent.exactEvaluation = exact == 1;
+			agent.initValues();
+			if (initial == null) {
+				agent.initRandomPolicy();
+				initial = agent.curPolicy.clone();
+			} else
+				agent.curPolicy = initial.clone();
+			agent.train();
+			found[exact] = agent.curPolicy;
+		}
+		assertArrayEquals(found[1], found[0]);
+	}
+
+}
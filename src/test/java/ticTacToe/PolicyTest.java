@@ -0,0 +1,49 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Policy files: what is loaded must play exactly like what was saved.
+ * 
+ * @author ae187
+ *
+ */
+public class PolicyTest {
+
+	@TempDir
+	Path dir;
+
+	static void assertSameMoves(Policy expected, Policy actual) {
+		for (Game g : Game.generateAllValidGames('X'))
+			if (!g.isTerminal())
+				assertEquals(expected.getCell(g), actual.getCell(g), g.toString());
+	}
+
+	@Test
+	void savedPolicyFileLoadsWithTheSameMoves() throws IOException {
+		Policy trained = new ValueIterationAgent().getPolicy();
+		String file = dir.resolve("value-iteration.policy").toString();
+		trained.save(file);
+		assertSameMoves(trained, new Policy(file));
+
+		Agent agent = new Agent();
+		agent.loadPolicyFromFile(file);
+		assertSameMoves(trained, agent.getPolicy());
+	}
+
+	@Test
+	void otherFilesAreNotLoaded() throws IOException {
+		Path file = dir.resolve("not.policy");
+		Files.write(file, "X|O|X".getBytes("UTF-8"));
+		assertThrows(IOException.class, () -> new Policy(file.toString()));
+	}
+
+}
@@ -0,0 +1,42 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author ae187
+ *
+ */
+public class QLearningAgentTest {
+
+	static final int GAMES = 2000;
+
+	/**
+	 * @return the number of games {@code x} won, lost and drew against {@code o}, indexed by {@link Game#X_WON},
+	 *         {@link Game#O_WON} and {@link Game#DRAW}
+	 */
+	static int[] playX(Agent x, Agent o, int games) throws IllegalMoveException {
+		int[] result = new int[4];
+		for (int i = 0; i < games; i++) {
+			Game g = new Game(x, o);
+			while (!g.isTerminal())
+				g.executeMove(g.whoseTurn.getMove(g));
+			result[g.getState()]++;
+		}
+		return result;
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 2, 4 })
+	void learnsToBeatRandomOnAnyNumberOfThreads(int threads) throws IllegalMoveException {
+		QLearningAgent agent = new QLearningAgent(new RandomAgent(), 0.2, 30000, 0.9);
+		agent.setThreads(threads);
+		agent.train();
+		int[] result = playX(agent, new RandomAgent(), GAMES);
+		assertTrue(result[Game.X_WON] > 0.9 * GAMES, result[Game.X_WON] + " wins in " + GAMES);
+		assertTrue(result[Game.O_WON] < 0.02 * GAMES, result[Game.O_WON] + " losses in " + GAMES);
+	}
+
+}
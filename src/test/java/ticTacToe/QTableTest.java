@@ -0,0 +1,81 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The flat {@link QTable} against a {@code HashMap<Game, HashMap<Move, Double>>}, which is how the Q-table was stored before.
+ * 
+ * @author ae187
+ *
+ */
+public class QTableTest {
+
+	@Test
+	void updatesLikeTheHashMapTable() {
+		StateIndex states = StateIndex.forPlayer('X');
+		QTable flat = new QTable(states);
+		flat.initLegalMoves();
+		Map<Game, HashMap<Move, Double>> boxed = new HashMap<Game, HashMap<Move, Double>>();
+		for (int id = 0; id < states.size(); id++) {
+			Game g = states.game(id);
+			HashMap<Move, Double> row = new HashMap<Move, Double>();
+			if (!g.isTerminal())
+				for (Move m : g.getPossibleMoves())
+					row.put(m, 0.0);
+			boxed.put(g, row);
+		}
+
+		Random r = new Random(42);
+		for (int u = 0; u < 100000; u++) {
+			int s;
+			do
+				s = r.nextInt(states.size());
+			while (states.position(s).isTerminal());
+			Game g = states.game(s);
+			Move m = g.getPossibleMoves().get(r.nextInt(g.getPossibleMoves().size()));
+			Game next = states.game(r.nextInt(states.size()));
+
+			double max = 0;
+			HashMap<Move, Double> nextRow = boxed.get(next);
+			if (!nextRow.isEmpty()) {
+				max = Double.NEGATIVE_INFINITY;
+				for (double v : nextRow.values())
+					max = Math.max(max, v);
+			}
+			assertEquals(max, flat.max(states.id(next)), next.toString());
+			double sample = r.nextDouble() - 0.5 + 0.9 * max;
+			HashMap<Move, Double> row = boxed.get(g);
+			row.put(m, 0.8 * row.get(m) + 0.2 * sample);
+			flat.update(s, 3 * m.x + m.y, 0.2, sample);
+		}
+
+		for (Map.Entry<Game, HashMap<Move, Double>> row : boxed.entrySet())
+			for (Map.Entry<Move, Double> q : row.getValue().entrySet())
+				assertEquals(q.getValue(), flat.getQValue(row.getKey(), q.getKey()), 1e-12);
+	}
+
+	@Test
+	void canonicalTableSharesTheValuesOfSymmetricGames() throws IllegalMoveException {
+		QTable table = new QTable(StateIndex.forPlayer('X', true));
+		// X in one corner and O next to it, and the same turned by 180 degrees; neither has a symmetry of its own
+		Game g = new Game(new Agent(), new Agent());
+		g.executeMove(Move.of('X', 0));
+		g.executeMove(Move.of('O', 1));
+		Game turned = new Game(new Agent(), new Agent());
+		turned.executeMove(Move.of('X', 8));
+		turned.executeMove(Move.of('O', 7));
+
+		assertNull(table.getQValue(g, Move.of('X', 2)));
+		table.addQValue(g, Move.of('X', 2), 2.5);
+		assertEquals(2.5, table.getQValue(turned, Move.of('X', 6)));
+		assertEquals(Move.of('X', 6), table.bestMove(turned));
+	}
+
+}
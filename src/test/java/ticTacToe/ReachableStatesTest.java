@@ -0,0 +1,77 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class ReachableStatesTest {
+
+	/**
+	 * @return every position that can come up in a game, found by playing every move from both empty boards
+	 */
+	static Set<GameState> play() {
+		Set<GameState> seen = new HashSet<GameState>();
+		Deque<GameState> queue = new ArrayDeque<GameState>();
+		queue.add(GameState.X_FIRST);
+		queue.add(GameState.O_FIRST);
+		seen.addAll(queue);
+		while (!queue.isEmpty()) {
+			GameState position = queue.poll();
+			for (int cell = 0; cell < 9; cell++) {
+				GameState next = position.tryPlay(cell);
+				if (next != null && seen.add(next))
+					queue.add(next);
+			}
+		}
+		return seen;
+	}
+
+	@Test
+	void countsEveryPositionThatCanBePlayed() {
+		Set<GameState> played = play();
+		// 5,478 positions of games that X starts, and as many of games that O starts
+		assertEquals(10956, played.size());
+		assertEquals(played.size(), ReachableStates.count());
+		for (GameState position : played)
+			assertTrue(ReachableStates.isReachable(position.hashCode()), position.toString());
+	}
+
+	@Test
+	void statesForXAreTheOnesWhereXMovesOrTheGameIsOver() {
+		Set<GameState> forX = new HashSet<GameState>(ReachableStates.forPlayer('X'));
+		int expected = 0;
+		for (GameState position : play())
+			if (position.isXToMove() || position.isTerminal()) {
+				expected++;
+				assertTrue(forX.contains(position), position.toString());
+			}
+		assertEquals(6436, expected);
+		assertEquals(expected, forX.size());
+	}
+
+	@Test
+	void validGamesAreTheReachableOnes() {
+		// the old scan also kept valid boards that no game reaches, which is why it found more
+		Set<GameState> reachable = new HashSet<GameState>(ReachableStates.forPlayer('X'));
+		for (Game g : Game.generateAllValidGames('X'))
+			assertTrue(reachable.contains(g.getPosition()), g.toString());
+		assertEquals(reachable.size(), Game.generateAllValidGames('X').size());
+	}
+
+	@Test
+	void everyReachableGameIsValid() {
+		for (GameState position : ReachableStates.forPlayer('X'))
+			assertTrue(new Game(position).isValid(), position.toString());
+	}
+
+}
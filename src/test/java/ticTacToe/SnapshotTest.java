@@ -0,0 +1,75 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Snapshots: an agent that loads one must play exactly like the agent that saved it.
+ * 
+ * @author ae187
+ *
+ */
+public class SnapshotTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void valueIterationSnapshotRoundTrips() throws IOException {
+		ValueIterationAgent trained = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		trained.initValues();
+		trained.train();
+		ValueIterationAgent fresh = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		fresh.initValues();
+		assertRoundTrips(trained, fresh);
+		PolicyTest.assertSameMoves(trained.getPolicy(), fresh.getPolicy());
+	}
+
+	@Test
+	void policyIterationSnapshotRoundTrips() throws IOException {
+		PolicyIterationAgent trained = new PolicyIterationAgent((Policy) null);
+		trained.mdp = new TTTMDP();
+		trained.initValues();
+		trained.initRandomPolicy();
+		trained.train();
+		PolicyIterationAgent fresh = new PolicyIterationAgent((Policy) null);
+		fresh.mdp = new TTTMDP();
+		fresh.initValues();
+		assertRoundTrips(trained, fresh);
+		PolicyTest.assertSameMoves(trained.getPolicy(), fresh.getPolicy());
+	}
+
+	@Test
+	void qLearningSnapshotRoundTrips() throws IOException {
+		QLearningAgent trained = new QLearningAgent(new RandomAgent(), 0.2, 5000, 0.9);
+		QLearningAgent fresh = new QLearningAgent(new RandomAgent(), 0.2, 0, 0.9);
+		fresh.numEpisodes = 5000;
+		assertRoundTrips(trained, fresh);
+		PolicyTest.assertSameMoves(trained.getPolicy(), fresh.getPolicy());
+	}
+
+	@Test
+	void snapshotWithOtherParametersIsNotLoaded() throws IOException {
+		ValueIterationAgent trained = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		trained.initValues();
+		trained.train();
+		String file = dir.resolve("other.snapshot").toString();
+		trained.saveSnapshot(file);
+		ValueIterationAgent other = new ValueIterationAgent(0.8, 10, -50, -1.3, 0);
+		other.initValues();
+		assertFalse(other.loadSnapshot(file));
+	}
+
+	void assertRoundTrips(Snapshot.Trainable trained, Snapshot.Trainable fresh) throws IOException {
+		String file = dir.resolve(trained.getClass().getSimpleName() + ".snapshot").toString();
+		trained.saveSnapshot(file);
+		assertTrue(fresh.loadSnapshot(file), "parameters should match");
+	}
+
+}
@@ -0,0 +1,40 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class StateIndexTest {
+
+	@Test
+	void numbersEveryGameOnceInListOrder() {
+		List<Game> games = Game.generateAllValidGames('X');
+		StateIndex states = new StateIndex(games);
+		assertEquals(games.size(), states.size());
+		for (int id = 0; id < states.size(); id++) {
+			Game g = games.get(id);
+			assertEquals(id, states.id(g));
+			assertEquals(g.hashCode(), states.hash(id));
+			assertEquals(id, states.idOfHash(states.hash(id)));
+			assertEquals(g, states.game(id));
+		}
+	}
+
+	@Test
+	void gamesOutsideTheIndexHaveNoId() {
+		StateIndex states = StateIndex.forPlayer('X');
+		for (Game g : Game.generateAllValidGames('O'))
+			if (!g.isTerminal()) {
+				assertEquals(-1, states.id(g), g.toString());
+				assertFalse(states.contains(g));
+			}
+	}
+
+}
@@ -0,0 +1,66 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The eight symmetries of the board, and the canonical states that value iteration is trained on.
+ * 
+ * @author ae187
+ *
+ */
+public class SymmetryTest {
+
+	@Test
+	void allTransformsOfAPositionHaveTheSameCanonicalHash() {
+		for (GameState position : ReachableStates.forPlayer('X')) {
+			int hash = position.hashCode();
+			int canonical = Symmetry.canonicalHash(hash);
+			for (int t = 0; t < 8; t++)
+				assertEquals(canonical, Symmetry.canonicalHash(Symmetry.applyToHash(t, hash)), position + " transform " + t);
+		}
+	}
+
+	@Test
+	void canonicalTransformMapsToTheCanonicalHash() {
+		for (GameState position : ReachableStates.forPlayer('X')) {
+			int hash = position.hashCode();
+			assertEquals(Symmetry.canonicalHash(hash), Symmetry.applyToHash(Symmetry.canonicalTransform(hash), hash));
+		}
+	}
+
+	@Test
+	void transformedMovesAreInvertedBack() {
+		for (int t = 0; t < 8; t++)
+			for (int cell = 0; cell < 9; cell++)
+				assertEquals(cell, Symmetry.invert(t, Symmetry.apply(t, cell)));
+	}
+
+	@Test
+	void canonicalIndexHasOneStatePerSymmetryClass() {
+		StateIndex plain = StateIndex.forPlayer('X');
+		StateIndex canonical = StateIndex.forPlayer('X', true);
+		assertEquals(903, canonical.size());
+		for (int id = 0; id < plain.size(); id++)
+			assertTrue(canonical.contains(plain.game(id)));
+	}
+
+	@Test
+	void canonicalValueIterationHasThePlainValues() {
+		ValueIterationAgent plain = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		plain.symmetric = false;
+		plain.initValues();
+		plain.train();
+		ValueIterationAgent canonical = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		canonical.symmetric = true;
+		canonical.initValues();
+		canonical.train();
+		for (int s = 0; s < plain.states.size(); s++) {
+			Game g = plain.states.game(s);
+			assertEquals(plain.valueFunction[s], canonical.getValue(g), 1e-9, g.toString());
+		}
+	}
+
+}
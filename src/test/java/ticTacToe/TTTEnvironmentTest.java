@@ -0,0 +1,77 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class TTTEnvironmentTest {
+
+	/**
+	 * An opponent that always plays the first empty cell, so that two environments see the same replies
+	 */
+	static class FirstEmptyAgent extends Agent {
+		@Override
+		public int getCell(Game g) {
+			return Integer.numberOfTrailingZeros(g.emptyCells());
+		}
+
+		@Override
+		public Move getMove(Game g) {
+			int cell = getCell(g);
+			return Move.of(g.whoseTurn.getName(), cell);
+		}
+	}
+
+	@Test
+	void stepAgreesWithExecuteMove() throws IllegalMoveException {
+		StateIndex states = StateIndex.forPlayer('X');
+		Random r = new Random(42);
+		for (int episode = 0; episode < 1000; episode++) {
+			TTTEnvironment moves = new TTTEnvironment(new FirstEmptyAgent());
+			TTTEnvironment steps = new TTTEnvironment(new FirstEmptyAgent());
+			steps.setStateIndex(states);
+			StepResult out = new StepResult();
+			while (!moves.isTerminal()) {
+				List<Move> possible = moves.getPossibleMoves();
+				Move m = possible.get(r.nextInt(possible.size()));
+				Outcome o = moves.executeMove(m);
+				steps.step(3 * m.x + m.y, out);
+
+				assertEquals(o.localReward, out.reward);
+				assertEquals(o.sPrime.getState(), out.state);
+				assertEquals(o.sPrime.hashCode(), out.hash);
+				assertEquals(states.id(o.sPrime), out.id);
+				assertEquals(moves.getCurrentGameState(), steps.getCurrentGameState());
+			}
+			assertTrue(steps.isTerminal());
+		}
+	}
+
+	@Test
+	void resetStartsANewEpisodeAndStepRefusesIllegalMoves() throws IllegalMoveException {
+		TTTEnvironment env = new TTTEnvironment(new FirstEmptyAgent());
+		StepResult out = new StepResult();
+		env.step(4, out);
+		assertEquals(0, out.opponentCell);
+		assertThrows(IllegalMoveException.class, () -> env.step(4, out));
+		assertEquals(Game.ILLEGAL, env.tryStep(0, out));
+		assertEquals(-1, out.opponentCell);
+
+		env.reset();
+		assertEquals(new Game(new Agent(), new Agent()), env.getCurrentGameState());
+		assertEquals(9, env.getPossibleMoves().size());
+		while (!env.isTerminal())
+			env.step(Integer.numberOfTrailingZeros(env.game.emptyCells()), out);
+		assertThrows(IllegalMoveException.class, () -> env.step(8, out));
+	}
+
+}
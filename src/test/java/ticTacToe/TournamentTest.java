@@ -0,0 +1,55 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author ae187
+ *
+ */
+public class TournamentTest {
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 4 })
+	void playsEveryGameOnAnyNumberOfThreads(int threads) {
+		// more games than one chunk, and a partial last chunk
+		Tournament.Result result = new Tournament(threads).play("random", "agg", 2 * Tournament.CHUNK + 500);
+		assertEquals(2 * Tournament.CHUNK + 500, result.games());
+		assertEquals(0, result.outcomes[Game.ONGOING]);
+	}
+
+	@Test
+	void playersTakeTurnsToStart() {
+		// perfect play is a draw after nine moves: X's five and O's four in a game X starts, and the other way round
+		Tournament.Result result = new Tournament(2).play("ab", "ab", 2);
+		assertEquals(2, result.outcomes[Game.DRAW]);
+		assertEquals(9, result.xMoves);
+		assertEquals(9, result.oMoves);
+	}
+
+	@Test
+	void runPlaysEveryAgentAsXAgainstEveryAgentThatCanPlayO() {
+		List<Tournament.Result> results = new Tournament(2).run(Arrays.asList("vi", "random", "def"), 10);
+		assertEquals(6, results.size());
+		for (Tournament.Result r : results) {
+			assertEquals(10, r.games());
+			assertTrue(Tournament.canPlayO(r.o), r.o);
+		}
+		assertEquals("vi", results.get(0).x);
+	}
+
+	@Test
+	void solversOnlyPlayX() {
+		assertThrows(IllegalArgumentException.class, () -> new Tournament(1).play("random", "vi", 1));
+		assertThrows(IllegalArgumentException.class, () -> new Tournament(0));
+	}
+
+}
@@ -0,0 +1,101 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class TrainingTest {
+
+	ExecutorService pool;
+
+	@BeforeEach
+	void startPool() {
+		pool = Executors.newSingleThreadExecutor();
+	}
+
+	@AfterEach
+	void stopPool() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	void fallbackPolicyAnswersBeforeTrainingCompletes() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		Policy fallback = new RandomPolicy();
+		Training<ValueIterationAgent> run = Training.start(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return new ValueIterationAgent();
+		}, pool, fallback, null);
+		Agent agent = run.agent();
+
+		Game g = new Game(new Agent(), new Agent());
+		assertFalse(run.isDone());
+		assertSame(fallback, run.getPolicy());
+		assertTrue((g.emptyCells() & 1 << agent.getCell(g)) != 0);
+		assertFalse(run.isDone());
+
+		release.countDown();
+		ValueIterationAgent trained = run.future().join();
+		assertTrue(run.isTrained());
+		assertSame(trained.getPolicy(), run.getPolicy());
+		assertEquals(trained.getCell(g), agent.getCell(g));
+	}
+
+	@Test
+	void cancelStopsARunningTrain() throws InterruptedException {
+		// far more episodes than the test could wait for
+		int episodes = 1000000000;
+		AtomicLong done = new AtomicLong();
+		CountDownLatch started = new CountDownLatch(1);
+		Training<QLearningAgent> run = Training.start(() -> new QLearningAgent(new RandomAgent(), 0.2, episodes, 0.9), pool,
+				new RandomPolicy(), (d, total) -> {
+					done.set(d);
+					if (d >= 10000)
+						started.countDown();
+				});
+		assertTrue(started.await(1, TimeUnit.MINUTES));
+
+		assertTrue(run.cancel());
+		pool.shutdown();
+		// the training thread only ends once train() has returned
+		assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+		assertTrue(done.get() < episodes);
+		assertThrows(CancellationException.class, () -> run.future().join());
+		assertFalse(run.isTrained());
+		assertTrue(run.getPolicy() instanceof RandomPolicy);
+	}
+
+	@Test
+	void failedTrainingKeepsTheFallback() {
+		Policy fallback = new RandomPolicy();
+		Training<Agent> run = Training.start(() -> {
+			throw new IllegalStateException("no model");
+		}, pool, fallback, null);
+		assertThrows(Exception.class, () -> run.future().join());
+		assertTrue(run.isDone());
+		assertFalse(run.isTrained());
+		assertSame(fallback, run.getPolicy());
+	}
+
+}
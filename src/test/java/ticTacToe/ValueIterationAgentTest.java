@@ -0,0 +1,33 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ae187
+ *
+ */
+public class ValueIterationAgentTest {
+
+	static ValueIterationAgent train(SweepStrategy strategy) {
+		ValueIterationAgent agent = new ValueIterationAgent(0.9, 10, -50, -1.3, 0);
+		agent.symmetric = false;
+		agent.setStrategy(strategy);
+		agent.initValues();
+		agent.train();
+		return agent;
+	}
+
+	@Test
+	void backwardInductionTrainsTheSynchronousValuesAndPolicy() {
+		ValueIterationAgent synchronous = train(SweepStrategy.SYNCHRONOUS);
+		ValueIterationAgent backward = train(SweepStrategy.BACKWARD_INDUCTION);
+		assertArrayEquals(synchronous.valueFunction, backward.valueFunction, 1e-9);
+		for (Game g : Game.generateAllValidGames('X'))
+			if (!g.isTerminal())
+				assertEquals(synchronous.getPolicy().getCell(g), backward.getPolicy().getCell(g), g.toString());
+	}
+
+}
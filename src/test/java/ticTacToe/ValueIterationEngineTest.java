@@ -0,0 +1,56 @@
+package ticTacToe;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every way of running {@link ValueIterationEngine} over the X player's MDP must end with the same values.
+ * 
+ * @author ae187
+ *
+ */
+public class ValueIterationEngineTest {
+
+	static CompiledMDP model;
+
+	/**
+	 * The values of synchronous sweeps on one thread, to convergence
+	 */
+	static double[] reference;
+
+	@BeforeAll
+	static void solve() {
+		model = new TTTMDP().compile(StateIndex.forPlayer('X'));
+		reference = new double[model.stateCount()];
+		new ValueIterationEngine(model, 0.9, 1).solve(reference, SweepStrategy.SYNCHRONOUS, 1e-9, 1000);
+	}
+
+	@Test
+	void everySweepStrategyFindsTheSameValues() {
+		for (SweepStrategy strategy : new SweepStrategy[] { SweepStrategy.GAUSS_SEIDEL, SweepStrategy.PRIORITIZED,
+				SweepStrategy.BACKWARD_INDUCTION }) {
+			double[] values = new double[model.stateCount()];
+			ValueIterationEngine engine = new ValueIterationEngine(model, 0.9, 1);
+			assertTrue(engine.solve(values, strategy, 1e-9, 1000) <= 1e-9, strategy + " did not converge");
+			assertArrayEquals(reference, values, 1e-9, strategy.toString());
+		}
+	}
+
+	@Test
+	void everyThreadCountSweepsToIdenticalValues() {
+		double[] single = new double[model.stateCount()];
+		new ValueIterationEngine(model, 0.9, 1).run(single, 200);
+		for (int threads = 2; threads <= 8; threads *= 2) {
+			double[] values = new double[model.stateCount()];
+			new ValueIterationEngine(model, 0.9, threads).run(values, 200);
+			// each state is backed up from the same inputs whichever thread does it, so not even the rounding may differ
+			assertArrayEquals(single, values, threads + " threads: " + Arrays.toString(values));
+		}
+	}
+
+}